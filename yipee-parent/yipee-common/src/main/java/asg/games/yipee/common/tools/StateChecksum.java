@@ -0,0 +1,171 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.common.tools;
+
+/**
+ * Allocation-free 64-bit checksum helpers used to fingerprint flat game board state.
+ *
+ * <p>The server and predicting clients must produce identical values for identical
+ * boards, so every platform folds the same fields in the same order through these
+ * methods. A running hash starts at {@link #SEED}, is threaded through the {@code mix}
+ * overloads, and is closed with {@link #finish(long)}:
+ *
+ * <pre>
+ *     long hash = StateChecksum.SEED;
+ *     hash = StateChecksum.mix(hash, cells);
+ *     hash = StateChecksum.mix(hash, pieceFallTimer);
+ *     long checksum = StateChecksum.finish(hash);
+ * </pre>
+ *
+ * <p>The checksum is intended for desync detection only; it is not cryptographically secure.
+ */
+public final class StateChecksum {
+
+    /**
+     * Initial value of a running checksum (FNV-1a 64-bit offset basis).
+     */
+    public static final long SEED = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64-bit prime.
+     */
+    private static final long PRIME = 0x100000001b3L;
+
+    /**
+     * Value folded in place of a {@code null} array or collection so that
+     * {@code null} and empty inputs produce different checksums.
+     */
+    private static final int NULL_MARKER = -1;
+
+    private StateChecksum() {
+    }
+
+    /**
+     * Folds a single int into the running checksum.
+     *
+     * @param hash  the running checksum
+     * @param value the value to fold in
+     * @return the updated checksum
+     */
+    public static long mix(long hash, int value) {
+        return (hash ^ value) * PRIME;
+    }
+
+    /**
+     * Folds a long into the running checksum.
+     *
+     * @param hash  the running checksum
+     * @param value the value to fold in
+     * @return the updated checksum
+     */
+    public static long mix(long hash, long value) {
+        hash = mix(hash, (int) value);
+        return mix(hash, (int) (value >>> 32));
+    }
+
+    /**
+     * Folds a float into the running checksum using its raw IEEE-754 bits.
+     *
+     * @param hash  the running checksum
+     * @param value the value to fold in
+     * @return the updated checksum
+     */
+    public static long mix(long hash, float value) {
+        return mix(hash, Float.floatToIntBits(value));
+    }
+
+    /**
+     * Folds a boolean into the running checksum.
+     *
+     * @param hash  the running checksum
+     * @param value the value to fold in
+     * @return the updated checksum
+     */
+    public static long mix(long hash, boolean value) {
+        return mix(hash, value ? 1 : 0);
+    }
+
+    /**
+     * Folds every element of an int array, prefixed by its length.
+     *
+     * @param hash   the running checksum
+     * @param values the array to fold in, may be {@code null}
+     * @return the updated checksum
+     */
+    public static long mix(long hash, int[] values) {
+        if (values == null) {
+            return mix(hash, NULL_MARKER);
+        }
+        hash = mix(hash, values.length);
+        for (int value : values) {
+            hash = mix(hash, value);
+        }
+        return hash;
+    }
+
+    /**
+     * Folds every row of a 2D int matrix, prefixed by its row count.
+     *
+     * @param hash   the running checksum
+     * @param matrix the matrix to fold in, may be {@code null}
+     * @return the updated checksum
+     */
+    public static long mix(long hash, int[][] matrix) {
+        if (matrix == null) {
+            return mix(hash, NULL_MARKER);
+        }
+        hash = mix(hash, matrix.length);
+        for (int[] row : matrix) {
+            hash = mix(hash, row);
+        }
+        return hash;
+    }
+
+    /**
+     * Folds every element of an integer sequence (such as a power queue) in iteration order,
+     * followed by the element count.
+     *
+     * @param hash   the running checksum
+     * @param values the values to fold in, may be {@code null}
+     * @return the updated checksum
+     */
+    public static long mix(long hash, Iterable<Integer> values) {
+        if (values == null) {
+            return mix(hash, NULL_MARKER);
+        }
+        int count = 0;
+        for (Integer value : values) {
+            hash = mix(hash, value == null ? NULL_MARKER : value);
+            count++;
+        }
+        return mix(hash, count);
+    }
+
+    /**
+     * Finalizes a running checksum, spreading every input bit across the result.
+     *
+     * @param hash the running checksum
+     * @return the final checksum value
+     */
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.game;
+
+/**
+ * Receives eliminations from a {@link YipeeTableSimulation} as they happen.
+ *
+ * <p>Callbacks are made on the thread stepping the simulation, during
+ * {@link YipeeTableSimulation#step(float)}, after the tick has been incremented.
+ */
+public interface EliminationListener {
+
+    /**
+     * Called once when a seat's board dies.
+     *
+     * @param seat the seat
+     * @param tick the tick on which the death was detected
+     */
+    void onPlayerDied(int seat, int tick);
+
+    /**
+     * Called once when the last living board of a team dies, right after
+     * {@link #onPlayerDied(int, int)} for that board.
+     *
+     * @param team the team (seats {@code 2 * team} and {@code 2 * team + 1})
+     * @param tick the tick on which the team was eliminated
+     */
+    void onTeamEliminated(int team, int tick);
+}
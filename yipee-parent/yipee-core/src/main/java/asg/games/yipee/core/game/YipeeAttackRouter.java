@@ -0,0 +1,191 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.game;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.common.tools.StateChecksum;
+import asg.games.yipee.core.tools.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Routes power usage between the boards of one table.
+ *
+ * <p>Attacks are collected while a tick's actions are applied and delivered together when
+ * the table steps. For {@code P_ATTACK_*} actions the power is taken from the front of the
+ * initiating board's queue and the target resolved here:
+ * <ul>
+ *     <li>{@code P_ATTACK_TARGETn} hits the board in seat {@code n - 1};</li>
+ *     <li>{@code P_ATTACK_RANDOM} sends offensive powers to a living board of another team,
+ *     chosen from the seed, tick and initiator so replays pick the same board, and applies
+ *     defensive powers to the initiating board.</li>
+ * </ul>
+ * Any other use of a power is rejected: a client may only spend the power at the front of
+ * its own queue, never name the power or the board it lands on.
+ *
+ * <p>On {@link #flush()} each target board receives all of its incoming powers in one
+ * {@link YipeeGameBoard#handlePowers(int[], int)} call, so the board is rescanned for
+ * matches once per tick rather than once per power. The resolved attacks of the last
+ * flushed tick are kept for broadcasting.
+ */
+public class YipeeAttackRouter {
+    private static final Logger logger = LoggerFactory.getLogger(YipeeAttackRouter.class);
+
+    private final long seed;
+    private final YipeeGameBoard[] boards;
+    private final int[][] incoming;
+    private final int[] incomingCount;
+    private List<PlayerAction> pending = new ArrayList<>();
+    private List<PlayerAction> delivered = new ArrayList<>();
+
+    YipeeAttackRouter(long seed, YipeeGameBoard[] boards) {
+        this.seed = seed;
+        this.boards = boards;
+        this.incoming = new int[boards.length][4];
+        this.incomingCount = new int[boards.length];
+    }
+
+    /**
+     * Returns whether an action type is a use of a power and so goes through the router.
+     */
+    public static boolean isRouted(PlayerAction.ActionType type) {
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+            case P_MOVE_LEFT:
+            case P_MOVE_RIGHT:
+            case P_MOVE_DOWN_START:
+            case P_MOVE_DOWN_END:
+            case P_CYCLE_UP:
+            case P_CYCLE_DOWN:
+            case S_SPEED:
+            case O_MEDUSA:
+            case O_MIDAS:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Resolves an attack and holds it for the next {@link #flush()}.
+     *
+     * @param action a routed action
+     * @param tick   the tick the action is applied on
+     * @return {@code true} if the attack will be delivered; {@code false} if the initiator
+     * has no power to spend or the action is not a {@code P_ATTACK_*} key
+     */
+    boolean queue(PlayerAction action, int tick) {
+        PlayerAction.ActionType type = action.getActionType();
+        int initiator = action.getInitiatingBoardId();
+
+        if (!isAttackKey(type)) {
+            logger.warn("Rejecting power that was not taken from a queue: {}", action);
+            return false;
+        }
+        YipeeGameBoard source = board(initiator);
+        if (source == null || source.hasPlayerDied() || Util.isEmpty(source.getPowers())) {
+            return false;
+        }
+        int power = source.getPowers().peek();
+        int target = type == PlayerAction.ActionType.P_ATTACK_RANDOM
+            ? randomTarget(initiator, power, tick)
+            : type.ordinal() - PlayerAction.ActionType.P_ATTACK_TARGET1.ordinal();
+        if (board(target) == null) {
+            return false;
+        }
+        source.popPowerFromQueue();
+
+        int count = incomingCount[target];
+        if (count == incoming[target].length) {
+            incoming[target] = Arrays.copyOf(incoming[target], count * 2);
+        }
+        incoming[target][count] = power;
+        incomingCount[target] = count + 1;
+        pending.add(new PlayerAction(initiator, type, target, power));
+        return true;
+    }
+
+    /**
+     * Delivers every queued attack, one board pass per target.
+     */
+    void flush() {
+        for (int seat = 0; seat < boards.length; seat++) {
+            if (incomingCount[seat] > 0) {
+                boards[seat].handlePowers(incoming[seat], incomingCount[seat]);
+                incomingCount[seat] = 0;
+            }
+        }
+        List<PlayerAction> swap = delivered;
+        delivered = pending;
+        pending = swap;
+        pending.clear();
+    }
+
+    /**
+     * Returns the attacks delivered by the last {@link #flush()}, with resolved targets and
+     * the power value in {@code actionData}.
+     */
+    public List<PlayerAction> getDelivered() {
+        return delivered;
+    }
+
+    private int randomTarget(int initiator, int power, int tick) {
+        if (!YipeeBlockEval.isOffensive(power)) {
+            return initiator;
+        }
+        int candidates = 0;
+        for (int seat = 0; seat < boards.length; seat++) {
+            if (isOpponent(initiator, seat)) {
+                candidates++;
+            }
+        }
+        if (candidates == 0) {
+            return -1;
+        }
+        long hash = StateChecksum.mix(StateChecksum.mix(StateChecksum.mix(seed, tick), initiator), pending.size());
+        int pick = (int) Math.floorMod(StateChecksum.finish(hash), (long) candidates);
+        for (int seat = 0; seat < boards.length; seat++) {
+            if (isOpponent(initiator, seat) && pick-- == 0) {
+                return seat;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isOpponent(int initiator, int seat) {
+        return seat / 2 != initiator / 2 && !boards[seat].hasPlayerDied();
+    }
+
+    private YipeeGameBoard board(int seat) {
+        return seat >= 0 && seat < boards.length ? boards[seat] : null;
+    }
+
+    /**
+     * Returns whether an action type spends the power at the front of the initiator's queue.
+     * These are the only uses of powers a client may send.
+     */
+    public static boolean isAttackKey(PlayerAction.ActionType type) {
+        return type != null
+            && type.ordinal() >= PlayerAction.ActionType.P_ATTACK_RANDOM.ordinal()
+            && type.ordinal() <= PlayerAction.ActionType.P_ATTACK_TARGET8.ordinal();
+    }
+}
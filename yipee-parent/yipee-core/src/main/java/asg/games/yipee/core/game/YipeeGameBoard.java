@@ -20,6 +20,7 @@ import asg.games.yipee.common.game.CommonRandomNumberArray;
 import asg.games.yipee.common.game.GameBoardState;
 import asg.games.yipee.common.game.GamePhase;
 import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.common.tools.StateChecksum;
 import asg.games.yipee.core.objects.YipeeBlock;
 import asg.games.yipee.core.objects.YipeeBlockMove;
 import asg.games.yipee.core.objects.YipeeBrokenBlock;
@@ -31,7 +32,9 @@ import asg.games.yipee.core.tools.RandomUtil;
 import asg.games.yipee.core.tools.TimeUtils;
 import asg.games.yipee.core.tools.Util;
 import asg.games.yipee.core.tools.YipeePrinter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -62,9 +65,13 @@ public class YipeeGameBoard implements Disposable {
     public static final float FALL_RATE = 0.04f;
     public static final float FAST_FALL_RATE = 0.496f;
     private static final int MAX_FALL_VALUE = 1;
+    /** Step rate {@link #FALL_RATE} and {@link #FAST_FALL_RATE} are expressed in. */
+    public static final int NOMINAL_TICK_RATE = 60;
+    private static final float NOMINAL_STEP = 1f / NOMINAL_TICK_RATE;
     private static final int CONST_ROW_ADD = 1;
     private GamePhase currentPhase = GamePhase.SPAWN_NEXT;
-    private final YipeeGameBoard partnerBoard = new YipeeGameBoard();
+    // Created lazily; an eager initializer would recursively construct boards forever
+    private YipeeGameBoard partnerBoard;
 
 
     //private final YokelPiece MEDUSA_PIECE = new YokelPiece(0, YokelBlock.MEDUSA, YokelBlock.MEDUSA, YokelBlock.MEDUSA);
@@ -124,6 +131,14 @@ public class YipeeGameBoard implements Disposable {
     Queue<YipeeBlockMove> cellsToDrop = new LinkedList<>();
     private int boardNumber = -1;
 
+    // Set while a batch of incoming powers is applied; rescans run once at the end
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean deferBoardUpdates;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean boardUpdatePending;
+
     private int yahooDuration = 0;
     private int brokenBlockCount = 0;
     private boolean hasGameStarted = false;
@@ -133,6 +148,9 @@ public class YipeeGameBoard implements Disposable {
     private boolean debug = false;
     private String name = null;
 
+    // Not part of the board's state; skipped by serializers
+    private final transient YipeeGameBoardView stateView = new YipeeGameBoardView(this);
+
     //Empty Constructor required for Json.Serializable
     public YipeeGameBoard() {
     }
@@ -217,6 +235,58 @@ public class YipeeGameBoard implements Disposable {
         return state;
     }
 
+    /**
+     * Returns a read-only view over this board's live fields. No state is copied, so the
+     * view is only valid for the current tick; call {@link YipeeGameBoardView#freeze()}
+     * when a durable copy is needed. The view is stamped once at the end of every tick,
+     * however many times it is handed out.
+     *
+     * @return the shared view of this board
+     */
+    @JsonIgnore
+    public YipeeGameBoardView getStateView() {
+        return stateView;
+    }
+
+    /**
+     * Computes a cheap checksum over the simulated state of this board: cells, active and
+     * next piece, timers, power and special queues, block pointer and phase.
+     *
+     * <p>Wall-clock values (game clock, timestamps) are intentionally left out so that the
+     * server and a predicting client holding the same board produce the same value.
+     *
+     * @return 64-bit checksum of the current board state
+     */
+    public long getStateChecksum() {
+        long hash = StateChecksum.SEED;
+        hash = StateChecksum.mix(hash, cells);
+        hash = mixPiece(hash, piece);
+        hash = mixPiece(hash, nextPiece);
+        hash = StateChecksum.mix(hash, pieceFallTimer);
+        hash = StateChecksum.mix(hash, pieceLockTimer);
+        hash = StateChecksum.mix(hash, blockAnimationTimer);
+        hash = StateChecksum.mix(hash, powers);
+        hash = StateChecksum.mix(hash, specialPieces);
+        hash = StateChecksum.mix(hash, countOfBreaks);
+        hash = StateChecksum.mix(hash, powersKeep);
+        hash = StateChecksum.mix(hash, currentBlockPointer);
+        hash = StateChecksum.mix(hash, idIndex);
+        hash = StateChecksum.mix(hash, yahooDuration);
+        hash = StateChecksum.mix(hash, currentPhase != null ? currentPhase.ordinal() : -1);
+        hash = StateChecksum.mix(hash, fastDown);
+        hash = StateChecksum.mix(hash, hasGameStarted);
+        return StateChecksum.finish(hash);
+    }
+
+    private static long mixPiece(long hash, YipeePiece piece) {
+        if (piece == null) {
+            return StateChecksum.mix(hash, -1);
+        }
+        hash = StateChecksum.mix(hash, piece.row);
+        hash = StateChecksum.mix(hash, piece.column);
+        return StateChecksum.mix(hash, piece.getCells());
+    }
+
     private void resetPieceFallTimer() {
         pieceFallTimer = MAX_FALL_VALUE;
     }
@@ -235,11 +305,11 @@ public class YipeeGameBoard implements Disposable {
         piece = null;
     }
 
-    public void setPartnerCells(YipeeGameBoard partnerB, boolean isRight) throws JsonProcessingException {
-        setPartnerBoardState((YipeeGameBoardState) partnerB.exportGameState(), isRight);
+    public void setPartnerCells(YipeeGameBoard partnerB, boolean isRight) {
+        setPartnerBoardState(partnerB.getStateView(), isRight);
     }
 
-    public void setPartnerBoardState(YipeeGameBoardState partnerBoardState, boolean isRight) {
+    public void setPartnerBoardState(GameBoardState partnerBoardState, boolean isRight) {
         if (partnerBoardState != null) {
             this.partnerCells = partnerBoardState.getPlayerCells();
         }
@@ -249,6 +319,12 @@ public class YipeeGameBoard implements Disposable {
     public static class TestRandomBlockArray extends RandomUtil.RandomNumberArray {
         int[] testRandomNumbers;
 
+        /**
+         * No-arg constructor for Kryo, which sends this array with full board states.
+         */
+        private TestRandomBlockArray() {
+        }
+
         public TestRandomBlockArray(int byteLength, long seed, int maxValue) {
             super(byteLength, seed, maxValue);
             testRandomNumbers = new int[byteLength];
@@ -766,6 +842,9 @@ public class YipeeGameBoard implements Disposable {
     public void applyPlayerAction(PlayerAction action) {
         //TODO: handle yahoo add blocks
         if (action != null) {
+            if (applyControlAction(action.getActionType())) {
+                return;
+            }
             if (PlayerAction.ActionType.S_SPEED.equals(action.getActionType())) {
                 //TODO: handle speed special
             } else if (PlayerAction.ActionType.O_MEDUSA.equals(action.getActionType())) {
@@ -778,6 +857,61 @@ public class YipeeGameBoard implements Disposable {
         }
     }
 
+    /**
+     * Applies direct player input (move, cycle, fast drop) to the active piece.
+     *
+     * @return true if the action type was a control action
+     */
+    private boolean applyControlAction(PlayerAction.ActionType type) {
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+            case P_MOVE_LEFT:
+                movePieceLeft();
+                return true;
+            case P_MOVE_RIGHT:
+                movePieceRight();
+                return true;
+            case P_MOVE_DOWN_START:
+                startMoveDown();
+                return true;
+            case P_MOVE_DOWN_END:
+                stopMoveDown();
+                return true;
+            case P_CYCLE_UP:
+                cycleUp();
+                return true;
+            case P_CYCLE_DOWN:
+                cycleDown();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Applies several incoming powers in order, rescanning the board for matches once at
+     * the end instead of after every power.
+     *
+     * @param powers power block values
+     * @param count  number of entries of {@code powers} to apply
+     */
+    void handlePowers(int[] powers, int count) {
+        deferBoardUpdates = true;
+        try {
+            for (int i = 0; i < count; i++) {
+                handlePower(powers[i]);
+            }
+        } finally {
+            deferBoardUpdates = false;
+        }
+        if (boardUpdatePending) {
+            boardUpdatePending = false;
+            updateBoard();
+        }
+    }
+
     void handlePower(int i) {
         if (YipeeBlockEval.getPowerFlag(i) == 0) {
             switch (i) {
@@ -1305,6 +1439,14 @@ public class YipeeGameBoard implements Disposable {
         return idIndex;
     }
 
+    /**
+     * Remaining yahoo duration as stored, without rescanning the board
+     * the way {@link #getYahooDuration()} does.
+     */
+    int getPendingYahooDuration() {
+        return yahooDuration;
+    }
+
     // Possible UI function
     public void placeBlockAt(YipeePiece block, int x, int y) {
         this.piece = block;
@@ -1728,6 +1870,18 @@ public class YipeeGameBoard implements Disposable {
     public void updateGameState(float delta, GameBoardState state, GameBoardState partnerState) throws JsonProcessingException {
         importGameState(state, partnerState);
         update(delta);
+        stateView.stamp(TimeUtils.nanoTime());
+    }
+
+    /**
+     * Advances this board by one simulation step using its own state, without importing
+     * a snapshot first. This is the entry point for authoritative and replayed simulation.
+     *
+     * @param delta step length in seconds
+     */
+    public void tick(float delta) {
+        update(delta);
+        stateView.stamp(TimeUtils.nanoTime());
     }
 
     private void update(float delta) {
@@ -1747,7 +1901,7 @@ public class YipeeGameBoard implements Disposable {
                 break;
 
             case FALLING:
-                pieceFallTimer -= getCurrentFallRate();
+                pieceFallTimer -= getCurrentFallRate() * nominalSteps(delta);
                 if (pieceFallTimer <= 0) {
                     if (isDownCellFree(piece.column, piece.row)) {
                         movePieceDown();
@@ -1760,7 +1914,7 @@ public class YipeeGameBoard implements Disposable {
                 break;
 
             case LOCKING:
-                pieceLockTimer -= getCurrentFallRate();
+                pieceLockTimer -= getCurrentFallRate() * nominalSteps(delta);
                 if (pieceLockTimer <= 0) {
                     setNextPiece();
                     piece = null;
@@ -1932,6 +2086,14 @@ public class YipeeGameBoard implements Disposable {
         }
     }
 
+    /**
+     * Converts a step length into nominal steps so that fall and lock speed depend on
+     * simulated time rather than on the tick rate. A nominal step is exactly one.
+     */
+    private static float nominalSteps(float delta) {
+        return delta == NOMINAL_STEP ? 1f : delta * NOMINAL_TICK_RATE;
+    }
+
     private float getCurrentFallRate() {
         if (fastDown) {
             return FAST_FALL_RATE;
@@ -1941,6 +2103,9 @@ public class YipeeGameBoard implements Disposable {
     }
 
     private YipeeGameBoard getPartnerBoard() {
+        if (partnerBoard == null) {
+            partnerBoard = new YipeeGameBoard();
+        }
         if (hasPartner) {
             partnerBoard.setCells(partnerCells);
         }
@@ -1948,6 +2113,10 @@ public class YipeeGameBoard implements Disposable {
     }
 
     private void updateBoard() {
+        if (deferBoardUpdates) {
+            boardUpdatePending = true;
+            return;
+        }
         //System.out.println("flagging board matches");
         flagBoardMatches();
 
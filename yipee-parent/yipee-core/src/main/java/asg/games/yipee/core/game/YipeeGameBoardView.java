@@ -0,0 +1,403 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.game;
+
+import asg.games.yipee.common.game.CommonRandomNumberArray;
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.GamePhase;
+import asg.games.yipee.core.objects.YipeeClock;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
+import asg.games.yipee.core.objects.YipeePiece;
+import asg.games.yipee.core.tools.NetUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.Collections;
+
+/**
+ * A read-only {@link GameBoardState} that reads straight from a live {@link YipeeGameBoard}.
+ *
+ * <p>Unlike {@link YipeeGameBoard#exportGameState()}, obtaining a view copies nothing: each
+ * board owns a single view that the board re-stamps once per tick, and its getters read the
+ * live fields. Arrays are returned as-is and must not be modified by callers, and collections
+ * are wrapped unmodifiable (a small wrapper per call). The clock and pieces are only
+ * available as JSON through this interface; that JSON is built on first use and reused
+ * until the next tick stamps the view again, and {@link #getPieceObject()} and
+ * {@link #getNextPieceObject()} hand out the pieces themselves for callers that do not
+ * need the strings. All setters throw {@link UnsupportedOperationException}.
+ *
+ * <p>A view is only meaningful for the current tick. Anything that must outlive the tick
+ * (history, network queues, another thread) should call {@link #freeze()} to take a
+ * detached copy.
+ *
+ * @see YipeeGameBoard#getStateView()
+ */
+public final class YipeeGameBoardView implements GameBoardState {
+    private final YipeeGameBoard board;
+    private long stateTimeStamp;
+    private long previousStateTimeStamp;
+    private String gameClockJson;
+    private String pieceJson;
+    private String nextPieceJson;
+
+    YipeeGameBoardView(YipeeGameBoard board) {
+        this.board = board;
+    }
+
+    /**
+     * Records the end of a board tick, so all reads until the next tick report the same
+     * timestamp and share the same JSON.
+     */
+    void stamp(long timeStamp) {
+        this.previousStateTimeStamp = stateTimeStamp;
+        this.stateTimeStamp = timeStamp;
+        gameClockJson = null;
+        pieceJson = null;
+        nextPieceJson = null;
+    }
+
+    /**
+     * Returns the board's active piece without serializing it. Like the board's arrays, the
+     * piece is live and must not be modified.
+     */
+    public YipeePiece getPieceObject() {
+        return board.getPiece();
+    }
+
+    /**
+     * Returns the board's next piece without serializing it; must not be modified.
+     */
+    public YipeePiece getNextPieceObject() {
+        return board.getNextPiece();
+    }
+
+    /**
+     * Takes a durable copy of the board as it is now. The returned state shares no arrays
+     * or collections with the board and is safe to keep after the tick ends.
+     *
+     * @return a detached snapshot of the board
+     * @throws JsonProcessingException if the piece or clock cannot be serialized
+     */
+    public YipeeGameBoardState freeze() throws JsonProcessingException {
+        return ((YipeeGameBoardState) board.exportGameState()).deepCopy();
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return NetUtil.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("YipeeGameBoardView is read-only; use freeze() for a mutable copy.");
+    }
+
+    @Override
+    public GamePhase getCurrentPhase() {
+        return board.getCurrentPhase();
+    }
+
+    @Override
+    public int getBrokenBlockCount() {
+        return board.getBrokenBlockCount();
+    }
+
+    @Override
+    public boolean isFastDown() {
+        return board.isFastDown();
+    }
+
+    @Override
+    public int getCurrentBlockPointer() {
+        return board.getCurrentBlockPointer();
+    }
+
+    @Override
+    public CommonRandomNumberArray getNextBlocks() {
+        return board.getNextBlocks();
+    }
+
+    @Override
+    public int[] getCountOfBreaks() {
+        return board.getCountOfBreaks();
+    }
+
+    @Override
+    public int[] getPowersKeep() {
+        return board.getPowersKeep();
+    }
+
+    @Override
+    public String getGameClock() {
+        if (gameClockJson == null) {
+            gameClockJson = toJson(board.getGameClock());
+        }
+        return gameClockJson;
+    }
+
+    @Override
+    public boolean[] getIds() {
+        return board.getIds();
+    }
+
+    @Override
+    public int getIdIndex() {
+        return board.getIdIndex();
+    }
+
+    @Override
+    public boolean isDebug() {
+        return board.isDebug();
+    }
+
+    @Override
+    public String getName() {
+        return board.getName();
+    }
+
+    @Override
+    public String getPiece() {
+        if (pieceJson == null) {
+            pieceJson = toJson(board.getPiece());
+        }
+        return pieceJson;
+    }
+
+    @Override
+    public String getNextPiece() {
+        if (nextPieceJson == null) {
+            nextPieceJson = toJson(board.getNextPiece());
+        }
+        return nextPieceJson;
+    }
+
+    @Override
+    public int[][] getPlayerCells() {
+        return board.getCells();
+    }
+
+    @Override
+    public float getPieceFallTimer() {
+        return board.getPieceFallTimer();
+    }
+
+    @Override
+    public float getPieceLockTimer() {
+        return board.getPieceLockTimer();
+    }
+
+    @Override
+    public float getBlockAnimationTimer() {
+        return board.getBlockAnimationTimer();
+    }
+
+    @Override
+    public int getYahooDuration() {
+        return board.getPendingYahooDuration();
+    }
+
+    @Override
+    public boolean isPartnerRight() {
+        return board.isPartnerRight();
+    }
+
+    @Override
+    public Iterable<Integer> getPowers() {
+        return Collections.unmodifiableCollection(board.getPowers());
+    }
+
+    @Override
+    public Object getBrokenCells() {
+        return Collections.unmodifiableCollection(board.brokenCells);
+    }
+
+    @Override
+    public Iterable<Integer> getSpecialPieces() {
+        return Collections.unmodifiableCollection(board.getSpecialPieces());
+    }
+
+    @Override
+    public boolean isHasGameStarted() {
+        return board.hasGameStarted();
+    }
+
+    @Override
+    public int getBoardNumber() {
+        return board.getBoardNumber();
+    }
+
+    @Override
+    public long getCurrentStateTimeStamp() {
+        return stateTimeStamp;
+    }
+
+    @Override
+    public long getServerGameStartTime() {
+        YipeeClock clock = board.getGameClock();
+        return clock != null && clock.isRunning() ? clock.getStart() : 0;
+    }
+
+    @Override
+    public long getPreviousStateTimeStamp() {
+        return previousStateTimeStamp;
+    }
+
+    @Override
+    public Iterable<Object> getCellsToDrop() {
+        return Collections.<Object>unmodifiableCollection(board.cellsToDrop);
+    }
+
+    @Override
+    public int[][] getPartnerCells() {
+        return board.isHasPartner() ? board.getPartnerCells() : null;
+    }
+
+    @Override
+    public void setCurrentStateTimeStamp(long l) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCurrentPhase(GamePhase currentPhase) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBrokenBlockCount(int brokenBlockCount) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setFastDown(boolean fastDown) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCurrentBlockPointer(int currentBlockPointer) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setNextBlocks(CommonRandomNumberArray nextBlocks) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCountOfBreaks(int[] countOfBreaks) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPowersKeep(int[] powersKeep) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setGameClock(String gameClock) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setIds(boolean[] ids) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setIdIndex(int idIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setDebug(boolean debug) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setName(String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPiece(String piece) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setNextPiece(String yipeePiece) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPlayerCells(int[][] cells) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPieceFallTimer(float pieceFallTimer) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPieceLockTimer(float pieceLockTimer) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBlockAnimationTimer(float blockAnimationTimer) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setYahooDuration(int yahooDuration) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPartnerRight(boolean isPartnerRight) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPowers(Iterable<Integer> powers) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBrokenCells(Object brokenCells) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSpecialPieces(Iterable<Integer> specialPieces) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHasGameStarted(boolean hasGameStarted) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBoardNumber(int boardNumber) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPartnerCells(int[][] partnerCells) {
+        throw readOnly();
+    }
+}
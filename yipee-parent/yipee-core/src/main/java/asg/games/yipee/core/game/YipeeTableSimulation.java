@@ -0,0 +1,314 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.game;
+
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.GamePhase;
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.core.objects.YipeeBlockMove;
+import asg.games.yipee.core.objects.YipeeBrokenBlock;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Deterministic simulation of every board at one table.
+ *
+ * <p>The simulation owns one {@link YipeeGameBoard} per seat, all created from the same
+ * game seed. Each {@link #step(float)} refreshes partner cells for both seats of every
+ * team (seats {@code 2g} and {@code 2g + 1}), advances every board by one fixed step and
+ * increments the tick. Actions are applied between steps with
+ * {@link #applyAction(PlayerAction)}; uses of powers are handed to a
+ * {@link YipeeAttackRouter} and delivered to their target boards at the start of the next
+ * step, one pass per target.
+ *
+ * <p>The simulation also keeps a live count of surviving teams. A board is checked for
+ * death only right after it is stepped, the one place it can die, and each death and team
+ * elimination is reported once to an optional {@link EliminationListener}; whether the
+ * game is decided is then a constant-time {@link #isDecided()}.
+ *
+ * <p>Given the same seed, the same actions at the same ticks and the same step length,
+ * two simulations always produce identical boards. The authoritative server and replay
+ * both rely on this.
+ *
+ * <p>Instances are not thread-safe; a table must be stepped by one thread at a time.
+ */
+public class YipeeTableSimulation {
+    private static final Logger logger = LoggerFactory.getLogger(YipeeTableSimulation.class);
+
+    private final long seed;
+    private final YipeeGameBoard[] boards;
+    private final YipeeAttackRouter attackRouter;
+    private final boolean[] dead;
+    private final int[] livingPerTeam;
+    private int livingTeams;
+    private EliminationListener eliminationListener;
+    private int tick;
+
+    /**
+     * Creates a simulation with one fresh board per seat.
+     *
+     * @param seed       game seed shared by every board
+     * @param boardCount number of seats at the table
+     */
+    public YipeeTableSimulation(long seed, int boardCount) {
+        if (boardCount <= 0) {
+            throw new IllegalArgumentException("boardCount must be positive: " + boardCount);
+        }
+        this.seed = seed;
+        this.boards = new YipeeGameBoard[boardCount];
+        for (int i = 0; i < boardCount; i++) {
+            YipeeGameBoard board = new YipeeGameBoard(seed);
+            board.setBoardNumber(i);
+            boards[i] = board;
+        }
+        this.attackRouter = new YipeeAttackRouter(seed, boards);
+        this.dead = new boolean[boardCount];
+        this.livingPerTeam = new int[(boardCount + 1) / 2];
+        recountLiving();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public int getBoardCount() {
+        return boards.length;
+    }
+
+    /**
+     * Returns the live board for a seat.
+     *
+     * @param seat seat index
+     * @return the board, or {@code null} if the seat is out of range
+     */
+    public YipeeGameBoard getBoard(int seat) {
+        return seat >= 0 && seat < boards.length ? boards[seat] : null;
+    }
+
+    /**
+     * Starts every board.
+     */
+    public void begin() {
+        for (YipeeGameBoard board : boards) {
+            board.begin();
+        }
+    }
+
+    /**
+     * Sets the listener told about deaths and eliminations.
+     *
+     * @param eliminationListener the listener, or {@code null} for none
+     */
+    public void setEliminationListener(EliminationListener eliminationListener) {
+        this.eliminationListener = eliminationListener;
+    }
+
+    /**
+     * Returns the team a seat plays for.
+     */
+    public static int teamOf(int seat) {
+        return seat / 2;
+    }
+
+    public int getTeamCount() {
+        return livingPerTeam.length;
+    }
+
+    /**
+     * Returns the number of teams with at least one living board.
+     */
+    public int getLivingTeamCount() {
+        return livingTeams;
+    }
+
+    /**
+     * Returns whether a seat's board has died. A board's death is only noticed when it is
+     * stepped.
+     *
+     * @param seat seat index
+     * @return {@code true} if the board is dead or the seat is out of range
+     */
+    public boolean isDead(int seat) {
+        return seat < 0 || seat >= dead.length || dead[seat];
+    }
+
+    /**
+     * Returns whether the game is over: at most one team still has a living board, or, when
+     * the table has a single team, none does.
+     */
+    public boolean isDecided() {
+        return livingPerTeam.length > 1 ? livingTeams <= 1 : livingTeams == 0;
+    }
+
+    /**
+     * Returns the only team still alive.
+     *
+     * @return the team, or {@code -1} if none or several teams are alive
+     */
+    public int getWinningTeam() {
+        if (livingTeams != 1) {
+            return -1;
+        }
+        for (int team = 0; team < livingPerTeam.length; team++) {
+            if (livingPerTeam[team] > 0) {
+                return team;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the router holding this table's attacks.
+     */
+    public YipeeAttackRouter getAttackRouter() {
+        return attackRouter;
+    }
+
+    /**
+     * Applies a player action. Control actions go straight to the initiating board, whatever
+     * {@code targetBoardId} says, so a player only ever steers their own piece; uses of
+     * powers are queued on the {@link YipeeAttackRouter} and land on the next step.
+     *
+     * @param action the action to apply
+     * @return {@code true} if a board received or will receive the action
+     */
+    public boolean applyAction(PlayerAction action) {
+        if (action == null) {
+            return false;
+        }
+        if (YipeeAttackRouter.isRouted(action.getActionType())) {
+            return attackRouter.queue(action, tick);
+        }
+        YipeeGameBoard board = getBoard(action.getInitiatingBoardId());
+        if (board == null) {
+            logger.warn("Dropping action for unknown board: {}", action);
+            return false;
+        }
+        board.applyPlayerAction(action);
+        return true;
+    }
+
+    /**
+     * Delivers queued attacks, advances every board by one step and increments the tick,
+     * then reports any board that died during the step.
+     *
+     * @param delta step length in seconds
+     */
+    public void step(float delta) {
+        attackRouter.flush();
+        syncPartners();
+        for (YipeeGameBoard board : boards) {
+            board.tick(delta);
+        }
+        tick++;
+        for (int seat = 0; seat < boards.length; seat++) {
+            if (!dead[seat] && isOver(boards[seat])) {
+                markDead(seat);
+            }
+        }
+    }
+
+    private static boolean isOver(YipeeGameBoard board) {
+        return board.hasPlayerDied() || board.getCurrentPhase() == GamePhase.GAME_OVER;
+    }
+
+    private void markDead(int seat) {
+        dead[seat] = true;
+        int team = teamOf(seat);
+        boolean eliminated = --livingPerTeam[team] == 0;
+        if (eliminated) {
+            livingTeams--;
+        }
+        logger.debug("Seat {} died on tick {}{}", seat, tick, eliminated ? ", eliminating team " + team : "");
+        if (eliminationListener != null) {
+            eliminationListener.onPlayerDied(seat, tick);
+            if (eliminated) {
+                eliminationListener.onTeamEliminated(team, tick);
+            }
+        }
+    }
+
+    private void recountLiving() {
+        Arrays.fill(livingPerTeam, 0);
+        livingTeams = 0;
+        for (int seat = 0; seat < boards.length; seat++) {
+            YipeeGameBoard board = boards[seat];
+            dead[seat] = board.hasPlayerDied() || (board.hasGameStarted() && isOver(board));
+            if (!dead[seat] && livingPerTeam[teamOf(seat)]++ == 0) {
+                livingTeams++;
+            }
+        }
+    }
+
+    private void syncPartners() {
+        for (int left = 0; left + 1 < boards.length; left += 2) {
+            YipeeGameBoard leftBoard = boards[left];
+            YipeeGameBoard rightBoard = boards[left + 1];
+            leftBoard.setPartnerCells(rightBoard, true);
+            leftBoard.setHasPartner(true);
+            rightBoard.setPartnerCells(leftBoard, false);
+            rightBoard.setHasPartner(true);
+        }
+    }
+
+    /**
+     * Replaces every board with a previously captured state and sets the tick.
+     *
+     * <p>States must come from a board created with the same seed; the upcoming block
+     * sequence is taken from the seed rather than from the state.
+     *
+     * @param tick   tick at which the states were captured
+     * @param states one state per seat, indexed by seat
+     * @throws JsonProcessingException if a piece or clock in a state cannot be parsed
+     */
+    public void restore(int tick, YipeeGameBoardState[] states) throws JsonProcessingException {
+        if (states.length != boards.length) {
+            throw new IllegalArgumentException("Expected " + boards.length + " states but got " + states.length);
+        }
+        for (int i = 0; i < boards.length; i++) {
+            YipeeGameBoardState state = states[i];
+            YipeeGameBoard board = boards[i];
+            state.setNextBlocks(board.getNextBlocks());
+            board.importGameState(state, null);
+            board.setBrokenCells(new LinkedList<YipeeBrokenBlock>(state.mutableBrokenCells()));
+            board.setCellsToDrop(new LinkedList<YipeeBlockMove>(state.mutableCellsToDrop()));
+        }
+        this.tick = tick;
+        recountLiving();
+    }
+
+    /**
+     * Returns read-only views of every board, indexed by seat.
+     *
+     * @return live views, valid until the next step
+     */
+    public GameBoardState[] getStateViews() {
+        GameBoardState[] views = new GameBoardState[boards.length];
+        for (int i = 0; i < boards.length; i++) {
+            views[i] = boards[i].getStateView();
+        }
+        return views;
+    }
+}
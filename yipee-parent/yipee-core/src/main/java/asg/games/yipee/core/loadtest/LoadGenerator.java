@@ -0,0 +1,154 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.loadtest;
+
+import asg.games.yipee.core.server.TableTickScheduler;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.transport.LinkConditions;
+import asg.games.yipee.net.transport.LoopbackEndpoint;
+import asg.games.yipee.net.transport.LoopbackNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless load generator: runs a {@link LoadTestServer} and a crowd of
+ * {@link SyntheticClient}s over a {@link LoopbackNetwork}, then reports how the server kept up.
+ *
+ * <p>Client {@code i} sits at seat {@code i % seatsPerTable} of table
+ * {@code "load-table-" + i / seatsPerTable}, so tables fill in order and start as soon as
+ * they are full. Time is simulated: each step advances the network clock by one tick and
+ * then lets clients act, the server handle what arrived and tick its tables, and clients
+ * read the replies. Latencies therefore follow the link conditions exactly, while the
+ * server's tick times are measured on the real clock. A run is reproducible from its seed.
+ *
+ * <p>From the command line:
+ * <pre>
+ * LoadGenerator [clients=200] [seatsPerTable=8] [seconds=60] [mobile|perfect]
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    public static final double DEFAULT_ACTIONS_PER_SECOND = 3;
+
+    private final int clientCount;
+    private final int seatsPerTable;
+    private final LinkConditions conditions;
+    private final long seed;
+    private final int tickRate = TableTickScheduler.DEFAULT_TICK_RATE;
+    private double actionsPerSecond = DEFAULT_ACTIONS_PER_SECOND;
+
+    /**
+     * Creates a generator.
+     *
+     * @param clientCount   synthetic clients to connect
+     * @param seatsPerTable boards at each table
+     * @param conditions    conditions of every link, in both directions
+     * @param seed          seed for the clients' input, the link and the games
+     */
+    public LoadGenerator(int clientCount, int seatsPerTable, LinkConditions conditions, long seed) {
+        if (clientCount <= 0 || seatsPerTable <= 0) {
+            throw new IllegalArgumentException("Counts must be positive: " + clientCount + ", " + seatsPerTable);
+        }
+        this.clientCount = clientCount;
+        this.seatsPerTable = seatsPerTable;
+        this.conditions = conditions;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets how many actions each client sends per second on average, once its game starts.
+     */
+    public void setActionsPerSecond(double actionsPerSecond) {
+        this.actionsPerSecond = actionsPerSecond;
+    }
+
+    /**
+     * Runs the load for a span of simulated time.
+     *
+     * @param seconds simulated seconds to run
+     * @return what was measured
+     */
+    public LoadReport run(int seconds) {
+        AtomicLong now = new AtomicLong();
+        KryoPool pool = new KryoPool();
+        Random seeds = new Random(seed);
+        LoopbackNetwork network = new LoopbackNetwork(pool, now::get, seeds.nextLong());
+        LoadTestServer server = new LoadTestServer(pool, seatsPerTable, tickRate, seeds.nextLong());
+
+        List<SyntheticClient> clients = new ArrayList<>(clientCount);
+        List<LoopbackEndpoint> serverEnds = new ArrayList<>(clientCount);
+        for (int i = 0; i < clientCount; i++) {
+            LoopbackNetwork.Connection connection = network.connect(conditions, conditions);
+            server.accept(connection.getServer());
+            serverEnds.add(connection.getServer());
+            SyntheticClient client = new SyntheticClient(i, "load-table-" + i / seatsPerTable, i % seatsPerTable,
+                connection.getClient(), pool, now::get, seeds.nextLong(), tickRate, actionsPerSecond);
+            clients.add(client);
+            client.connect();
+        }
+
+        long ticks = (long) seconds * tickRate;
+        for (long tick = 1; tick <= ticks; tick++) {
+            now.set(tick * 1000 / tickRate);
+            for (SyntheticClient client : clients) {
+                client.tick();
+            }
+            server.poll();
+            server.tick();
+        }
+
+        Samples latencies = new Samples();
+        long actions = 0;
+        long acks = 0;
+        long updates = 0;
+        long bytesUp = 0;
+        long bytesDown = 0;
+        long lost = 0;
+        for (SyntheticClient client : clients) {
+            latencies.addAll(client.getLatencies());
+            actions += client.getActionsSent();
+            acks += client.getAcksReceived();
+            updates += client.getUpdatesReceived();
+            bytesUp += client.getEndpoint().getBytesSent();
+            lost += client.getEndpoint().getLost();
+        }
+        for (LoopbackEndpoint end : serverEnds) {
+            bytesDown += end.getBytesSent();
+            lost += end.getLost();
+        }
+        LoadReport report = new LoadReport(clientCount, seconds, server.getTableCount(), server.getGamesStarted(),
+            actions, acks, updates, latencies, server.getTickNanos(),
+            bytesUp / clientCount / seconds, bytesDown / clientCount / seconds, lost);
+        logger.info("{}", report);
+        return report;
+    }
+
+    public static void main(String[] args) {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seats = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        LinkConditions conditions = args.length > 3 && "perfect".equalsIgnoreCase(args[3])
+            ? LinkConditions.PERFECT
+            : LinkConditions.mobile();
+        System.out.println(new LoadGenerator(clients, seats, conditions, System.nanoTime()).run(seconds));
+    }
+}
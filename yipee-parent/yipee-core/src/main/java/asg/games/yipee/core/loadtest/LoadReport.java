@@ -0,0 +1,98 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.loadtest;
+
+import lombok.Getter;
+
+/**
+ * Immutable result of a {@link LoadGenerator} run.
+ *
+ * <p>Latencies are in milliseconds of simulated time, from sending an action to receiving
+ * the ack that covers it. Tick times are in nanoseconds of real time, for advancing every
+ * table once. Byte rates count everything put on the link, datagrams and reliable messages.
+ */
+@Getter
+public final class LoadReport {
+    /** Synthetic clients connected. */
+    private final int clients;
+    /** Simulated seconds run. */
+    private final int seconds;
+    /** Tables opened. */
+    private final int tables;
+    /** Games started, including restarts after a game ended. */
+    private final int gamesStarted;
+    /** Actions sent by all clients. */
+    private final long actionsSent;
+    /** Acks received by all clients. */
+    private final long acksReceived;
+    /** State updates and action broadcasts received by all clients. */
+    private final long updatesReceived;
+    /** Actions whose ack arrived before the run ended. */
+    private final int actionsAcked;
+    private final long latencyP50;
+    private final long latencyP90;
+    private final long latencyP99;
+    private final long latencyMax;
+    private final long tickP50Nanos;
+    private final long tickP99Nanos;
+    private final long tickMaxNanos;
+    /** Bytes each client sent per second, on average. */
+    private final long bytesUpPerClientSecond;
+    /** Bytes the server sent each client per second, on average. */
+    private final long bytesDownPerClientSecond;
+    /** Datagrams lost or dropped by the links, both directions. */
+    private final long datagramsLost;
+
+    LoadReport(int clients, int seconds, int tables, int gamesStarted, long actionsSent, long acksReceived,
+               long updatesReceived, Samples latencies, Samples tickNanos, long bytesUpPerClientSecond,
+               long bytesDownPerClientSecond, long datagramsLost) {
+        this.clients = clients;
+        this.seconds = seconds;
+        this.tables = tables;
+        this.gamesStarted = gamesStarted;
+        this.actionsSent = actionsSent;
+        this.acksReceived = acksReceived;
+        this.updatesReceived = updatesReceived;
+        this.actionsAcked = latencies.size();
+        this.latencyP50 = latencies.percentile(50);
+        this.latencyP90 = latencies.percentile(90);
+        this.latencyP99 = latencies.percentile(99);
+        this.latencyMax = latencies.max();
+        this.tickP50Nanos = tickNanos.percentile(50);
+        this.tickP99Nanos = tickNanos.percentile(99);
+        this.tickMaxNanos = tickNanos.max();
+        this.bytesUpPerClientSecond = bytesUpPerClientSecond;
+        this.bytesDownPerClientSecond = bytesDownPerClientSecond;
+        this.datagramsLost = datagramsLost;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadReport[clients=" + clients +
+            ", seconds=" + seconds +
+            ", tables=" + tables +
+            ", games=" + gamesStarted +
+            ", actions=" + actionsSent +
+            ", acked=" + actionsAcked +
+            ", acks=" + acksReceived +
+            ", updates=" + updatesReceived +
+            ", latencyMs p50/p90/p99/max=" + latencyP50 + "/" + latencyP90 + "/" + latencyP99 + "/" + latencyMax +
+            ", tickUs p50/p99/max=" + tickP50Nanos / 1000 + "/" + tickP99Nanos / 1000 + "/" + tickMaxNanos / 1000 +
+            ", bytesPerClientSecond up/down=" + bytesUpPerClientSecond + "/" + bytesDownPerClientSecond +
+            ", lost=" + datagramsLost +
+            "]";
+    }
+}
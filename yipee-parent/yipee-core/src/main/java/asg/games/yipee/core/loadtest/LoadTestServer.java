@@ -0,0 +1,306 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.loadtest;
+
+import asg.games.yipee.core.server.InterestPolicy;
+import asg.games.yipee.core.server.ServerGameManager;
+import asg.games.yipee.core.server.SessionTable;
+import asg.games.yipee.core.server.TableBroadcaster;
+import asg.games.yipee.core.tools.TimeUtils;
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.AbstractServerResponse;
+import asg.games.yipee.net.packets.ClientHandshakeRequest;
+import asg.games.yipee.net.packets.ClientHandshakeResponse;
+import asg.games.yipee.net.packets.GameStartRequest;
+import asg.games.yipee.net.packets.GameStartResponse;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.SeatSelectionRequest;
+import asg.games.yipee.net.packets.SeatSelectionResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.transport.BroadcastEncoder;
+import asg.games.yipee.net.transport.EncodedMessage;
+import asg.games.yipee.net.transport.LoopbackEndpoint;
+import asg.games.yipee.net.transport.SequencedChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal server front end for load tests: accepts {@link LoopbackEndpoint}s and takes each
+ * client through handshake, seating and game start onto real {@link ServerGameManager}
+ * tables, which it ticks itself.
+ *
+ * <p>Each connection gets a {@link SequencedChannel}, so action requests, action broadcasts
+ * and seat states travel as datagrams and everything else on the reliable stream, as they
+ * would in production. Action broadcasts and board states are encoded once per table
+ * with a {@link BroadcastEncoder} and the same bytes sent to every recipient. A table
+ * starts once every seat is taken and ready, and starts a new game whenever one ends so
+ * the load stays steady.
+ *
+ * <p>Everything runs on the thread calling {@link #poll()} and {@link #tick()}.
+ */
+public class LoadTestServer {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestServer.class);
+
+    private static final int COUNTDOWN_SECONDS = 3;
+
+    private final KryoPool pool;
+    private final BroadcastEncoder encoder;
+    private final int seatsPerTable;
+    private final int tickRate;
+    private final SessionTable sessions = new SessionTable();
+    private final List<Connection> connections = new ArrayList<>();
+    private final Map<Integer, Connection> bySessionHandle = new HashMap<>();
+    private final Map<String, Connection> bySessionId = new HashMap<>();
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+    private final Samples tickNanos = new Samples();
+    private long nextSeed;
+    private int gamesStarted;
+
+    /**
+     * Creates a server.
+     *
+     * @param pool          encodes and decodes datagrams
+     * @param seatsPerTable boards at each table
+     * @param tickRate      table ticks per second
+     * @param seed          seed of the first game; later games count up from it
+     */
+    public LoadTestServer(KryoPool pool, int seatsPerTable, int tickRate, long seed) {
+        this.pool = pool;
+        this.encoder = new BroadcastEncoder(pool);
+        this.seatsPerTable = seatsPerTable;
+        this.tickRate = tickRate;
+        this.nextSeed = seed;
+    }
+
+    /**
+     * Accepts a client connection.
+     *
+     * @param endpoint the server's end of the connection
+     */
+    public void accept(LoopbackEndpoint endpoint) {
+        Connection connection = new Connection(endpoint);
+        connection.channel = new SequencedChannel(pool, endpoint, endpoint::sendReliable,
+            message -> handle(connection, message));
+        connections.add(connection);
+    }
+
+    /**
+     * Handles every message that has arrived by now.
+     */
+    public void poll() {
+        for (Connection connection : connections) {
+            connection.endpoint.poll(message -> handle(connection, message));
+            connection.endpoint.pollDatagrams(connection.channel);
+        }
+    }
+
+    /**
+     * Advances every started table by one tick and records how long it took.
+     */
+    public void tick() {
+        float delta = 1f / tickRate;
+        long start = System.nanoTime();
+        for (Table table : tables.values()) {
+            if (table.started) {
+                table.manager.update(delta);
+            }
+        }
+        tickNanos.add(System.nanoTime() - start);
+
+        for (Table table : tables.values()) {
+            if (table.started && !table.manager.isRunning()) {
+                table.manager.reset(nextSeed);
+                startGame(table);
+            }
+        }
+    }
+
+    private void handle(Connection connection, Object message) {
+        if (message instanceof ClientHandshakeRequest) {
+            handshake(connection, (ClientHandshakeRequest) message);
+            return;
+        }
+        if (!(message instanceof AbstractClientRequest) || !sessions.resolve((AbstractClientRequest) message, connection)) {
+            logger.debug("Ignoring {} from {}", message, connection.endpoint.getName());
+            return;
+        }
+        if (message instanceof SeatSelectionRequest) {
+            seat(connection, (SeatSelectionRequest) message);
+        } else if (message instanceof GameStartRequest) {
+            ready(connection, (GameStartRequest) message);
+        } else if (message instanceof PlayerActionRequest && connection.table != null) {
+            PlayerActionRequest request = (PlayerActionRequest) message;
+            if (request.getPlayerAction() != null) {
+                SessionTable.Session session = sessions.getSession(request.getSessionHandle());
+                connection.table.manager.submit(request, connection.seat, session != null ? session.getClock() : null);
+            }
+        }
+    }
+
+    private void handshake(Connection connection, ClientHandshakeRequest request) {
+        String sessionId = "session-" + (bySessionId.size() + 1);
+        ClientHandshakeResponse response = sessions.handshake(request, connection, sessionId, request.getPlayerId());
+        connection.sessionHandle = response.getSessionHandle();
+        connection.sessionId = sessionId;
+        bySessionHandle.put(connection.sessionHandle, connection);
+        bySessionId.put(sessionId, connection);
+        connection.channel.send(response);
+    }
+
+    private void seat(Connection connection, SeatSelectionRequest request) {
+        Table table = tables.computeIfAbsent(request.getTableId(), this::newTable);
+        int seat = request.getSeatIndex();
+        SeatSelectionResponse response = new SeatSelectionResponse();
+        address(response, table);
+        response.setTableId(table.manager.getTableId());
+        response.setSeatIndex(seat);
+        if (connection.table != null || seat < 0 || seat >= seatsPerTable || table.seats[seat] != null) {
+            response.setMessage("Seat " + seat + " is not available");
+        } else {
+            table.seats[seat] = connection;
+            connection.table = table;
+            connection.seat = seat;
+            table.manager.getStateBroadcaster().addPlayer(connection.sessionId, seat);
+            response.setAccepted(true);
+        }
+        connection.channel.send(response);
+    }
+
+    private void ready(Connection connection, GameStartRequest request) {
+        Table table = connection.table;
+        if (table == null || table.started) {
+            return;
+        }
+        table.ready[connection.seat] = request.isReady();
+        for (int seat = 0; seat < seatsPerTable; seat++) {
+            if (table.seats[seat] == null || !table.ready[seat]) {
+                return;
+            }
+        }
+        table.manager.initialize(nextSeed, -1);
+        table.started = true;
+        startGame(table);
+    }
+
+    private void startGame(Table table) {
+        long seed = nextSeed++;
+        table.manager.startCountdown(COUNTDOWN_SECONDS);
+        gamesStarted++;
+        for (Connection player : table.seats) {
+            GameStartResponse response = new GameStartResponse();
+            address(response, table);
+            response.setAccepted(true);
+            response.setGameSeed(seed);
+            response.setCountdownSecondsRemaining(COUNTDOWN_SECONDS);
+            player.channel.send(response);
+        }
+        logger.debug("Game {} started at table {}", gamesStarted, table.manager.getTableId());
+    }
+
+    private Table newTable(String tableId) {
+        ServerGameManager manager = new ServerGameManager(tableId, seatsPerTable);
+        manager.setTickRate(tickRate);
+        sessions.bindGame(manager);
+        Table table = new Table(manager, seatsPerTable);
+        manager.setAckSink(ack -> {
+            Connection connection = bySessionHandle.get(ack.getSessionHandle());
+            if (connection != null) {
+                connection.channel.send(ack);
+            }
+        });
+        manager.setBroadcastSink(broadcast -> {
+            EncodedMessage shared = encoder.encode(broadcast);
+            try {
+                for (Connection player : table.seats) {
+                    if (player != null) {
+                        player.channel.send(shared);
+                    }
+                }
+            } finally {
+                shared.release();
+            }
+        });
+        manager.setStateBroadcaster(new TableBroadcaster(InterestPolicy.standard(), encoder, (sessionId, update) -> {
+            Connection connection = bySessionId.get(sessionId);
+            if (connection != null) {
+                connection.channel.send(update);
+            }
+        }));
+        return table;
+    }
+
+    private void address(AbstractServerResponse response, Table table) {
+        response.setGameHandle(table.manager.getGameHandle());
+        response.setServerTick(table.manager.getTick());
+        response.setServerTimestamp(TimeUtils.millis());
+        response.setTickRate(tickRate);
+    }
+
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    public int getGamesStarted() {
+        return gamesStarted;
+    }
+
+    /**
+     * Returns how many broadcasts and board states were encoded for sharing between
+     * recipients.
+     */
+    public long getSharedEncodes() {
+        return encoder.getEncodedCount();
+    }
+
+    /**
+     * Returns the time each tick took to advance every table, in nanoseconds.
+     */
+    Samples getTickNanos() {
+        return tickNanos;
+    }
+
+    private static final class Connection {
+        final LoopbackEndpoint endpoint;
+        SequencedChannel channel;
+        int sessionHandle;
+        String sessionId;
+        Table table;
+        int seat;
+
+        Connection(LoopbackEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static final class Table {
+        final ServerGameManager manager;
+        final Connection[] seats;
+        final boolean[] ready;
+        boolean started;
+
+        Table(ServerGameManager manager, int seatsPerTable) {
+            this.manager = manager;
+            this.seats = new Connection[seatsPerTable];
+            this.ready = new boolean[seatsPerTable];
+        }
+    }
+}
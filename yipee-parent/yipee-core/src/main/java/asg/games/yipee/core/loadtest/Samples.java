@@ -0,0 +1,67 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of long samples with percentiles. Not thread-safe.
+ */
+final class Samples {
+    private long[] values = new long[256];
+    private int size;
+    private boolean sorted = true;
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+        sorted = false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sample at a percentile by the nearest-rank method, or {@code 0} if there
+     * are no samples.
+     *
+     * @param percentile from 0 to 100
+     */
+    long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(values, 0, size);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return values[Math.min(Math.max(rank, 1), size) - 1];
+    }
+
+    long max() {
+        return percentile(100);
+    }
+
+    void addAll(Samples other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.values[i]);
+        }
+    }
+}
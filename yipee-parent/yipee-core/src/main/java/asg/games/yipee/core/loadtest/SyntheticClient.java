@@ -0,0 +1,215 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.loadtest;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.ClientHandshakeRequest;
+import asg.games.yipee.net.packets.ClientHandshakeResponse;
+import asg.games.yipee.net.packets.GameStartRequest;
+import asg.games.yipee.net.packets.GameStartResponse;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatSelectionRequest;
+import asg.games.yipee.net.packets.SeatSelectionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.transport.LoopbackEndpoint;
+import asg.games.yipee.net.transport.SequencedChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * A headless player: handshakes, takes an assigned seat, readies up and then sends a stream
+ * of control input shaped like a human's, measuring how long each action takes to be acked.
+ *
+ * <p>Inputs arrive at random at {@code actionsPerSecond} on average, mostly sideways moves
+ * and cycles, with occasional fast drops held for a few ticks and random attacks. An
+ * action's latency runs from sending it to receiving the first ack that covers its tick.
+ */
+final class SyntheticClient {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticClient.class);
+
+    private static final int DROP_HOLD_TICKS = 12;
+
+    enum State { CONNECTING, SEATING, READYING, PLAYING }
+
+    private final String playerId;
+    private final String tableId;
+    private final int seat;
+    private final LoopbackEndpoint endpoint;
+    private final SequencedChannel channel;
+    private final LongSupplier clock;
+    private final Random random;
+    private final int tickRate;
+    private final double actionChance;
+
+    private State state = State.CONNECTING;
+    private int sessionHandle;
+    private int gameHandle;
+    private long tick;
+    private long playFromTick;
+    private long dropEndTick = -1;
+    private final ArrayDeque<long[]> unacked = new ArrayDeque<>();
+
+    private final Samples latencies = new Samples();
+    private long actionsSent;
+    private long acksReceived;
+    private long updatesReceived;
+
+    SyntheticClient(int index, String tableId, int seat, LoopbackEndpoint endpoint, KryoPool pool,
+                    LongSupplier clock, long seed, int tickRate, double actionsPerSecond) {
+        this.playerId = "load-player-" + index;
+        this.tableId = tableId;
+        this.seat = seat;
+        this.endpoint = endpoint;
+        this.clock = clock;
+        this.random = new Random(seed);
+        this.tickRate = tickRate;
+        this.actionChance = actionsPerSecond / tickRate;
+        this.channel = new SequencedChannel(pool, endpoint, endpoint::sendReliable, this::onMessage);
+    }
+
+    void connect() {
+        ClientHandshakeRequest hello = new ClientHandshakeRequest();
+        hello.setClientId(playerId + "-client");
+        hello.setPlayerId(playerId);
+        send(hello);
+    }
+
+    /**
+     * Handles everything that has arrived, then acts for one client tick.
+     */
+    void tick() {
+        endpoint.poll(this::onMessage);
+        endpoint.pollDatagrams(channel);
+        tick++;
+        if (state != State.PLAYING || tick < playFromTick) {
+            return;
+        }
+        if (tick == dropEndTick) {
+            sendAction(PlayerAction.ActionType.P_MOVE_DOWN_END);
+        } else if (random.nextDouble() < actionChance) {
+            sendAction(nextAction());
+        }
+    }
+
+    private PlayerAction.ActionType nextAction() {
+        int roll = random.nextInt(100);
+        if (roll < 30) {
+            return PlayerAction.ActionType.P_MOVE_LEFT;
+        }
+        if (roll < 60) {
+            return PlayerAction.ActionType.P_MOVE_RIGHT;
+        }
+        if (roll < 75) {
+            return PlayerAction.ActionType.P_CYCLE_UP;
+        }
+        if (roll < 85) {
+            return PlayerAction.ActionType.P_CYCLE_DOWN;
+        }
+        if (roll < 95 && dropEndTick < tick) {
+            dropEndTick = tick + DROP_HOLD_TICKS;
+            return PlayerAction.ActionType.P_MOVE_DOWN_START;
+        }
+        return PlayerAction.ActionType.P_ATTACK_RANDOM;
+    }
+
+    private void sendAction(PlayerAction.ActionType type) {
+        PlayerActionRequest request = new PlayerActionRequest();
+        request.setClientTick(tick);
+        request.setPlayerAction(new PlayerAction(seat, type, seat, null));
+        send(request);
+        unacked.addLast(new long[]{tick, clock.getAsLong()});
+        actionsSent++;
+    }
+
+    private void send(AbstractClientRequest request) {
+        request.setSessionHandle(sessionHandle);
+        request.setGameHandle(gameHandle);
+        request.setTimestamp(clock.getAsLong());
+        channel.send(request);
+    }
+
+    private void onMessage(Object message) {
+        if (message instanceof PlayerActionResponse) {
+            onAck((PlayerActionResponse) message);
+        } else if (message instanceof SeatStateUpdateResponse || message instanceof TableActionsBroadcastResponse) {
+            updatesReceived++;
+        } else if (message instanceof ClientHandshakeResponse) {
+            sessionHandle = ((ClientHandshakeResponse) message).getSessionHandle();
+            SeatSelectionRequest request = new SeatSelectionRequest();
+            request.setTableId(tableId);
+            request.setSeatIndex(seat);
+            request.setPlayerId(playerId);
+            send(request);
+            state = State.SEATING;
+        } else if (message instanceof SeatSelectionResponse) {
+            SeatSelectionResponse response = (SeatSelectionResponse) message;
+            if (!response.isAccepted()) {
+                logger.warn("{} was refused seat {} at {}: {}", playerId, seat, tableId, response.getMessage());
+                return;
+            }
+            gameHandle = response.getGameHandle();
+            GameStartRequest request = new GameStartRequest();
+            request.setReady(true);
+            request.setTableId(tableId);
+            request.setPlayerId(playerId);
+            send(request);
+            state = State.READYING;
+        } else if (message instanceof GameStartResponse && ((GameStartResponse) message).isAccepted()) {
+            playFromTick = tick + (long) ((GameStartResponse) message).getCountdownSecondsRemaining() * tickRate;
+            state = State.PLAYING;
+        }
+    }
+
+    private void onAck(PlayerActionResponse ack) {
+        acksReceived++;
+        long now = clock.getAsLong();
+        while (!unacked.isEmpty() && unacked.peekFirst()[0] <= ack.getAckClientTick()) {
+            latencies.add(now - unacked.pollFirst()[1]);
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+
+    Samples getLatencies() {
+        return latencies;
+    }
+
+    long getActionsSent() {
+        return actionsSent;
+    }
+
+    long getAcksReceived() {
+        return acksReceived;
+    }
+
+    long getUpdatesReceived() {
+        return updatesReceived;
+    }
+
+    LoopbackEndpoint getEndpoint() {
+        return endpoint;
+    }
+}
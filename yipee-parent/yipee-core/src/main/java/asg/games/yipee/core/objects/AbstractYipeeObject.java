@@ -195,7 +195,7 @@ public abstract class AbstractYipeeObject implements YipeeObject {
      */
     protected void copyParent(YipeeObject o) {
         if (o != null) {
-            logger.debug("Copying parent attributes to: " + o);
+            logger.debug("Copying parent attributes to: {}", o);
             o.setId(null);
             o.setName(this.getName());
             long now = TimeUtils.millis();
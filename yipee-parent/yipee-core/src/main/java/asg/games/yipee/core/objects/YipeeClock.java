@@ -44,7 +44,7 @@ import java.util.Objects;
  */
 @Getter
 @Setter
-@JsonIgnoreProperties({"seconds", "minutes", "elapsedSeconds"})
+@JsonIgnoreProperties(value = {"seconds", "minutes", "elapsedSeconds"}, ignoreUnknown = true)
 public class YipeeClock extends AbstractYipeeObject {
     private static final Logger logger = LoggerFactory.getLogger(YipeeClock.class);
 
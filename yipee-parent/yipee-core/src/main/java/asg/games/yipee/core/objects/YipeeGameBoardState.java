@@ -25,6 +25,7 @@ import asg.games.yipee.core.game.YipeeGameBoard;
 import asg.games.yipee.core.tools.Util;
 import asg.games.yipee.core.tools.YipeePrinter;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -35,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a full snapshot of the state of a single game board in Yipee,
@@ -211,6 +213,56 @@ public class YipeeGameBoardState extends AbstractYipeeObject implements GameBoar
      */
     private int boardNumber;
 
+    /*
+     * Copy-on-write bookkeeping. A bit is set when this instance is the sole owner of the
+     * corresponding array or queue and may write to it in place; a cleared bit means the
+     * reference may be shared with another snapshot (or with a live board) and must be
+     * copied before the first write.
+     */
+    private static final int OWN_PLAYER_CELLS = 1;
+    private static final int OWN_PARTNER_CELLS = 1 << 1;
+    private static final int OWN_BROKEN_CELLS = 1 << 2;
+    private static final int OWN_CELLS_TO_DROP = 1 << 3;
+    private static final int OWN_POWERS = 1 << 4;
+    private static final int OWN_SPECIAL_PIECES = 1 << 5;
+    private static final int OWN_COUNT_OF_BREAKS = 1 << 6;
+    private static final int OWN_POWERS_KEEP = 1 << 7;
+    private static final int OWN_IDS = 1 << 8;
+    private static final int OWN_ALL = (1 << 9) - 1;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient int owned = OWN_BROKEN_CELLS | OWN_CELLS_TO_DROP | OWN_POWERS | OWN_SPECIAL_PIECES;
+
+    /** Rows of {@code playerCells} owned by this instance, one bit per row. */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient long ownedPlayerRows;
+
+    /** Rows of {@code partnerCells} owned by this instance, one bit per row. */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient long ownedPartnerRows;
+
+    /**
+     * Number of copy-on-write snapshots taken of this instance. Taking one only bumps this
+     * counter, so the instance learns that its structures are shared without anyone else
+     * writing its ownership bits.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private final transient AtomicInteger snapshots = new AtomicInteger();
+
+    /** Value of {@code snapshots} the ownership bits were last brought up to date with. */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient int ownedAsOf;
+
     public void setCurrentStateTimeStamp(long currentStateTimeStamp) {
         setPreviousStateTimeStamp(currentStateTimeStamp);
         this.currentStateTimeStamp = currentStateTimeStamp;
@@ -218,7 +270,9 @@ public class YipeeGameBoardState extends AbstractYipeeObject implements GameBoar
 
     @Override
     public void setPowers(Iterable<Integer> powers) {
+        syncOwnership();
         this.powers = Util.iterableToLinkeListQueue(powers);
+        owned |= OWN_POWERS;
     }
 
     @Override
@@ -228,7 +282,213 @@ public class YipeeGameBoardState extends AbstractYipeeObject implements GameBoar
 
     @Override
     public void setSpecialPieces(Iterable<Integer> specialPieces) {
+        syncOwnership();
         this.specialPieces = Util.iterableToLinkeListQueue(specialPieces);
+        owned |= OWN_SPECIAL_PIECES;
+    }
+
+    // Arrays handed in through setters belong to the caller, so they are treated as shared.
+
+    @Override
+    public void setPlayerCells(int[][] playerCells) {
+        syncOwnership();
+        this.playerCells = playerCells;
+        owned &= ~OWN_PLAYER_CELLS;
+        ownedPlayerRows = 0;
+    }
+
+    @Override
+    public void setPartnerCells(int[][] partnerCells) {
+        syncOwnership();
+        this.partnerCells = partnerCells;
+        owned &= ~OWN_PARTNER_CELLS;
+        ownedPartnerRows = 0;
+    }
+
+    public void setCellsToDrop(Queue<YipeeBlockMove> cellsToDrop) {
+        syncOwnership();
+        this.cellsToDrop = cellsToDrop;
+        owned &= ~OWN_CELLS_TO_DROP;
+    }
+
+    @Override
+    public void setCountOfBreaks(int[] countOfBreaks) {
+        syncOwnership();
+        this.countOfBreaks = countOfBreaks;
+        owned &= ~OWN_COUNT_OF_BREAKS;
+    }
+
+    @Override
+    public void setPowersKeep(int[] powersKeep) {
+        syncOwnership();
+        this.powersKeep = powersKeep;
+        owned &= ~OWN_POWERS_KEEP;
+    }
+
+    @Override
+    public void setIds(boolean[] ids) {
+        syncOwnership();
+        this.ids = ids;
+        owned &= ~OWN_IDS;
+    }
+
+    /**
+     * Writes a single cell of this board, first copying the affected row (and the row index)
+     * if they are still shared with another snapshot. Other rows stay shared.
+     *
+     * @param row   row index
+     * @param col   column index
+     * @param value new cell value
+     */
+    public void setPlayerCell(int row, int col, int value) {
+        syncOwnership();
+        if ((owned & OWN_PLAYER_CELLS) == 0) {
+            playerCells = playerCells.clone();
+            owned |= OWN_PLAYER_CELLS;
+        }
+        ownedPlayerRows = ownRow(playerCells, row, ownedPlayerRows);
+        playerCells[row][col] = value;
+    }
+
+    /**
+     * Writes a single cell of the partner board with the same copy-on-write rules as
+     * {@link #setPlayerCell(int, int, int)}.
+     *
+     * @param row   row index
+     * @param col   column index
+     * @param value new cell value
+     */
+    public void setPartnerCell(int row, int col, int value) {
+        syncOwnership();
+        if ((owned & OWN_PARTNER_CELLS) == 0) {
+            partnerCells = partnerCells.clone();
+            owned |= OWN_PARTNER_CELLS;
+        }
+        ownedPartnerRows = ownRow(partnerCells, row, ownedPartnerRows);
+        partnerCells[row][col] = value;
+    }
+
+    /**
+     * Gives up ownership of everything if a snapshot has been taken since the ownership bits
+     * were last checked. Called before the bits are read or changed.
+     */
+    private void syncOwnership() {
+        int taken = snapshots.get();
+        if (taken != ownedAsOf) {
+            owned = 0;
+            ownedPlayerRows = 0;
+            ownedPartnerRows = 0;
+            ownedAsOf = taken;
+        }
+    }
+
+    private static long ownRow(int[][] cells, int row, long ownedRows) {
+        // Rows past the mask width are never marked owned and are copied on every write
+        long bit = row < Long.SIZE ? 1L << row : 0L;
+        if ((ownedRows & bit) == 0) {
+            cells[row] = cells[row].clone();
+        }
+        return ownedRows | bit;
+    }
+
+    /**
+     * Returns the power queue for in-place modification, copying it first if it is shared.
+     *
+     * @return a queue owned by this snapshot
+     */
+    public Queue<Integer> mutablePowers() {
+        syncOwnership();
+        if ((owned & OWN_POWERS) == 0) {
+            powers = powers != null ? new LinkedList<>(powers) : new LinkedList<>();
+            owned |= OWN_POWERS;
+        }
+        return powers;
+    }
+
+    /**
+     * Returns the special piece queue for in-place modification, copying it first if it is shared.
+     *
+     * @return a queue owned by this snapshot
+     */
+    public Queue<Integer> mutableSpecialPieces() {
+        syncOwnership();
+        if ((owned & OWN_SPECIAL_PIECES) == 0) {
+            specialPieces = specialPieces != null ? new LinkedList<>(specialPieces) : new LinkedList<>();
+            owned |= OWN_SPECIAL_PIECES;
+        }
+        return specialPieces;
+    }
+
+    /**
+     * Returns the broken cell queue for in-place modification, copying it first if it is shared.
+     * Queued blocks themselves are shared and must be replaced rather than modified.
+     *
+     * @return a queue owned by this snapshot
+     */
+    public Queue<YipeeBrokenBlock> mutableBrokenCells() {
+        syncOwnership();
+        if ((owned & OWN_BROKEN_CELLS) == 0) {
+            brokenCells = brokenCells != null ? new LinkedList<>(brokenCells) : new LinkedList<>();
+            owned |= OWN_BROKEN_CELLS;
+        }
+        return brokenCells;
+    }
+
+    /**
+     * Returns the drop queue for in-place modification, copying it first if it is shared.
+     * Queued moves themselves are shared and must be replaced rather than modified.
+     *
+     * @return a queue owned by this snapshot
+     */
+    public Queue<YipeeBlockMove> mutableCellsToDrop() {
+        syncOwnership();
+        if ((owned & OWN_CELLS_TO_DROP) == 0) {
+            cellsToDrop = cellsToDrop != null ? new LinkedList<>(cellsToDrop) : new LinkedList<>();
+            owned |= OWN_CELLS_TO_DROP;
+        }
+        return cellsToDrop;
+    }
+
+    /**
+     * Returns the break counters for in-place modification, copying them first if they are shared.
+     *
+     * @return an array owned by this snapshot
+     */
+    public int[] mutableCountOfBreaks() {
+        syncOwnership();
+        if ((owned & OWN_COUNT_OF_BREAKS) == 0 && countOfBreaks != null) {
+            countOfBreaks = countOfBreaks.clone();
+            owned |= OWN_COUNT_OF_BREAKS;
+        }
+        return countOfBreaks;
+    }
+
+    /**
+     * Returns the kept power counters for in-place modification, copying them first if they are shared.
+     *
+     * @return an array owned by this snapshot
+     */
+    public int[] mutablePowersKeep() {
+        syncOwnership();
+        if ((owned & OWN_POWERS_KEEP) == 0 && powersKeep != null) {
+            powersKeep = powersKeep.clone();
+            owned |= OWN_POWERS_KEEP;
+        }
+        return powersKeep;
+    }
+
+    /**
+     * Returns the id table for in-place modification, copying it first if it is shared.
+     *
+     * @return an array owned by this snapshot
+     */
+    public boolean[] mutableIds() {
+        syncOwnership();
+        if ((owned & OWN_IDS) == 0 && ids != null) {
+            ids = ids.clone();
+            owned |= OWN_IDS;
+        }
+        return ids;
     }
 
     public Iterable<Object> getCellsToDrop() {
@@ -245,8 +505,40 @@ public class YipeeGameBoardState extends AbstractYipeeObject implements GameBoar
         }
     }
 
+    /**
+     * Returns a copy-on-write snapshot of this state.
+     *
+     * <p>The snapshot shares every array, cell row and queue with this instance, so taking
+     * one costs a single object allocation. Afterwards both instances treat the shared
+     * structures as read-only: writes made through {@link #setPlayerCell(int, int, int)},
+     * {@link #setPartnerCell(int, int, int)} or the {@code mutable*()} accessors copy just
+     * the affected row, array or queue first. Arrays returned by plain getters must not be
+     * written to directly.
+     *
+     * <p>Taking a snapshot does not write this instance's fields; it only bumps an atomic
+     * counter, which this instance checks before its next write. Any thread that may read
+     * this state may therefore also copy it.
+     *
+     * @return a snapshot sharing unmodified structure with this state
+     */
     @Override
     public YipeeGameBoardState copy() {
+        snapshots.incrementAndGet();
+        YipeeGameBoardState copy = shallowCopy();
+
+        // The copy owns nothing; this instance gives up its ownership on its next write
+        copy.owned = 0;
+        copy.ownedPlayerRows = 0;
+        copy.ownedPartnerRows = 0;
+
+        return copy;
+    }
+
+    /**
+     * Copies every field by reference, leaving ownership of the source untouched; the
+     * caller decides what the copy owns.
+     */
+    private YipeeGameBoardState shallowCopy() {
         YipeeGameBoardState copy = new YipeeGameBoardState();
 
         copyParent(copy);
@@ -283,13 +575,37 @@ public class YipeeGameBoardState extends AbstractYipeeObject implements GameBoar
         copy.name = this.name;
         copy.tick = this.tick;
         copy.boardNumber = this.boardNumber;
-
         return copy;
     }
 
+    /**
+     * Returns a copy-on-write snapshot holding only what is needed to draw the board:
+     * partner cells, the upcoming block sequence, the id table and the other bookkeeping
+     * used to simulate the board are left out. Suitable for boards a client only watches.
+     *
+     * @return a reduced snapshot sharing structure with this state
+     */
+    public YipeeGameBoardState summary() {
+        YipeeGameBoardState summary = copy();
+        summary.partnerCells = null;
+        summary.nextBlocks = null;
+        summary.ids = null;
+        summary.randomColumnIndices = null;
+        summary.countOfBreaks = null;
+        summary.powersKeep = null;
+        return summary;
+    }
+
+    /**
+     * Returns a fully independent copy of this state, including every queued block and move.
+     * Prefer {@link #copy()} unless the copy is handed to code that writes arrays directly.
+     *
+     * @return a copy sharing no mutable structure with this state
+     */
     @Override
     public YipeeGameBoardState deepCopy() {
-        YipeeGameBoardState copy = copy();
+        // Nothing ends up shared, so this instance keeps what it owns
+        YipeeGameBoardState copy = shallowCopy();
 
         copy.playerCells = StaticArrayUtils.copyIntMatrix(this.playerCells);
         copy.partnerCells = StaticArrayUtils.copyIntMatrix(this.partnerCells);
@@ -318,6 +634,10 @@ public class YipeeGameBoardState extends AbstractYipeeObject implements GameBoar
         copy.ids = (this.ids != null) ? Arrays.copyOf(this.ids, this.ids.length) : null;
         copy.randomColumnIndices = (this.randomColumnIndices != null) ? Arrays.copyOf(this.randomColumnIndices, this.randomColumnIndices.length) : null;
 
+        copy.owned = OWN_ALL;
+        copy.ownedPlayerRows = -1L;
+        copy.ownedPartnerRows = -1L;
+
         return copy;
     }
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.replay;
+
+import asg.games.yipee.common.game.PlayerAction;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of a replay journal file.
+ *
+ * <pre>
+ * header:   int magic, short version, short boardCount, int keyframeInterval,
+ *           float tickDelta, long seed, string tableId
+ * record:   byte type, int payloadLength, payload
+ * ACTION:   int tick, int initiatingBoardId, short actionType, int targetBoardId, data
+ * KEYFRAME: int tick, short boardCount, one encoded board state per seat
+ * DELTA:    int tick, float tickDelta
+ * </pre>
+ *
+ * <p>Ticks are stepped with the header's {@code tickDelta} until a DELTA record changes it.
+ *
+ * <p>The file is pre-allocated in zeroed chunks, so a record type of {@link #RECORD_END}
+ * marks the end of the journal.
+ */
+public final class JournalFormat {
+    static final int MAGIC = 0x59504A52; // "YPJR"
+    static final short VERSION = 2;
+
+    static final byte RECORD_END = 0;
+    static final byte RECORD_ACTION = 1;
+    static final byte RECORD_KEYFRAME = 2;
+    static final byte RECORD_TICK_DELTA = 3;
+
+    /** Bytes preceding every record payload: type and length. */
+    static final int RECORD_HEADER_BYTES = 1 + 4;
+
+    private static final PlayerAction.ActionType[] ACTION_TYPES = PlayerAction.ActionType.values();
+
+    private static final byte DATA_NULL = 0;
+    private static final byte DATA_INT = 1;
+    private static final byte DATA_STRING = 2;
+
+    private JournalFormat() {
+    }
+
+    /**
+     * Writes an action payload: the tick it applies to followed by the action.
+     */
+    public static void writeAction(ByteBuffer out, int tick, PlayerAction action) {
+        out.putInt(tick);
+        out.putInt(action.getInitiatingBoardId());
+        out.putShort((short) (action.getActionType() != null ? action.getActionType().ordinal() : -1));
+        out.putInt(action.getTargetBoardId());
+
+        Object data = action.getActionData();
+        if (data == null) {
+            out.put(DATA_NULL);
+        } else if (data instanceof Integer || data instanceof Short || data instanceof Byte) {
+            out.put(DATA_INT);
+            out.putInt(((Number) data).intValue());
+        } else {
+            out.put(DATA_STRING);
+            KeyframeCodec.writeString(out, String.valueOf(data));
+        }
+    }
+
+    /**
+     * Reads the action that follows a tick already consumed by the caller.
+     */
+    public static PlayerAction readAction(ByteBuffer in) {
+        int initiatingBoardId = in.getInt();
+        short type = in.getShort();
+        int targetBoardId = in.getInt();
+
+        Object data;
+        byte kind = in.get();
+        if (kind == DATA_INT) {
+            data = in.getInt();
+        } else if (kind == DATA_STRING) {
+            data = KeyframeCodec.readString(in);
+        } else {
+            data = null;
+        }
+        return new PlayerAction(initiatingBoardId, type >= 0 ? ACTION_TYPES[type] : null, targetBoardId, data);
+    }
+}
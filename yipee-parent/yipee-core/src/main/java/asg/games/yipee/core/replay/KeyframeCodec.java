@@ -0,0 +1,338 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.replay;
+
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.GamePhase;
+import asg.games.yipee.core.objects.YipeeBlockMove;
+import asg.games.yipee.core.objects.YipeeBrokenBlock;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Binary encoding of a single {@link GameBoardState} for replay keyframes and table
+ * migration.
+ *
+ * <p>Only simulated state is written. The upcoming block sequence is omitted because it
+ * is rebuilt from the game seed stored alongside the keyframe.
+ */
+public final class KeyframeCodec {
+    private static final GamePhase[] PHASES = GamePhase.values();
+    private static final int NULL_LENGTH = -1;
+
+    private KeyframeCodec() {
+    }
+
+    public static void write(ByteBuffer out, GameBoardState state) {
+        GamePhase phase = state.getCurrentPhase();
+        out.put((byte) (phase != null ? phase.ordinal() : -1));
+        out.putInt(state.getBoardNumber());
+        out.putInt(state.getBrokenBlockCount());
+        out.putInt(state.getCurrentBlockPointer());
+        out.putInt(state.getIdIndex());
+        out.putInt(state.getYahooDuration());
+        out.putFloat(state.getPieceFallTimer());
+        out.putFloat(state.getPieceLockTimer());
+        out.putFloat(state.getBlockAnimationTimer());
+        out.put(flags(state));
+
+        writeString(out, state.getName());
+        writeString(out, state.getPiece());
+        writeString(out, state.getNextPiece());
+        writeString(out, state.getGameClock());
+
+        writeMatrix(out, state.getPlayerCells());
+        writeMatrix(out, state.getPartnerCells());
+        writeInts(out, state.getCountOfBreaks());
+        writeInts(out, state.getPowersKeep());
+        writeBooleans(out, state.getIds());
+        writeQueue(out, state.getPowers());
+        writeQueue(out, state.getSpecialPieces());
+
+        int brokenCount = 0;
+        Iterable<?> broken = state.getBrokenCells() instanceof Iterable ? (Iterable<?>) state.getBrokenCells() : null;
+        int countPosition = out.position();
+        out.putInt(0);
+        if (broken != null) {
+            for (Object o : broken) {
+                YipeeBrokenBlock block = (YipeeBrokenBlock) o;
+                out.putInt(block.getBlock());
+                out.putInt(block.getRow());
+                out.putInt(block.getCol());
+                brokenCount++;
+            }
+        }
+        out.putInt(countPosition, brokenCount);
+
+        int dropCount = 0;
+        countPosition = out.position();
+        out.putInt(0);
+        if (state.getCellsToDrop() != null) {
+            for (Object o : state.getCellsToDrop()) {
+                YipeeBlockMove move = (YipeeBlockMove) o;
+                out.putInt(move.getCellId());
+                out.putInt(move.getBlock());
+                out.putInt(move.getCol());
+                out.putInt(move.getRow());
+                out.putInt(move.getTargetRow());
+                dropCount++;
+            }
+        }
+        out.putInt(countPosition, dropCount);
+    }
+
+    /**
+     * Copies what a keyframe carries into a detached state, as {@code read} after
+     * {@code write} would, without encoding anything. Arrays and queues are copied, so the
+     * result stays valid after the source board moves on.
+     *
+     * @param state the state, or a live view of a board
+     * @return a detached copy
+     */
+    public static YipeeGameBoardState copy(GameBoardState state) {
+        YipeeGameBoardState copy = new YipeeGameBoardState();
+        copy.setCurrentPhase(state.getCurrentPhase());
+        copy.setBoardNumber(state.getBoardNumber());
+        copy.setBrokenBlockCount(state.getBrokenBlockCount());
+        copy.setCurrentBlockPointer(state.getCurrentBlockPointer());
+        copy.setIdIndex(state.getIdIndex());
+        copy.setYahooDuration(state.getYahooDuration());
+        copy.setPieceFallTimer(state.getPieceFallTimer());
+        copy.setPieceLockTimer(state.getPieceLockTimer());
+        copy.setBlockAnimationTimer(state.getBlockAnimationTimer());
+        copy.setFastDown(state.isFastDown());
+        copy.setHasGameStarted(state.isHasGameStarted());
+        copy.setPartnerRight(state.isPartnerRight());
+        copy.setDebug(state.isDebug());
+
+        copy.setName(state.getName());
+        copy.setPiece(state.getPiece());
+        copy.setNextPiece(state.getNextPiece());
+        copy.setGameClock(state.getGameClock());
+
+        copy.setPlayerCells(copyMatrix(state.getPlayerCells()));
+        copy.setPartnerCells(copyMatrix(state.getPartnerCells()));
+        copy.setCountOfBreaks(copyInts(state.getCountOfBreaks()));
+        copy.setPowersKeep(copyInts(state.getPowersKeep()));
+        boolean[] ids = state.getIds();
+        copy.setIds(ids != null ? Arrays.copyOf(ids, ids.length) : null);
+        copyQueue(state.getPowers(), copy.mutablePowers());
+        copyQueue(state.getSpecialPieces(), copy.mutableSpecialPieces());
+
+        Queue<YipeeBrokenBlock> broken = copy.mutableBrokenCells();
+        if (state.getBrokenCells() instanceof Iterable) {
+            for (Object o : (Iterable<?>) state.getBrokenCells()) {
+                YipeeBrokenBlock block = (YipeeBrokenBlock) o;
+                broken.add(new YipeeBrokenBlock(block.getBlock(), block.getRow(), block.getCol()));
+            }
+        }
+        Queue<YipeeBlockMove> drops = copy.mutableCellsToDrop();
+        if (state.getCellsToDrop() != null) {
+            for (Object o : state.getCellsToDrop()) {
+                YipeeBlockMove move = (YipeeBlockMove) o;
+                drops.add(new YipeeBlockMove(move.getCellId(), move.getBlock(), move.getCol(), move.getRow(),
+                    move.getTargetRow()));
+            }
+        }
+        return copy;
+    }
+
+    public static YipeeGameBoardState read(ByteBuffer in) {
+        YipeeGameBoardState state = new YipeeGameBoardState();
+        int phase = in.get();
+        state.setCurrentPhase(phase >= 0 ? PHASES[phase] : null);
+        state.setBoardNumber(in.getInt());
+        state.setBrokenBlockCount(in.getInt());
+        state.setCurrentBlockPointer(in.getInt());
+        state.setIdIndex(in.getInt());
+        state.setYahooDuration(in.getInt());
+        state.setPieceFallTimer(in.getFloat());
+        state.setPieceLockTimer(in.getFloat());
+        state.setBlockAnimationTimer(in.getFloat());
+        byte flags = in.get();
+        state.setFastDown((flags & 1) != 0);
+        state.setHasGameStarted((flags & 2) != 0);
+        state.setPartnerRight((flags & 4) != 0);
+        state.setDebug((flags & 8) != 0);
+
+        state.setName(readString(in));
+        state.setPiece(readString(in));
+        state.setNextPiece(readString(in));
+        state.setGameClock(readString(in));
+
+        state.setPlayerCells(readMatrix(in));
+        state.setPartnerCells(readMatrix(in));
+        state.setCountOfBreaks(readInts(in));
+        state.setPowersKeep(readInts(in));
+        state.setIds(readBooleans(in));
+        readQueue(in, state.mutablePowers());
+        readQueue(in, state.mutableSpecialPieces());
+
+        Queue<YipeeBrokenBlock> broken = state.mutableBrokenCells();
+        for (int i = in.getInt(); i > 0; i--) {
+            broken.add(new YipeeBrokenBlock(in.getInt(), in.getInt(), in.getInt()));
+        }
+        Queue<YipeeBlockMove> drops = state.mutableCellsToDrop();
+        for (int i = in.getInt(); i > 0; i--) {
+            drops.add(new YipeeBlockMove(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt()));
+        }
+        return state;
+    }
+
+    private static byte flags(GameBoardState state) {
+        int flags = 0;
+        if (state.isFastDown()) flags |= 1;
+        if (state.isHasGameStarted()) flags |= 2;
+        if (state.isPartnerRight()) flags |= 4;
+        if (state.isDebug()) flags |= 8;
+        return (byte) flags;
+    }
+
+    public static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMatrix(ByteBuffer out, int[][] matrix) {
+        if (matrix == null) {
+            out.putInt(NULL_LENGTH);
+            return;
+        }
+        out.putInt(matrix.length);
+        for (int[] row : matrix) {
+            writeInts(out, row);
+        }
+    }
+
+    private static int[][] readMatrix(ByteBuffer in) {
+        int rows = in.getInt();
+        if (rows == NULL_LENGTH) {
+            return null;
+        }
+        int[][] matrix = new int[rows][];
+        for (int r = 0; r < rows; r++) {
+            matrix[r] = readInts(in);
+        }
+        return matrix;
+    }
+
+    private static void writeInts(ByteBuffer out, int[] values) {
+        if (values == null) {
+            out.putInt(NULL_LENGTH);
+            return;
+        }
+        out.putInt(values.length);
+        for (int value : values) {
+            out.putInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.getInt();
+        }
+        return values;
+    }
+
+    private static void writeBooleans(ByteBuffer out, boolean[] values) {
+        if (values == null) {
+            out.putInt(NULL_LENGTH);
+            return;
+        }
+        out.putInt(values.length);
+        for (boolean value : values) {
+            out.put((byte) (value ? 1 : 0));
+        }
+    }
+
+    private static boolean[] readBooleans(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        boolean[] values = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.get() != 0;
+        }
+        return values;
+    }
+
+    private static void writeQueue(ByteBuffer out, Iterable<Integer> values) {
+        int countPosition = out.position();
+        out.putInt(0);
+        int count = 0;
+        if (values != null) {
+            for (Integer value : values) {
+                out.putInt(value);
+                count++;
+            }
+        }
+        out.putInt(countPosition, count);
+    }
+
+    private static int[][] copyMatrix(int[][] matrix) {
+        if (matrix == null) {
+            return null;
+        }
+        int[][] copy = new int[matrix.length][];
+        for (int r = 0; r < matrix.length; r++) {
+            copy[r] = copyInts(matrix[r]);
+        }
+        return copy;
+    }
+
+    private static int[] copyInts(int[] values) {
+        return values != null ? Arrays.copyOf(values, values.length) : null;
+    }
+
+    private static void copyQueue(Iterable<Integer> values, Queue<Integer> target) {
+        if (values != null) {
+            for (Integer value : values) {
+                target.add(value);
+            }
+        }
+    }
+
+    private static void readQueue(ByteBuffer in, Queue<Integer> target) {
+        for (int i = in.getInt(); i > 0; i--) {
+            target.add(in.getInt());
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.replay;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.core.game.YipeeTableSimulation;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads a journal written by {@link ReplayJournalWriter} and rebuilds the table at any tick.
+ *
+ * <p>Opening a journal maps the file read-only and indexes its keyframes; actions stay in
+ * the mapped file. {@link #seek(int)} restores the nearest keyframe at or before the
+ * requested tick and re-simulates the recorded actions from there, so the cost of a seek
+ * is bounded by the keyframe interval rather than the length of the match.
+ */
+public final class ReplayJournalReader implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayJournalReader.class);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int boardCount;
+    private final int keyframeInterval;
+    private final float tickDelta;
+    private final long seed;
+    private final String tableId;
+    private final int recordsStart;
+    private final TreeMap<Integer, Integer> keyframeOffsets = new TreeMap<>();
+    private final TreeMap<Integer, Float> tickDeltas = new TreeMap<>();
+    private int lastTick;
+    private int actionCount;
+
+    private ReplayJournalReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        if (buffer.remaining() < 4 || buffer.getInt() != JournalFormat.MAGIC) {
+            throw new IOException("Not a replay journal");
+        }
+        short version = buffer.getShort();
+        if (version != JournalFormat.VERSION) {
+            throw new IOException("Unsupported replay journal version " + version);
+        }
+        this.boardCount = buffer.getShort();
+        this.keyframeInterval = buffer.getInt();
+        this.tickDelta = buffer.getFloat();
+        this.seed = buffer.getLong();
+        this.tableId = KeyframeCodec.readString(buffer);
+        this.recordsStart = buffer.position();
+        index();
+    }
+
+    /**
+     * Opens a journal for reading.
+     *
+     * @param file journal file
+     * @return an open reader
+     * @throws IOException if the file cannot be read or is not a journal
+     */
+    public static ReplayJournalReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new ReplayJournalReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void index() {
+        int position = recordsStart;
+        while (position + JournalFormat.RECORD_HEADER_BYTES <= buffer.limit()) {
+            byte type = buffer.get(position);
+            if (type == JournalFormat.RECORD_END) {
+                break;
+            }
+            int length = buffer.getInt(position + 1);
+            int tick = buffer.getInt(position + JournalFormat.RECORD_HEADER_BYTES);
+            if (type == JournalFormat.RECORD_KEYFRAME) {
+                keyframeOffsets.put(tick, position);
+            } else if (type == JournalFormat.RECORD_TICK_DELTA) {
+                tickDeltas.put(tick, buffer.getFloat(position + JournalFormat.RECORD_HEADER_BYTES + 4));
+            } else {
+                actionCount++;
+            }
+            lastTick = Math.max(lastTick, tick);
+            position += JournalFormat.RECORD_HEADER_BYTES + length;
+        }
+        logger.debug("Indexed replay of table {}: {} keyframes, {} actions, last tick {}",
+            tableId, keyframeOffsets.size(), actionCount, lastTick);
+    }
+
+    public String getTableId() {
+        return tableId;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    public float getTickDelta() {
+        return tickDelta;
+    }
+
+    /**
+     * Returns the step length used to advance from {@code tick} to the next tick.
+     *
+     * @param tick a tick
+     * @return step length in seconds
+     */
+    public float getTickDelta(int tick) {
+        Map.Entry<Integer, Float> change = tickDeltas.floorEntry(tick);
+        return change != null ? change.getValue() : tickDelta;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Returns the highest tick referenced by any record.
+     */
+    public int getLastTick() {
+        return lastTick;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeOffsets.size();
+    }
+
+    /**
+     * Rebuilds the table as it was at the start of {@code tick}, before that tick's actions.
+     *
+     * @param tick the tick to seek to
+     * @return a simulation positioned at {@code tick}
+     * @throws IOException if a keyframe cannot be decoded
+     */
+    public YipeeTableSimulation seek(int tick) throws IOException {
+        if (tick < 0) {
+            throw new IllegalArgumentException("tick must not be negative: " + tick);
+        }
+        YipeeTableSimulation simulation = new YipeeTableSimulation(seed, boardCount);
+
+        int position = recordsStart;
+        Map.Entry<Integer, Integer> keyframe = keyframeOffsets.floorEntry(tick);
+        if (keyframe != null) {
+            position = keyframe.getValue();
+            ByteBuffer in = recordPayload(position);
+            int keyframeTick = in.getInt();
+            YipeeGameBoardState[] states = new YipeeGameBoardState[in.getShort()];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = KeyframeCodec.read(in);
+            }
+            simulation.restore(keyframeTick, states);
+            position = nextRecord(position);
+        } else {
+            simulation.begin();
+        }
+
+        while (position + JournalFormat.RECORD_HEADER_BYTES <= buffer.limit()) {
+            byte type = buffer.get(position);
+            if (type == JournalFormat.RECORD_END) {
+                break;
+            }
+            if (type == JournalFormat.RECORD_ACTION) {
+                ByteBuffer in = recordPayload(position);
+                int actionTick = in.getInt();
+                if (actionTick >= tick) {
+                    break;
+                }
+                PlayerAction action = JournalFormat.readAction(in);
+                stepTo(simulation, actionTick);
+                simulation.applyAction(action);
+            } else if (buffer.getInt(position + JournalFormat.RECORD_HEADER_BYTES) >= tick) {
+                break;
+            }
+            position = nextRecord(position);
+        }
+        stepTo(simulation, tick);
+        return simulation;
+    }
+
+    private void stepTo(YipeeTableSimulation simulation, int tick) {
+        while (simulation.getTick() < tick) {
+            simulation.step(getTickDelta(simulation.getTick()));
+        }
+    }
+
+    private ByteBuffer recordPayload(int position) {
+        ByteBuffer in = buffer.duplicate();
+        ((Buffer) in).position(position + JournalFormat.RECORD_HEADER_BYTES);
+        ((Buffer) in).limit(position + JournalFormat.RECORD_HEADER_BYTES + buffer.getInt(position + 1));
+        return in;
+    }
+
+    private int nextRecord(int position) {
+        return position + JournalFormat.RECORD_HEADER_BYTES + buffer.getInt(position + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
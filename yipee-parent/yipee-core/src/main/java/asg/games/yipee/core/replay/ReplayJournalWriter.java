@@ -0,0 +1,308 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.replay;
+
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.core.game.YipeeTableSimulation;
+import asg.games.yipee.net.packets.GameStartResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped journal of a single table's match.
+ *
+ * <p>The journal holds the game seed, every {@link PlayerAction} tagged with the tick it
+ * was applied on, a binary keyframe of every board each {@code keyframeInterval} ticks,
+ * and any change of step length when the table's tick rate is adapted. Records are
+ * written straight into a mapped region of the file, so a match is never held on the
+ * heap and survives a process crash up to the last completed record.
+ * {@link ReplayJournalReader} can rebuild the table at any tick.
+ *
+ * <p>Within a tick, the keyframe must be recorded before any of that tick's actions;
+ * {@link #recordTick(YipeeTableSimulation)} does this when called at the start of each tick.
+ *
+ * <p>Writers are not thread-safe; a table's journal is written by its tick thread only.
+ */
+public final class ReplayJournalWriter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayJournalWriter.class);
+
+    /** Tick length used when a start response does not carry a tick rate. */
+    public static final float DEFAULT_TICK_DELTA = 1f / 60f;
+
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int INITIAL_SCRATCH = 16 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int boardCount;
+    private final int keyframeInterval;
+    private MappedByteBuffer mapped;
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH);
+    private int lastTick;
+    private int lastActionTick = -1;
+    private int lastKeyframeTick = -1;
+    private float tickDelta;
+
+    private ReplayJournalWriter(Path file, FileChannel channel, int boardCount, int keyframeInterval) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.boardCount = boardCount;
+        this.keyframeInterval = keyframeInterval;
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new journal, replacing any existing file.
+     *
+     * @param file             journal file
+     * @param tableId          identifier of the recorded table
+     * @param seed             game seed shared by every board
+     * @param boardCount       number of seats at the table
+     * @param tickDelta        simulation step length in seconds
+     * @param keyframeInterval ticks between keyframes
+     * @return an open writer
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static ReplayJournalWriter create(Path file, String tableId, long seed, int boardCount,
+                                             float tickDelta, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval must be positive: " + keyframeInterval);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ReplayJournalWriter writer;
+        try {
+            writer = new ReplayJournalWriter(file, channel, boardCount, keyframeInterval);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        ByteBuffer header = writer.scratch();
+        header.putInt(JournalFormat.MAGIC);
+        header.putShort(JournalFormat.VERSION);
+        header.putShort((short) boardCount);
+        header.putInt(keyframeInterval);
+        header.putFloat(tickDelta);
+        header.putLong(seed);
+        KeyframeCodec.writeString(header, tableId);
+        writer.append(header);
+        writer.tickDelta = tickDelta;
+        logger.debug("Opened replay journal {} for table {} (seed={})", file, tableId, seed);
+        return writer;
+    }
+
+    /**
+     * Creates a new journal for the game announced by a {@link GameStartResponse}.
+     *
+     * @param file             journal file
+     * @param start            the start response carrying game id, seed and tick rate
+     * @param boardCount       number of seats at the table
+     * @param keyframeInterval ticks between keyframes
+     * @return an open writer
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static ReplayJournalWriter create(Path file, GameStartResponse start, int boardCount,
+                                             int keyframeInterval) throws IOException {
+        float tickDelta = start.getTickRate() > 0 ? 1f / start.getTickRate() : DEFAULT_TICK_DELTA;
+        return create(file, start.getGameId(), start.getGameSeed(), boardCount, tickDelta, keyframeInterval);
+    }
+
+    /**
+     * Records an action applied on {@code tick}.
+     *
+     * @param tick   tick the action was applied on
+     * @param action the applied action
+     * @throws IOException if the journal cannot grow
+     */
+    public void recordAction(int tick, PlayerAction action) throws IOException {
+        checkTick(tick);
+        while (true) {
+            ByteBuffer buffer = scratch();
+            try {
+                buffer.put(JournalFormat.RECORD_ACTION);
+                buffer.putInt(0);
+                JournalFormat.writeAction(buffer, tick, action);
+                append(finishRecord(buffer));
+                lastActionTick = tick;
+                return;
+            } catch (BufferOverflowException | IndexOutOfBoundsException e) {
+                growScratch();
+            }
+        }
+    }
+
+    /**
+     * Returns the step length currently recorded for new ticks.
+     */
+    public float getTickDelta() {
+        return tickDelta;
+    }
+
+    /**
+     * Records that ticks from {@code tick} onwards are stepped with {@code delta} seconds,
+     * for tables whose tick rate changes during the match.
+     *
+     * @param tick  first tick stepped with the new length
+     * @param delta step length in seconds
+     * @throws IOException if the journal cannot grow
+     */
+    public void recordTickDelta(int tick, float delta) throws IOException {
+        checkTick(tick);
+        ByteBuffer buffer = scratch();
+        buffer.put(JournalFormat.RECORD_TICK_DELTA);
+        buffer.putInt(0);
+        buffer.putInt(tick);
+        buffer.putFloat(delta);
+        append(finishRecord(buffer));
+        tickDelta = delta;
+    }
+
+    /**
+     * Records a keyframe of every board at the start of {@code tick}.
+     *
+     * @param tick   tick the states belong to
+     * @param states one state per seat, indexed by seat
+     * @throws IOException if the journal cannot grow
+     */
+    public void recordKeyframe(int tick, GameBoardState[] states) throws IOException {
+        checkTick(tick);
+        if (tick <= lastActionTick) {
+            throw new IllegalStateException("Keyframe for tick " + tick + " must precede that tick's actions");
+        }
+        if (states.length != boardCount) {
+            throw new IllegalArgumentException("Expected " + boardCount + " states but got " + states.length);
+        }
+        while (true) {
+            ByteBuffer buffer = scratch();
+            try {
+                buffer.put(JournalFormat.RECORD_KEYFRAME);
+                buffer.putInt(0);
+                buffer.putInt(tick);
+                buffer.putShort((short) states.length);
+                for (GameBoardState state : states) {
+                    KeyframeCodec.write(buffer, state);
+                }
+                append(finishRecord(buffer));
+                lastKeyframeTick = tick;
+                return;
+            } catch (BufferOverflowException | IndexOutOfBoundsException e) {
+                growScratch();
+            }
+        }
+    }
+
+    /**
+     * Records a keyframe of the simulation if one is due at its current tick. Call this at
+     * the start of every tick, before applying that tick's actions.
+     *
+     * @param simulation the table being recorded
+     * @return {@code true} if a keyframe was written
+     * @throws IOException if the journal cannot grow
+     */
+    public boolean recordTick(YipeeTableSimulation simulation) throws IOException {
+        int tick = simulation.getTick();
+        if (tick % keyframeInterval != 0 || tick == lastKeyframeTick) {
+            return false;
+        }
+        recordKeyframe(tick, simulation.getStateViews());
+        return true;
+    }
+
+    /**
+     * Forces written records to the storage device.
+     */
+    public void flush() {
+        mapped.force();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of bytes of the journal in use.
+     */
+    public int size() {
+        return mapped.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void checkTick(int tick) {
+        if (tick < lastTick) {
+            throw new IllegalArgumentException("Tick " + tick + " is before last recorded tick " + lastTick);
+        }
+        lastTick = tick;
+    }
+
+    private ByteBuffer scratch() {
+        ((Buffer) scratch).clear();
+        return scratch;
+    }
+
+    private void growScratch() {
+        scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+    }
+
+    private static ByteBuffer finishRecord(ByteBuffer buffer) {
+        buffer.putInt(1, buffer.position() - JournalFormat.RECORD_HEADER_BYTES);
+        return buffer;
+    }
+
+    // Buffer methods are called through Buffer so the classes also run on a Java 8 runtime
+    private void append(ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).flip();
+        // Keep at least one zeroed byte after the last record as the end marker
+        int required = buffer.remaining() + 1;
+        if (mapped.remaining() < required) {
+            grow(mapped.position() + required);
+        }
+        mapped.put(buffer);
+    }
+
+    private void grow(long minimumCapacity) throws IOException {
+        long capacity = mapped.capacity();
+        while (capacity < minimumCapacity) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Replay journal " + file + " exceeds the maximum mappable size");
+        }
+        int position = mapped.position();
+        mapped.force();
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        ((Buffer) mapped).position(position);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+/**
+ * How much of a board's state is sent to a recipient.
+ */
+public enum BoardDetail {
+    /**
+     * The complete snapshot, everything needed to predict and reconcile the board. Sent for
+     * a player's own board and their partner's.
+     */
+    FULL,
+    /**
+     * What is needed to draw the board: cells, pieces, phase, powers and animation queues.
+     * Partner cells, the upcoming block sequence and other simulation bookkeeping are left
+     * out. Sent for boards a recipient only watches.
+     */
+    SUMMARY
+}
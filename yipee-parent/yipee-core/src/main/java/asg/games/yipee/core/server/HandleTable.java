@@ -0,0 +1,152 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Array-indexed table mapping small integer handles to values.
+ *
+ * <p>A handle packs a slot index with the slot's generation:
+ * {@code (index << GENERATION_BITS) | generation}. Resolving one is an array read and a
+ * comparison, with no hashing, and the handles of the first few thousand slots fit in a
+ * two-byte varint. Releasing a handle bumps its slot's generation, so a stale handle held
+ * by a client that has since disconnected resolves to nothing instead of to whoever
+ * reuses the slot. Handles are never zero, leaving zero free to mean "no handle".
+ *
+ * <p>{@link #resolve(int)} is lock-free and may be called from any thread; issuing and
+ * releasing are serialized.
+ *
+ * @param <T> the value type
+ */
+public class HandleTable<T> {
+    static final int GENERATION_BITS = 8;
+    private static final int GENERATION_MASK = (1 << GENERATION_BITS) - 1;
+    private static final int MAX_SLOTS = 1 << (31 - GENERATION_BITS);
+    private static final int INITIAL_SLOTS = 64;
+
+    private volatile AtomicReferenceArray<Entry<T>> entries = new AtomicReferenceArray<>(INITIAL_SLOTS);
+
+    // Guarded by this
+    private int[] generations = new int[INITIAL_SLOTS];
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeCount;
+    private int usedSlots;
+    private int size;
+
+    /**
+     * Stores a value under a new handle.
+     *
+     * @param value the value
+     * @return the handle, never zero
+     * @throws IllegalStateException if every slot is in use
+     */
+    public synchronized int issue(T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        int index;
+        if (freeCount > 0) {
+            index = freeSlots[--freeCount];
+        } else {
+            if (usedSlots == MAX_SLOTS) {
+                throw new IllegalStateException("Handle table is full: " + MAX_SLOTS + " slots");
+            }
+            index = usedSlots++;
+            if (index == generations.length) {
+                grow();
+            }
+        }
+        int generation = generations[index];
+        if (generation == 0) {
+            generation = generations[index] = 1;
+        }
+        int handle = (index << GENERATION_BITS) | generation;
+        entries.set(index, new Entry<>(handle, value));
+        size++;
+        return handle;
+    }
+
+    /**
+     * Returns the value stored under a handle.
+     *
+     * @param handle the handle
+     * @return the value, or {@code null} if the handle is zero, unknown or released
+     */
+    public T resolve(int handle) {
+        if (handle <= 0) {
+            return null;
+        }
+        AtomicReferenceArray<Entry<T>> current = entries;
+        int index = handle >>> GENERATION_BITS;
+        if (index >= current.length()) {
+            return null;
+        }
+        Entry<T> entry = current.get(index);
+        return entry != null && entry.handle == handle ? entry.value : null;
+    }
+
+    /**
+     * Removes a handle. Its slot is reused by a later {@link #issue} under a different
+     * handle.
+     *
+     * @param handle the handle
+     * @return the value that was stored, or {@code null} if the handle was not valid
+     */
+    public synchronized T release(int handle) {
+        T value = resolve(handle);
+        if (value == null) {
+            return null;
+        }
+        int index = handle >>> GENERATION_BITS;
+        entries.set(index, null);
+        int generation = (generations[index] + 1) & GENERATION_MASK;
+        generations[index] = generation == 0 ? 1 : generation;
+        freeSlots[freeCount++] = index;
+        size--;
+        return value;
+    }
+
+    /**
+     * Returns how many handles are currently valid.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void grow() {
+        int capacity = Math.min(generations.length * 2, MAX_SLOTS);
+        AtomicReferenceArray<Entry<T>> current = entries;
+        AtomicReferenceArray<Entry<T>> larger = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < current.length(); i++) {
+            larger.set(i, current.get(i));
+        }
+        generations = Arrays.copyOf(generations, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        entries = larger;
+    }
+
+    private static final class Entry<T> {
+        final int handle;
+        final T value;
+
+        Entry(int handle, T value) {
+            this.handle = handle;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects one tick's worth of {@link PlayerActionRequest}s for a table and reduces them to
+ * the smallest list of actions with the same effect on the boards.
+ *
+ * <p>Requests are ordered by client tick (arrival order breaks ties). For each board, runs of
+ * control input are then collapsed:
+ * <ul>
+ *     <li>{@code P_CYCLE_UP}/{@code P_CYCLE_DOWN}: a piece has three blocks, so only the net
+ *     rotation modulo three is kept, as at most one cycle action;</li>
+ *     <li>{@code P_MOVE_DOWN_START}/{@code P_MOVE_DOWN_END}: these only set the fast-drop flag
+ *     that the next step reads, so only the last one is kept;</li>
+ *     <li>{@code P_MOVE_LEFT}/{@code P_MOVE_RIGHT}: kept in order, since a blocked move makes
+ *     them non-cancelling.</li>
+ * </ul>
+ * Cycles and the fast-drop flag commute with sideways moves, so the collapsed run is emitted
+ * as the moves followed by the cycle and drop actions. Any other action on a board (powers,
+ * attacks) ends that board's run and keeps its position.
+ *
+ * <p>A batch is owned by the tick thread and reused from tick to tick.
+ */
+public final class InputBatch {
+    private static final Comparator<PlayerActionRequest> BY_CLIENT_TICK =
+        Comparator.comparingLong(PlayerActionRequest::getClientTick);
+
+    private final int boardCount;
+    private final List<PlayerActionRequest> requests = new ArrayList<>();
+    private final List<PlayerAction> actions = new ArrayList<>();
+    private final int[] netCycles;
+    private final PlayerAction[] lastCycleUp;
+    private final PlayerAction[] lastCycleDown;
+    private final PlayerAction[] lastDown;
+
+    /**
+     * Creates a batch for a table.
+     *
+     * @param boardCount number of seats at the table
+     */
+    public InputBatch(int boardCount) {
+        this.boardCount = boardCount;
+        this.netCycles = new int[boardCount];
+        this.lastCycleUp = new PlayerAction[boardCount];
+        this.lastCycleDown = new PlayerAction[boardCount];
+        this.lastDown = new PlayerAction[boardCount];
+    }
+
+    /**
+     * Adds a request to this tick's batch.
+     *
+     * @param request a request carrying an action
+     */
+    public void add(PlayerActionRequest request) {
+        requests.add(request);
+    }
+
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+
+    /**
+     * Returns the requests in this batch, in client tick order once {@link #resolve()} has run.
+     */
+    public List<PlayerActionRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Orders and collapses the batch.
+     *
+     * @return the actions to apply, in order; valid until the next {@link #clear()}
+     */
+    public List<PlayerAction> resolve() {
+        actions.clear();
+        Collections.sort(requests, BY_CLIENT_TICK);
+
+        for (PlayerActionRequest request : requests) {
+            PlayerAction action = request.getPlayerAction();
+            int seat = seatOf(action);
+            if (seat < 0) {
+                actions.add(action);
+                continue;
+            }
+            PlayerAction.ActionType type = action.getActionType();
+            if (type == null) {
+                actions.add(action);
+                continue;
+            }
+            switch (type) {
+                case P_CYCLE_UP:
+                    netCycles[seat] = (netCycles[seat] + 1) % 3;
+                    lastCycleUp[seat] = action;
+                    break;
+                case P_CYCLE_DOWN:
+                    netCycles[seat] = (netCycles[seat] + 2) % 3;
+                    lastCycleDown[seat] = action;
+                    break;
+                case P_MOVE_DOWN_START:
+                case P_MOVE_DOWN_END:
+                    lastDown[seat] = action;
+                    break;
+                case P_MOVE_LEFT:
+                case P_MOVE_RIGHT:
+                    actions.add(action);
+                    break;
+                default:
+                    flush(seat);
+                    actions.add(action);
+                    break;
+            }
+        }
+        for (int seat = 0; seat < boardCount; seat++) {
+            flush(seat);
+        }
+        return actions;
+    }
+
+    /**
+     * Empties the batch for the next tick.
+     */
+    public void clear() {
+        requests.clear();
+        actions.clear();
+    }
+
+    private void flush(int seat) {
+        int cycles = netCycles[seat];
+        if (cycles == 1) {
+            actions.add(cycleAction(seat, PlayerAction.ActionType.P_CYCLE_UP, lastCycleUp[seat], lastCycleDown[seat]));
+        } else if (cycles == 2) {
+            actions.add(cycleAction(seat, PlayerAction.ActionType.P_CYCLE_DOWN, lastCycleDown[seat], lastCycleUp[seat]));
+        }
+        if (lastDown[seat] != null) {
+            actions.add(lastDown[seat]);
+        }
+        netCycles[seat] = 0;
+        lastCycleUp[seat] = null;
+        lastCycleDown[seat] = null;
+        lastDown[seat] = null;
+    }
+
+    private static PlayerAction cycleAction(int seat, PlayerAction.ActionType type, PlayerAction same, PlayerAction other) {
+        if (same != null) {
+            return same;
+        }
+        // Two cycles one way are one cycle the other way; reuse the other action's boards
+        int initiating = other != null ? other.getInitiatingBoardId() : seat;
+        int target = other != null ? other.getTargetBoardId() : seat;
+        return new PlayerAction(initiating, type, target, null);
+    }
+
+    /**
+     * Resolves the seat an action applies to, the same way
+     * {@link asg.games.yipee.core.game.YipeeTableSimulation#applyAction(PlayerAction)} does.
+     */
+    private int seatOf(PlayerAction action) {
+        int initiating = action.getInitiatingBoardId();
+        return initiating >= 0 && initiating < boardCount ? initiating : -1;
+    }
+}
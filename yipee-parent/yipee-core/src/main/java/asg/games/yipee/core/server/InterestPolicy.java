@@ -0,0 +1,107 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+/**
+ * Decides how often, and in how much detail, each recipient at a table hears about each
+ * board.
+ *
+ * <p>Recipients are identified by their seat, or {@link #WATCHER} for watchers. A seated
+ * player's own board and their partner's (seats {@code 2g} and {@code 2g + 1}) are sent
+ * every table tick in {@link BoardDetail#FULL}; the other teams' boards are sent every
+ * {@code opponentInterval} ticks and watchers get every board every
+ * {@code watcherInterval} ticks, both as {@link BoardDetail#SUMMARY}.
+ *
+ * <p>Policies are immutable and may be shared between tables.
+ */
+public class InterestPolicy {
+    /** Seat value identifying a watcher. */
+    public static final int WATCHER = -1;
+
+    /** Every recipient gets every board, in full, every tick. */
+    public static final InterestPolicy FULL_FAN_OUT = new InterestPolicy(1, 1, BoardDetail.FULL);
+
+    private final int opponentInterval;
+    private final int watcherInterval;
+    private final BoardDetail remoteDetail;
+
+    /**
+     * Creates a policy.
+     *
+     * @param opponentInterval table ticks between updates of another team's board
+     * @param watcherInterval  table ticks between updates of any board for a watcher
+     * @param remoteDetail     detail sent for boards other than the recipient's team
+     */
+    public InterestPolicy(int opponentInterval, int watcherInterval, BoardDetail remoteDetail) {
+        if (opponentInterval <= 0 || watcherInterval <= 0) {
+            throw new IllegalArgumentException("Intervals must be positive: " + opponentInterval + ", " + watcherInterval);
+        }
+        this.opponentInterval = opponentInterval;
+        this.watcherInterval = watcherInterval;
+        this.remoteDetail = remoteDetail;
+    }
+
+    /**
+     * Returns the default policy: opponents at a third of the table rate, watchers at a
+     * sixth, both as summaries.
+     */
+    public static InterestPolicy standard() {
+        return new InterestPolicy(3, 6, BoardDetail.SUMMARY);
+    }
+
+    /**
+     * Returns the table ticks between updates of {@code boardSeat} for a recipient.
+     *
+     * @param recipientSeat the recipient's seat, or {@link #WATCHER}
+     * @param boardSeat     the board's seat
+     * @return interval of at least one
+     */
+    public int intervalFor(int recipientSeat, int boardSeat) {
+        if (recipientSeat == WATCHER) {
+            return watcherInterval;
+        }
+        return isTeammate(recipientSeat, boardSeat) ? 1 : opponentInterval;
+    }
+
+    /**
+     * Returns the detail of {@code boardSeat} sent to a recipient.
+     *
+     * @param recipientSeat the recipient's seat, or {@link #WATCHER}
+     * @param boardSeat     the board's seat
+     * @return the detail level
+     */
+    public BoardDetail detailFor(int recipientSeat, int boardSeat) {
+        return recipientSeat != WATCHER && isTeammate(recipientSeat, boardSeat) ? BoardDetail.FULL : remoteDetail;
+    }
+
+    /**
+     * Returns whether {@code boardSeat} is due for a recipient on {@code tick}. Boards are
+     * staggered by seat so a recipient's reduced-rate boards do not all fall on one tick.
+     *
+     * @param recipientSeat the recipient's seat, or {@link #WATCHER}
+     * @param boardSeat     the board's seat
+     * @param tick          the table tick
+     * @return {@code true} if an update should be sent
+     */
+    public boolean isDue(int recipientSeat, int boardSeat, long tick) {
+        int interval = intervalFor(recipientSeat, boardSeat);
+        return interval == 1 || (tick + boardSeat) % interval == 0;
+    }
+
+    private static boolean isTeammate(int recipientSeat, int boardSeat) {
+        return recipientSeat / 2 == boardSeat / 2;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded, lock-free multi-producer / single-consumer queue.
+ *
+ * <p>Any number of threads may {@link #offer(Object)} concurrently; each offer is a single
+ * atomic swap. Only one thread, the consumer, may call {@link #poll()}, {@link #drain(Consumer)}
+ * or {@link #isEmpty()}; for a table that is the thread ticking it.
+ *
+ * <p>An element whose offer is still in progress may not yet be visible to the consumer;
+ * it is picked up by a later poll. Elements from a single producer are always seen in
+ * the order they were offered.
+ *
+ * @param <E> element type
+ */
+public final class MpscLinkedQueue<E> {
+
+    private static final class Node<E> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+        E value;
+        volatile Node<E> next;
+
+        Node(E value) {
+            this.value = value;
+        }
+
+        void lazySetNext(Node<E> node) {
+            NEXT.lazySet(this, node);
+        }
+    }
+
+    /** Most recently offered node; swapped by producers. */
+    private final AtomicReference<Node<E>> producerNode;
+    /** Last consumed node (a sentinel); touched only by the consumer. */
+    private Node<E> consumerNode;
+
+    public MpscLinkedQueue() {
+        Node<E> sentinel = new Node<>(null);
+        this.consumerNode = sentinel;
+        this.producerNode = new AtomicReference<>(sentinel);
+    }
+
+    /**
+     * Adds an element. Safe to call from any thread.
+     *
+     * @param element the element, not {@code null}
+     */
+    public void offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        Node<E> node = new Node<>(element);
+        Node<E> previous = producerNode.getAndSet(node);
+        previous.lazySetNext(node);
+    }
+
+    /**
+     * Removes the oldest visible element. Consumer thread only.
+     *
+     * @return the element, or {@code null} if none is visible
+     */
+    public E poll() {
+        Node<E> next = consumerNode.next;
+        if (next == null) {
+            return null;
+        }
+        E value = next.value;
+        next.value = null;
+        consumerNode = next;
+        return value;
+    }
+
+    /**
+     * Removes every visible element, passing each to {@code consumer} in order. Consumer thread only.
+     *
+     * @param consumer receives the drained elements
+     * @return the number of elements drained
+     */
+    public int drain(Consumer<? super E> consumer) {
+        int count = 0;
+        E value;
+        while ((value = poll()) != null) {
+            consumer.accept(value);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether no element is visible. Consumer thread only.
+     */
+    public boolean isEmpty() {
+        return consumerNode.next == null;
+    }
+
+    /**
+     * Discards every visible element. Consumer thread only.
+     */
+    public void clear() {
+        while (poll() != null) {
+            // discard
+        }
+    }
+}
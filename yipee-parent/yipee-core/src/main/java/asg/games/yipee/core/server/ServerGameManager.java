@@ -0,0 +1,714 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.common.enums.TableUpdateType;
+import asg.games.yipee.common.enums.YipeeSerializable;
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.core.game.EliminationListener;
+import asg.games.yipee.core.game.YipeeAttackRouter;
+import asg.games.yipee.core.game.YipeeGameBoard;
+import asg.games.yipee.core.game.YipeeTableSimulation;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
+import asg.games.yipee.core.replay.ReplayJournalWriter;
+import asg.games.yipee.core.tools.TimeUtils;
+import asg.games.yipee.net.errors.YipeeBadRequestException;
+import asg.games.yipee.net.game.ClockSync;
+import asg.games.yipee.net.game.GameManager;
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.AbstractServerResponse;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Authoritative, server-side {@link GameManager} for a single table.
+ *
+ * <p>The manager owns a {@link YipeeTableSimulation} with one board per seat. Player
+ * actions may be submitted from any thread (typically network I/O threads); they are
+ * queued on a lock-free {@link MpscLinkedQueue} and drained at the start of the next
+ * {@link #update(float)}. Every board is therefore only ever mutated by the single shard
+ * thread that ticks the table, and the engine needs no locks.
+ *
+ * <p>Each tick's requests are collected into an {@link InputBatch}, which orders them by
+ * client tick and collapses redundant input before the surviving actions are applied in a
+ * single pass. A request whose action is not initiated by the seat of the session that
+ * sent it, or that names a power instead of spending the one at the front of its queue, is
+ * rejected before the batch is resolved. Every client that sent input during the tick then receives one
+ * {@link PlayerActionResponse} acknowledging all of it, with its rejected requests counted
+ * separately so they do not fail the rest of the batch. Attacks issued during the tick are
+ * routed by the simulation and announced to the whole table in a single
+ * {@link TableActionsBroadcastResponse}, and board states go out through an optional
+ * {@link TableBroadcaster} that applies interest management.
+ *
+ * <p>Deaths are reported by the simulation as they happen, so the end of the game is known
+ * in constant time on the tick the last opposing team dies; the optional
+ * {@link TableEventListener} hears about both.
+ *
+ * <p>Board states returned by this manager are live read-only views; use
+ * {@link #createSeatStateUpdate(int)} for a detached copy that can be handed to the
+ * network layer.
+ */
+public class ServerGameManager implements GameManager {
+    private static final Logger logger = LoggerFactory.getLogger(ServerGameManager.class);
+
+    private final String tableId;
+    private final int boardCount;
+    private final MpscLinkedQueue<PlayerActionRequest> pendingActions = new MpscLinkedQueue<>();
+    private final InputBatch inputBatch;
+    private final List<PlayerActionRequest> rejected = new ArrayList<>();
+    private Consumer<PlayerActionResponse> ackSink;
+    private Consumer<TableActionsBroadcastResponse> broadcastSink;
+    private TableBroadcaster stateBroadcaster;
+    private TableEventListener eventListener;
+    private YipeeTableSimulation simulation;
+    private ReplayJournalWriter journal;
+    private volatile boolean running;
+    private volatile int tickRate;
+    private volatile int gameHandle;
+    private long lastUpdateNanos;
+    private float countdownRemaining;
+
+    // Scheduling state, owned by the TableTickScheduler shard driving this table
+    int tickInterval = 1;
+    int ticksUntilDue;
+
+    /**
+     * Creates a manager for a table.
+     *
+     * @param tableId    identifier of the table
+     * @param boardCount number of seats at the table
+     */
+    public ServerGameManager(String tableId, int boardCount) {
+        this.tableId = tableId;
+        this.boardCount = boardCount;
+        this.inputBatch = new InputBatch(boardCount);
+    }
+
+    public String getTableId() {
+        return tableId;
+    }
+
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    /**
+     * Returns the number of ticks simulated since the game started.
+     */
+    public int getTick() {
+        return simulation != null ? simulation.getTick() : 0;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Sets the tick rate reported to clients in every response. Called by the scheduler
+     * that drives this table whenever it changes the table's rate.
+     *
+     * @param tickRate ticks per second
+     */
+    public void setTickRate(int tickRate) {
+        this.tickRate = tickRate;
+    }
+
+    public int getGameHandle() {
+        return gameHandle;
+    }
+
+    /**
+     * Sets the handle clients use for this table. Once set, responses carry the handle in
+     * place of the table identifier. Called by {@link SessionTable#bindGame}.
+     *
+     * @param gameHandle the handle, or {@link AbstractClientRequest#NO_HANDLE}
+     */
+    void setGameHandle(int gameHandle) {
+        this.gameHandle = gameHandle;
+    }
+
+    /**
+     * Returns the game seed, or {@code 0} before the table is initialized.
+     */
+    public long getSeed() {
+        return simulation != null ? simulation.getSeed() : 0;
+    }
+
+    /**
+     * Returns the simulation of the current game, or {@code null} before the table is
+     * initialized. It may only be touched by the thread ticking the table.
+     */
+    public YipeeTableSimulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Returns the time spent in the most recent {@link #update(float)}, in nanoseconds.
+     */
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    /**
+     * Records the match to a replay journal. The journal is closed when the game loop ends.
+     *
+     * @param journal an open journal, or {@code null} to stop recording
+     */
+    public void setJournal(ReplayJournalWriter journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets where per-tick acknowledgements are delivered. Called on the tick thread.
+     *
+     * @param ackSink receives one response per client per tick, or {@code null} to send none
+     */
+    public void setAckSink(Consumer<PlayerActionResponse> ackSink) {
+        this.ackSink = ackSink;
+    }
+
+    /**
+     * Sets where the per-tick attack broadcast is delivered. Called on the tick thread.
+     *
+     * @param broadcastSink receives one response for each tick in which attacks landed,
+     *                      or {@code null} to send none
+     */
+    public void setBroadcastSink(Consumer<TableActionsBroadcastResponse> broadcastSink) {
+        this.broadcastSink = broadcastSink;
+    }
+
+    /**
+     * Sets the broadcaster that sends board states to this table's players and watchers
+     * after every update.
+     *
+     * @param stateBroadcaster the broadcaster, or {@code null} to send no states
+     */
+    public void setStateBroadcaster(TableBroadcaster stateBroadcaster) {
+        this.stateBroadcaster = stateBroadcaster;
+    }
+
+    public TableBroadcaster getStateBroadcaster() {
+        return stateBroadcaster;
+    }
+
+    /**
+     * Sets the listener told about lost players and the end of the game. Called on the
+     * tick thread.
+     *
+     * @param eventListener the listener, or {@code null} for none
+     */
+    public void setEventListener(TableEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    @Override
+    public void initialize(long seed, int localSeatId) {
+        this.simulation = new YipeeTableSimulation(seed, boardCount);
+        simulation.setEliminationListener(new EliminationListener() {
+            @Override
+            public void onPlayerDied(int seat, int tick) {
+                logger.info("Seat {} lost at table {} on tick {}", seat, tableId, tick);
+                fireEvent(TableUpdateType.PLAYER_LOST, seat);
+            }
+
+            @Override
+            public void onTeamEliminated(int team, int tick) {
+                logger.info("Team {} eliminated at table {} on tick {}", team, tableId, tick);
+            }
+        });
+        logger.info("Initialized table {} with {} boards (seed={})", tableId, boardCount, seed);
+    }
+
+    /**
+     * Queues an action that did not arrive from a client connection, such as local input,
+     * for the next tick. The action's initiating board is trusted as the sender's seat, so
+     * client input must go through {@link #submit(PlayerActionRequest, int, ClockSync)}
+     * instead. Safe to call from any thread.
+     *
+     * @param request the action request
+     */
+    public void submit(PlayerActionRequest request) {
+        if (request == null || request.getPlayerAction() == null) {
+            throw new YipeeBadRequestException("PlayerActionRequest without an action");
+        }
+        submit(request, request.getPlayerAction().getInitiatingBoardId(), null);
+    }
+
+    /**
+     * Queues a player's action for the next tick and records how late it arrived in the
+     * sending session's clock. Safe to call from any thread. The arrival time is recorded
+     * so the ack can echo it for the client's {@link ClockSync}.
+     *
+     * <p>The action is only applied if it is initiated by {@code seat}, the seat the
+     * server has the sending session sitting in; control actions then only ever reach
+     * that seat's own board.
+     *
+     * <p>Every input is applied on the tick it is drained, whatever tick it was stamped
+     * with; the table keeps no board history to rewind into, so
+     * {@link ClockSync#allowedRewind} is not consulted yet. The lateness is tracked so
+     * that bound is ready once rewinding validation exists.
+     *
+     * @param request the client's action request
+     * @param seat    the sending session's seat at this table, or
+     *                {@link PlayerActionRequest#NO_SEAT} if it is not seated
+     * @param clock   the sending session's clock, or {@code null} if there is none
+     */
+    public void submit(PlayerActionRequest request, int seat, ClockSync clock) {
+        if (request == null || request.getPlayerAction() == null) {
+            throw new YipeeBadRequestException("PlayerActionRequest without an action");
+        }
+        request.setSenderSeat(seat);
+        if (request.getReceivedAt() == 0) {
+            request.setReceivedAt(TimeUtils.millis());
+        }
+        if (clock != null) {
+            clock.onRequest(request, getTick());
+        }
+        pendingActions.offer(request);
+    }
+
+    @Override
+    public void applyLocalPlayerAction(YipeeSerializable action) {
+        if (action instanceof PlayerActionRequest) {
+            submit((PlayerActionRequest) action);
+        } else if (action instanceof PlayerAction) {
+            PlayerActionRequest request = new PlayerActionRequest();
+            request.setPlayerAction((PlayerAction) action);
+            request.setSenderSeat(((PlayerAction) action).getInitiatingBoardId());
+            pendingActions.offer(request);
+        } else {
+            throw new YipeeBadRequestException("Unsupported action: " + action);
+        }
+    }
+
+    /**
+     * Starts the game after a countdown of simulated time. The table is running (and
+     * ticked) during the countdown, but boards only begin once it reaches zero.
+     *
+     * @param seconds countdown length in seconds
+     */
+    public void startCountdown(float seconds) {
+        if (simulation == null) {
+            throw new IllegalStateException("Table " + tableId + " has not been initialized");
+        }
+        if (seconds <= 0) {
+            startGameLoop();
+            return;
+        }
+        countdownRemaining = seconds;
+        running = true;
+    }
+
+    /**
+     * Returns whether the table is counting down to the start of the game.
+     */
+    public boolean isCountingDown() {
+        return running && countdownRemaining > 0;
+    }
+
+    @Override
+    public void update(float delta) {
+        if (!running) {
+            return;
+        }
+        if (countdownRemaining > 0) {
+            countdownRemaining -= delta;
+            if (countdownRemaining <= 0) {
+                countdownRemaining = 0;
+                simulation.begin();
+                logger.info("Countdown finished at table {}", tableId);
+            }
+            return;
+        }
+        long start = TimeUtils.nanoTime();
+        recordKeyframe();
+        recordTickDelta(delta);
+
+        PlayerActionRequest request;
+        while ((request = pendingActions.poll()) != null) {
+            if (rejectReason(request) == null) {
+                inputBatch.add(request);
+            } else {
+                rejected.add(request);
+            }
+        }
+        if (!inputBatch.isEmpty() || !rejected.isEmpty()) {
+            applyBatch();
+        }
+        simulation.step(delta);
+        broadcastAttacks();
+        if (stateBroadcaster != null) {
+            stateBroadcaster.broadcast(this);
+        }
+        lastUpdateNanos = TimeUtils.nanoTime() - start;
+
+        if (checkGameEndConditions()) {
+            logger.info("Game over at table {} on tick {}", tableId, simulation.getTick());
+            endGameLoop();
+            fireEvent(TableUpdateType.GAME_ENDED, simulation.getWinningTeam());
+        }
+    }
+
+    private void fireEvent(TableUpdateType type, int seat) {
+        if (eventListener != null) {
+            eventListener.onTableEvent(this, type, seat);
+        }
+    }
+
+    private void applyBatch() {
+        for (PlayerAction action : inputBatch.resolve()) {
+            if (simulation.applyAction(action)) {
+                recordAction(action);
+            }
+        }
+        if (ackSink != null) {
+            Map<Object, PlayerActionResponse> acks = new LinkedHashMap<>();
+            addAcks(acks, inputBatch.getRequests(), false);
+            addAcks(acks, rejected, true);
+            for (PlayerActionResponse ack : acks.values()) {
+                ack.setAccepted(ack.getRejectedCount() < ack.getActionCount());
+                ackSink.accept(ack);
+            }
+        }
+        inputBatch.clear();
+        rejected.clear();
+    }
+
+    /**
+     * An action is applied only if the sender is seated at this table and the action is
+     * initiated by that seat, and if it uses a power only through a {@code P_ATTACK_*} key,
+     * which spends the power at the front of the sender's queue; anything else is rejected
+     * before the batch is resolved.
+     *
+     * @return why the request is rejected, or {@code null} if its action may be applied
+     */
+    private String rejectReason(PlayerActionRequest request) {
+        PlayerAction action = request.getPlayerAction();
+        if (action == null) {
+            return "Missing action";
+        }
+        PlayerAction.ActionType type = action.getActionType();
+        int seat = request.getSenderSeat();
+        if (getBoard(seat) == null) {
+            return "Unknown board for " + type;
+        }
+        if (action.getInitiatingBoardId() != seat) {
+            return "Seat " + seat + " cannot act for seat " + action.getInitiatingBoardId();
+        }
+        if (YipeeAttackRouter.isRouted(type) && !YipeeAttackRouter.isAttackKey(type)) {
+            return "Power " + type + " can only be used from the queue";
+        }
+        return null;
+    }
+
+    private void addAcks(Map<Object, PlayerActionResponse> acks, List<PlayerActionRequest> requests, boolean reject) {
+        for (PlayerActionRequest request : requests) {
+            Object client = request.getSessionHandle() != AbstractClientRequest.NO_HANDLE
+                ? request.getSessionHandle() : request.getClientId();
+            PlayerActionResponse ack = acks.get(client);
+            if (ack == null) {
+                ack = newAck(request);
+                acks.put(client, ack);
+            }
+            PlayerAction action = request.getPlayerAction();
+            ack.setActionCount(ack.getActionCount() + 1);
+            if (request.getClientTick() >= ack.getAckClientTick()) {
+                ClockSync.echo(request, ack);
+            }
+            ack.setAckClientTick(Math.max(ack.getAckClientTick(), request.getClientTick()));
+            if (!reject) {
+                ack.setPlayerAction(action);
+                continue;
+            }
+            if (ack.getRejectedCount() == 0 || request.getClientTick() < ack.getFirstRejectedClientTick()) {
+                ack.setFirstRejectedClientTick(request.getClientTick());
+                ack.setMessage(rejectReason(request));
+            }
+            ack.setRejectedCount(ack.getRejectedCount() + 1);
+        }
+    }
+
+    private void broadcastAttacks() {
+        List<PlayerAction> delivered = simulation.getAttackRouter().getDelivered();
+        if (broadcastSink == null || delivered.isEmpty()) {
+            return;
+        }
+        TableActionsBroadcastResponse broadcast = new TableActionsBroadcastResponse();
+        addressGame(broadcast);
+        broadcast.setTableId(tableId);
+        broadcast.setServerTick(simulation.getTick());
+        broadcast.setServerTimestamp(TimeUtils.millis());
+        broadcast.setTickRate(tickRate);
+        broadcast.setActions(new ArrayList<>(delivered));
+        broadcastSink.accept(broadcast);
+    }
+
+    private PlayerActionResponse newAck(PlayerActionRequest request) {
+        PlayerActionResponse ack = new PlayerActionResponse();
+        addressGame(ack);
+        ack.setSessionId(request.getSessionId());
+        ack.setSessionHandle(request.getSessionHandle());
+        ack.setServerTick(simulation.getTick());
+        ack.setServerTimestamp(TimeUtils.millis());
+        ack.setTickRate(tickRate);
+        ack.setAckClientTick(request.getClientTick());
+        ack.setAccepted(true);
+        return ack;
+    }
+
+    private void addressGame(AbstractServerResponse response) {
+        int handle = gameHandle;
+        if (handle != AbstractClientRequest.NO_HANDLE) {
+            response.setGameHandle(handle);
+        } else {
+            response.setGameId(tableId);
+        }
+    }
+
+    private void recordKeyframe() {
+        if (journal != null) {
+            try {
+                journal.recordTick(simulation);
+            } catch (IOException e) {
+                disableJournal(e);
+            }
+        }
+    }
+
+    private void recordTickDelta(float delta) {
+        if (journal != null && delta != journal.getTickDelta()) {
+            try {
+                journal.recordTickDelta(simulation.getTick(), delta);
+            } catch (IOException e) {
+                disableJournal(e);
+            }
+        }
+    }
+
+    private void recordAction(PlayerAction action) {
+        if (journal != null) {
+            try {
+                journal.recordAction(simulation.getTick(), action);
+            } catch (IOException e) {
+                disableJournal(e);
+            }
+        }
+    }
+
+    private void disableJournal(IOException e) {
+        logger.error("Replay journal for table {} failed; recording stopped", tableId, e);
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close replay journal for table {}", tableId, e);
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * The server is authoritative; client-supplied states are ignored.
+     */
+    @Override
+    public void receiveServerState(int seatId, GameBoardState state) {
+        logger.warn("Ignoring external state for seat {} at authoritative table {}", seatId, tableId);
+    }
+
+    @Override
+    public GameBoardState getBoardState(int seatId) {
+        YipeeGameBoard board = getBoard(seatId);
+        return board != null ? board.getStateView() : null;
+    }
+
+    @Override
+    public Iterable<? extends GameBoardState> getBoardStates(int seatId) {
+        GameBoardState state = getBoardState(seatId);
+        return state != null ? Collections.singletonList(state) : Collections.<GameBoardState>emptyList();
+    }
+
+    @Override
+    public Iterable<GameBoardState> getAllBoardStates() {
+        List<GameBoardState> states = new ArrayList<>(boardCount);
+        for (int seat = 0; seat < boardCount; seat++) {
+            states.add(getBoardState(seat));
+        }
+        return states;
+    }
+
+    /**
+     * Builds a detached, checksummed update for a seat suitable for sending to clients.
+     *
+     * @param seatId the seat to describe
+     * @return the update, or {@code null} if the seat does not exist
+     */
+    public SeatStateUpdateResponse createSeatStateUpdate(int seatId) {
+        GameBoardState state = snapshot(seatId, BoardDetail.FULL);
+        return state != null ? newSeatStateUpdate(seatId, state) : null;
+    }
+
+    /**
+     * Freezes a seat's board.
+     *
+     * @param seatId the seat
+     * @param detail how much of the state to keep
+     * @return a detached snapshot, or {@code null} if the seat does not exist
+     */
+    GameBoardState snapshot(int seatId, BoardDetail detail) {
+        YipeeGameBoard board = getBoard(seatId);
+        if (board == null) {
+            return null;
+        }
+        try {
+            YipeeGameBoardState state = board.getStateView().freeze();
+            return detail == BoardDetail.SUMMARY ? state.summary() : state;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to snapshot seat " + seatId + " at table " + tableId, e);
+        }
+    }
+
+    /**
+     * Wraps a snapshot of a seat in a response stamped with the current tick and checksum.
+     */
+    SeatStateUpdateResponse newSeatStateUpdate(int seatId, GameBoardState state) {
+        SeatStateUpdateResponse response = new SeatStateUpdateResponse();
+        addressGame(response);
+        response.setTableId(tableId);
+        response.setSeatIndex(seatId);
+        response.setServerTick(simulation.getTick());
+        response.setServerTimestamp(TimeUtils.millis());
+        response.setTickRate(tickRate);
+        response.setChecksum(getBoard(seatId).getStateChecksum());
+        List<GameBoardState> states = new ArrayList<>(1);
+        states.add(state);
+        response.setStates(states);
+        return response;
+    }
+
+    /**
+     * Returns the countdown left before the boards start, in seconds.
+     */
+    float getCountdownRemaining() {
+        return countdownRemaining;
+    }
+
+    /**
+     * Returns read-only views of every board, indexed by seat, or {@code null} before the
+     * table is initialized.
+     */
+    GameBoardState[] getStateViews() {
+        return simulation != null ? simulation.getStateViews() : null;
+    }
+
+    /**
+     * Removes and returns every request submitted but not yet applied.
+     */
+    List<PlayerActionRequest> drainPending() {
+        List<PlayerActionRequest> drained = new ArrayList<>();
+        pendingActions.drain(drained::add);
+        return drained;
+    }
+
+    /**
+     * Replaces this table's game with a captured one, positioned at the start of
+     * {@code tick}.
+     *
+     * @param seed               game seed of the captured table
+     * @param tick               tick at which the boards were captured
+     * @param states             one board state per seat
+     * @param running            whether the captured game loop was running
+     * @param countdownRemaining countdown left in seconds
+     * @throws JsonProcessingException if a board state cannot be parsed
+     */
+    void restore(long seed, int tick, YipeeGameBoardState[] states, boolean running, float countdownRemaining)
+        throws JsonProcessingException {
+        initialize(seed, -1);
+        simulation.restore(tick, states);
+        this.countdownRemaining = countdownRemaining;
+        this.running = running;
+    }
+
+    @Override
+    public void reset(long seed) {
+        endGameLoop();
+        pendingActions.clear();
+        inputBatch.clear();
+        rejected.clear();
+        initialize(seed, -1);
+    }
+
+    /**
+     * Returns whether a seat has lost. Deaths are noticed when the table is stepped.
+     */
+    @Override
+    public boolean isPlayerDead(int gameSeat) {
+        return simulation == null || simulation.isDead(gameSeat);
+    }
+
+    @Override
+    public void startGameLoop() {
+        if (simulation == null) {
+            throw new IllegalStateException("Table " + tableId + " has not been initialized");
+        }
+        simulation.begin();
+        countdownRemaining = 0;
+        running = true;
+    }
+
+    @Override
+    public void endGameLoop() {
+        running = false;
+        countdownRemaining = 0;
+        closeJournal();
+    }
+
+    /**
+     * The game ends when at most one team (seats {@code 2g} and {@code 2g + 1}) still has
+     * a living board, or when every board is dead at a single-team table. This reads the
+     * simulation's live count of surviving teams and does not scan the boards.
+     */
+    @Override
+    public boolean checkGameEndConditions() {
+        return simulation != null && simulation.isDecided();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private YipeeGameBoard getBoard(int seatId) {
+        return simulation != null ? simulation.getBoard(seatId) : null;
+    }
+}
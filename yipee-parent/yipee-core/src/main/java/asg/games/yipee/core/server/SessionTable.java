@@ -0,0 +1,231 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.net.game.ClockSync;
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.ClientHandshakeRequest;
+import asg.games.yipee.net.packets.ClientHandshakeResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues the integer session and game handles clients use in place of string identifiers,
+ * and resolves them when requests arrive.
+ *
+ * <p>A session handle is issued by {@link #handshake} and returned to the client in its
+ * {@link ClientHandshakeResponse}; a game handle is bound to a table once by
+ * {@link #bindGame} and handed to every client joining it. From then on a request needs
+ * only the two handles, which {@link #resolve(AbstractClientRequest, Object)} turns back
+ * into the session and table through {@link HandleTable} lookups.
+ *
+ * <p>Handles are small and easy to guess, so a session handle is bound to the connection
+ * that completed the handshake and only resolves for requests arriving on that same
+ * connection. A request from any other connection claiming it is rejected.
+ *
+ * <p>All methods are thread-safe; resolving is lock-free.
+ */
+public class SessionTable {
+    private static final Logger logger = LoggerFactory.getLogger(SessionTable.class);
+
+    private final HandleTable<Session> sessions = new HandleTable<>();
+    private final HandleTable<ServerGameManager> games = new HandleTable<>();
+    private final Map<String, Integer> gameHandles = new ConcurrentHashMap<>();
+
+    /**
+     * Opens a session for a client that has completed authentication.
+     *
+     * @param request    the client's handshake
+     * @param connection the connection the handshake arrived on; the session handle is
+     *                   only valid on it
+     * @param sessionId  the server-generated session identifier
+     * @param playerId   the authoritative player identity
+     * @return a response carrying the session identifier and handle
+     */
+    public ClientHandshakeResponse handshake(ClientHandshakeRequest request, Object connection, String sessionId,
+                                             String playerId) {
+        Session session = new Session(sessionId, playerId, request.getClientId(),
+            Objects.requireNonNull(connection, "connection"));
+        session.handle = sessions.issue(session);
+        logger.debug("Session {} for player {} has handle {}", sessionId, playerId, session.handle);
+
+        ClientHandshakeResponse response = new ClientHandshakeResponse();
+        response.setSessionId(sessionId);
+        response.setSessionHandle(session.handle);
+        response.setPlayerId(playerId);
+        response.setConnected(true);
+        return response;
+    }
+
+    /**
+     * Ends a session. Requests still carrying its handle no longer resolve.
+     *
+     * @param sessionHandle the session's handle
+     * @return the session, or {@code null} if the handle was not valid
+     */
+    public Session disconnect(int sessionHandle) {
+        return sessions.release(sessionHandle);
+    }
+
+    /**
+     * Returns the handle of a table, issuing one the first time. The table stamps the
+     * handle on its responses from then on.
+     *
+     * @param table the table
+     * @return the table's game handle
+     */
+    public int bindGame(ServerGameManager table) {
+        return gameHandles.computeIfAbsent(table.getTableId(), tableId -> {
+            int handle = games.issue(table);
+            table.setGameHandle(handle);
+            return handle;
+        });
+    }
+
+    /**
+     * Releases a table's handle, for example once the table is retired.
+     *
+     * @param table the table
+     */
+    public void unbindGame(ServerGameManager table) {
+        Integer handle = gameHandles.remove(table.getTableId());
+        if (handle != null) {
+            games.release(handle);
+            table.setGameHandle(AbstractClientRequest.NO_HANDLE);
+        }
+    }
+
+    /**
+     * Returns the session with a handle.
+     *
+     * @param sessionHandle the handle
+     * @return the session, or {@code null} if the handle is not valid
+     */
+    public Session getSession(int sessionHandle) {
+        return sessions.resolve(sessionHandle);
+    }
+
+    /**
+     * Returns the table with a handle.
+     *
+     * @param gameHandle the handle
+     * @return the table, or {@code null} if the handle is not valid
+     */
+    public ServerGameManager getGame(int gameHandle) {
+        return games.resolve(gameHandle);
+    }
+
+    /**
+     * Fills in the string identifiers of a request that carries handles, so code
+     * downstream can keep addressing sessions and tables by identifier. Identifiers the
+     * request already carries are overwritten by the ones the server issued.
+     *
+     * <p>A request without a session handle is left as it is, to be authenticated by its
+     * {@code authToken} as before.
+     *
+     * @param request    the request
+     * @param connection the connection the request arrived on
+     * @return {@code false} if the request carries a handle that is not valid, or a session
+     * handle issued to another connection
+     */
+    public boolean resolve(AbstractClientRequest request, Object connection) {
+        int sessionHandle = request.getSessionHandle();
+        if (sessionHandle != AbstractClientRequest.NO_HANDLE) {
+            Session session = sessions.resolve(sessionHandle);
+            if (session == null) {
+                return false;
+            }
+            if (session.connection != connection) {
+                logger.warn("Rejected session handle {} claimed from another connection", sessionHandle);
+                return false;
+            }
+            request.setSessionId(session.sessionId);
+            request.setClientId(session.clientId);
+        }
+        int gameHandle = request.getGameHandle();
+        if (gameHandle != AbstractClientRequest.NO_HANDLE) {
+            ServerGameManager table = games.resolve(gameHandle);
+            if (table == null) {
+                return false;
+            }
+            request.setGameId(table.getTableId());
+        }
+        return true;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getGameCount() {
+        return games.size();
+    }
+
+    /**
+     * An open client session, with the {@link ClockSync} that tracks how late its inputs
+     * arrive.
+     */
+    public static final class Session {
+        private final String sessionId;
+        private final String playerId;
+        private final String clientId;
+        private final Object connection;
+        private final ClockSync clock = new ClockSync();
+        private volatile int handle;
+
+        Session(String sessionId, String playerId, String clientId, Object connection) {
+            this.sessionId = sessionId;
+            this.playerId = playerId;
+            this.clientId = clientId;
+            this.connection = connection;
+        }
+
+        public int getHandle() {
+            return handle;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+
+        /**
+         * Returns the connection the session's handle is bound to.
+         */
+        public Object getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the session's clock, to be passed along with each of its inputs when they
+         * are submitted to a table.
+         */
+        public ClockSync getClock() {
+            return clock;
+        }
+    }
+}
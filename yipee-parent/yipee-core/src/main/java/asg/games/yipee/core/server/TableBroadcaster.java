@@ -0,0 +1,203 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.transport.BroadcastEncoder;
+import asg.games.yipee.net.transport.EncodedMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Sends board states from one table to its players and watchers, subject to an
+ * {@link InterestPolicy}.
+ *
+ * <p>After every table tick the broadcaster works out which boards are due for which
+ * recipient and at what {@link BoardDetail}. Each board is snapshotted at most once per
+ * detail level per tick and the snapshot is shared by every response carrying it, so the
+ * cost of a tick grows with the number of updates actually sent rather than with
+ * recipients times boards. Responses are addressed through their {@code sessionId}.
+ *
+ * <p>Given a {@link BroadcastEncoder}, the broadcaster goes further and serializes each
+ * board once per detail level per tick: every recipient of that board is handed the same
+ * {@link EncodedMessage} along with its session id, and the update itself carries no
+ * session id. A table with 8 players and 30 watchers then encodes a watched board once
+ * rather than 38 times.
+ *
+ * <p>Recipients may be added and removed from any thread; broadcasting happens on the
+ * table's tick thread.
+ */
+public class TableBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(TableBroadcaster.class);
+
+    private static final BoardDetail[] DETAILS = BoardDetail.values();
+
+    private final InterestPolicy policy;
+    private final Consumer<SeatStateUpdateResponse> sink;
+    private final BroadcastEncoder encoder;
+    private final BiConsumer<String, EncodedMessage> sharedSink;
+    private final Map<String, Integer> recipients = new ConcurrentHashMap<>();
+
+    // Tick thread only
+    private GameBoardState[] snapshots = new GameBoardState[0];
+    private EncodedMessage[] encoded = new EncodedMessage[0];
+    private long sentCount;
+    private long suppressedCount;
+
+    /**
+     * Creates a broadcaster.
+     *
+     * @param policy decides what each recipient receives
+     * @param sink   receives each addressed update
+     */
+    public TableBroadcaster(InterestPolicy policy, Consumer<SeatStateUpdateResponse> sink) {
+        this.policy = policy;
+        this.sink = sink;
+        this.encoder = null;
+        this.sharedSink = null;
+    }
+
+    /**
+     * Creates a broadcaster that encodes each update once for all of its recipients.
+     *
+     * @param policy  decides what each recipient receives
+     * @param encoder encodes each board update
+     * @param sink    receives each recipient's session id and its update, which the sink
+     *                must {@link EncodedMessage#retain() retain} to keep past the call
+     */
+    public TableBroadcaster(InterestPolicy policy, BroadcastEncoder encoder, BiConsumer<String, EncodedMessage> sink) {
+        this.policy = policy;
+        this.sink = null;
+        this.encoder = encoder;
+        this.sharedSink = sink;
+    }
+
+    /**
+     * Adds or moves a seated player.
+     *
+     * @param sessionId the player's session
+     * @param seat      the player's seat
+     */
+    public void addPlayer(String sessionId, int seat) {
+        if (seat < 0) {
+            throw new IllegalArgumentException("seat must not be negative: " + seat);
+        }
+        recipients.put(sessionId, seat);
+        logger.debug("Session {} receives seat {} updates", sessionId, seat);
+    }
+
+    /**
+     * Adds a watcher, or turns a seated player into one.
+     *
+     * @param sessionId the watcher's session
+     */
+    public void addWatcher(String sessionId) {
+        recipients.put(sessionId, InterestPolicy.WATCHER);
+        logger.debug("Session {} watches the table", sessionId);
+    }
+
+    /**
+     * Stops sending updates to a session.
+     *
+     * @param sessionId the session
+     */
+    public void remove(String sessionId) {
+        recipients.remove(sessionId);
+    }
+
+    /**
+     * Returns a snapshot of every recipient's seat, or {@link InterestPolicy#WATCHER}, by
+     * session.
+     */
+    public Map<String, Integer> getRecipients() {
+        return new LinkedHashMap<>(recipients);
+    }
+
+    public int getRecipientCount() {
+        return recipients.size();
+    }
+
+    /**
+     * Returns how many board updates have been sent.
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Returns how many board updates full fan-out would have sent but the policy skipped.
+     */
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Sends the updates due on the table's current tick.
+     *
+     * @param table the table that has just been updated
+     */
+    void broadcast(ServerGameManager table) {
+        int boardCount = table.getBoardCount();
+        if (snapshots.length != boardCount * DETAILS.length) {
+            snapshots = new GameBoardState[boardCount * DETAILS.length];
+            encoded = new EncodedMessage[snapshots.length];
+        }
+        long tick = table.getTick();
+
+        try {
+            for (Map.Entry<String, Integer> recipient : recipients.entrySet()) {
+                int recipientSeat = recipient.getValue();
+                for (int seat = 0; seat < boardCount; seat++) {
+                    if (!policy.isDue(recipientSeat, seat, tick)) {
+                        suppressedCount++;
+                        continue;
+                    }
+                    BoardDetail detail = policy.detailFor(recipientSeat, seat);
+                    int slot = seat * DETAILS.length + detail.ordinal();
+                    if (snapshots[slot] == null) {
+                        snapshots[slot] = table.snapshot(seat, detail);
+                    }
+                    if (encoder != null) {
+                        if (encoded[slot] == null) {
+                            encoded[slot] = encoder.encode(table.newSeatStateUpdate(seat, snapshots[slot]));
+                        }
+                        sharedSink.accept(recipient.getKey(), encoded[slot]);
+                    } else {
+                        SeatStateUpdateResponse update = table.newSeatStateUpdate(seat, snapshots[slot]);
+                        update.setSessionId(recipient.getKey());
+                        sink.accept(update);
+                    }
+                    sentCount++;
+                }
+            }
+        } finally {
+            for (int i = 0; i < snapshots.length; i++) {
+                snapshots[i] = null;
+                if (encoded[i] != null) {
+                    encoded[i].release();
+                    encoded[i] = null;
+                }
+            }
+        }
+    }
+}
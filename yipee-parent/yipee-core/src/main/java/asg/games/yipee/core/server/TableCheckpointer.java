@@ -0,0 +1,341 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.core.tools.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Writes crash-recovery checkpoints of every running table.
+ *
+ * <p>Shards of a {@link TableTickScheduler} hand the checkpointer a
+ * {@link TableMigration#snapshot(ServerGameManager) snapshot} of each of their tables once
+ * per interval; taking one only copies the boards, so ticks are not stalled. The latest
+ * snapshot of each table is kept until the checkpointer's own thread encodes all of them
+ * and writes them in a single batch.
+ *
+ * <p>Checkpoints alternate between two memory-mapped slot files, so the previous
+ * checkpoint stays intact while the next is written. Each slot starts with a header:
+ * <pre>
+ * int magic, short version, long generation, int tableCount, int payloadLength, long crc32
+ * </pre>
+ * followed by one length-prefixed {@link TableMigration} blob per table. On restart
+ * {@link #recover(Path)} reads the slot with the highest generation whose checksum matches,
+ * so a crash in the middle of a write falls back to the checkpoint before it.
+ */
+public class TableCheckpointer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TableCheckpointer.class);
+
+    static final int MAGIC = 0x5950434B; // "YPCK"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 8 + 4 + 4 + 8;
+    static final String[] SLOT_FILES = {"checkpoint-a.bin", "checkpoint-b.bin"};
+
+    private static final int MIN_SLOT_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long intervalNanos;
+    private final Map<String, TableMigration> latest = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final FileChannel[] channels = new FileChannel[SLOT_FILES.length];
+    private final MappedByteBuffer[] slots = new MappedByteBuffer[SLOT_FILES.length];
+    private volatile boolean running;
+    private Thread thread;
+
+    // Writer state
+    private long generation;
+    private volatile long checkpointsWritten;
+    private volatile long lastWriteNanos;
+    private volatile int lastTableCount;
+
+    /**
+     * Opens the slot files in a directory, continuing after the newest checkpoint found
+     * there.
+     *
+     * @param directory      where checkpoints are kept
+     * @param intervalMillis time between checkpoints
+     * @throws IOException if the slot files cannot be opened
+     */
+    public TableCheckpointer(Path directory, long intervalMillis) throws IOException {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+        }
+        this.directory = directory;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        Files.createDirectories(directory);
+        for (int i = 0; i < SLOT_FILES.length; i++) {
+            channels[i] = FileChannel.open(directory.resolve(SLOT_FILES[i]),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            generation = Math.max(generation, validGeneration(channels[i]));
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns how often shards snapshot their tables, in nanoseconds.
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * Returns the generation of the last checkpoint written, or found on disk at startup.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public long getCheckpointsWritten() {
+        return checkpointsWritten;
+    }
+
+    /**
+     * Returns how long the last checkpoint took to encode and write, in nanoseconds.
+     */
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    /**
+     * Returns how many tables the last checkpoint held.
+     */
+    public int getLastTableCount() {
+        return lastTableCount;
+    }
+
+    /**
+     * Replaces the snapshot of a table. Safe to call from any thread.
+     *
+     * @param snapshot the table's latest snapshot
+     */
+    public void offer(TableMigration snapshot) {
+        latest.put(snapshot.getTableId(), snapshot);
+        dirty.set(true);
+    }
+
+    /**
+     * Leaves a table out of future checkpoints, for example once its game has ended.
+     *
+     * @param tableId the table
+     */
+    public void forget(String tableId) {
+        if (latest.remove(tableId) != null) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Starts the thread that writes a checkpoint every interval when a snapshot has changed.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "yipee-checkpoint");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Checkpointing tables to {} every {} ms", directory, TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            if (running && dirty.get()) {
+                try {
+                    writeCheckpoint();
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Unable to write checkpoint to {}", directory, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every table's latest snapshot to the older slot. Called by the checkpoint
+     * thread; may also be called directly, for example before a planned shutdown.
+     *
+     * @return the number of tables written
+     * @throws IOException if the slot cannot be written
+     */
+    public synchronized int writeCheckpoint() throws IOException {
+        long start = TimeUtils.nanoTime();
+        dirty.set(false);
+        List<byte[]> blobs = new ArrayList<>(latest.size());
+        int payloadLength = 0;
+        for (TableMigration snapshot : latest.values()) {
+            byte[] blob = snapshot.toBytes();
+            blobs.add(blob);
+            payloadLength += 4 + blob.length;
+        }
+
+        long next = generation + 1;
+        int index = (int) (next % SLOT_FILES.length);
+        MappedByteBuffer slot = map(index, HEADER_BYTES + payloadLength);
+        CRC32 crc = new CRC32();
+        ((Buffer) slot).position(HEADER_BYTES);
+        for (byte[] blob : blobs) {
+            slot.putInt(blob.length);
+            slot.put(blob);
+        }
+        ByteBuffer payload = slot.duplicate();
+        ((Buffer) payload).position(HEADER_BYTES).limit(HEADER_BYTES + payloadLength);
+        crc.update(payload);
+
+        ((Buffer) slot).position(0);
+        slot.putInt(MAGIC);
+        slot.putShort(VERSION);
+        slot.putLong(next);
+        slot.putInt(blobs.size());
+        slot.putInt(payloadLength);
+        slot.putLong(crc.getValue());
+        slot.force();
+
+        generation = next;
+        checkpointsWritten++;
+        lastTableCount = blobs.size();
+        lastWriteNanos = TimeUtils.nanoTime() - start;
+        logger.debug("Checkpoint {} of {} tables ({} bytes) written in {} us",
+            next, blobs.size(), payloadLength, TimeUnit.NANOSECONDS.toMicros(lastWriteNanos));
+        return blobs.size();
+    }
+
+    private MappedByteBuffer map(int index, int size) throws IOException {
+        MappedByteBuffer slot = slots[index];
+        if (slot == null || slot.capacity() < size) {
+            int capacity = Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(Math.max(size - 1, 1)) << 1);
+            slot = channels[index].map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            slots[index] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * Stops the checkpoint thread, writes a final checkpoint if anything changed and
+     * closes the slot files.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            running = false;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        try {
+            if (dirty.get()) {
+                writeCheckpoint();
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the newest intact checkpoint in a directory.
+     *
+     * @param directory where checkpoints are kept
+     * @return one migration per table, ready to {@link TableMigration#resume() resume};
+     * empty if there is no intact checkpoint
+     * @throws IOException if a slot file cannot be read
+     */
+    public static List<TableMigration> recover(Path directory) throws IOException {
+        ByteBuffer newest = null;
+        long newestGeneration = 0;
+        for (String name : SLOT_FILES) {
+            Path file = directory.resolve(name);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long slotGeneration = validGeneration(channel);
+                if (slotGeneration > newestGeneration) {
+                    newestGeneration = slotGeneration;
+                    newest = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+        }
+
+        List<TableMigration> tables = new ArrayList<>();
+        if (newest == null) {
+            return tables;
+        }
+        int count = newest.getInt(4 + 2 + 8);
+        ((Buffer) newest).position(HEADER_BYTES);
+        for (int i = 0; i < count; i++) {
+            byte[] blob = new byte[newest.getInt()];
+            newest.get(blob);
+            tables.add(TableMigration.fromBytes(blob));
+        }
+        logger.info("Recovered {} tables from checkpoint {} in {}", tables.size(), newestGeneration, directory);
+        return tables;
+    }
+
+    /**
+     * Returns the generation of the checkpoint in a slot file, or {@code 0} if it holds no
+     * intact checkpoint.
+     */
+    private static long validGeneration(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            return 0;
+        }
+        ByteBuffer slot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (slot.getInt(0) != MAGIC || slot.getShort(4) != VERSION) {
+            return 0;
+        }
+        long slotGeneration = slot.getLong(6);
+        int payloadLength = slot.getInt(18);
+        if (payloadLength < 0 || HEADER_BYTES + (long) payloadLength > size) {
+            return 0;
+        }
+        ByteBuffer payload = slot.duplicate();
+        ((Buffer) payload).position(HEADER_BYTES).limit(HEADER_BYTES + payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue() == slot.getLong(22) ? slotGeneration : 0;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.common.enums.TableUpdateType;
+
+/**
+ * Receives game events from a {@link ServerGameManager}, on the thread ticking the table.
+ *
+ * <p>The manager reports {@link TableUpdateType#PLAYER_LOST} for each seat whose board
+ * dies, and {@link TableUpdateType#GAME_ENDED} on the tick the last opposing team is
+ * eliminated, after that tick's attacks and states have been sent.
+ */
+@FunctionalInterface
+public interface TableEventListener {
+
+    /**
+     * Called when something happens at a table.
+     *
+     * @param table the table; {@link ServerGameManager#getTick()} is the event's tick
+     * @param type  what happened
+     * @param seat  the seat that lost for {@code PLAYER_LOST}; for {@code GAME_ENDED}, the
+     *              winning team, or {@code -1} if no team survived
+     */
+    void onTableEvent(ServerGameManager table, TableUpdateType type, int seat);
+}
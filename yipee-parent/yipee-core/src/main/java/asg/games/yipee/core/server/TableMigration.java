@@ -0,0 +1,359 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
+import asg.games.yipee.core.replay.JournalFormat;
+import asg.games.yipee.core.replay.KeyframeCodec;
+import asg.games.yipee.core.tools.TimeUtils;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.TableRedirectResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A running table captured so that another server node, or this one after a restart, can
+ * resume it mid-game.
+ *
+ * <p>A migration holds everything the table's future depends on: the seed, the tick, one
+ * keyframe per board, the countdown, requests that were submitted but not yet applied and
+ * the sessions seated at or watching the table. Attacks need not be carried: a table is
+ * captured between updates, when every attack of the previous tick has been delivered.
+ * Because the simulation is deterministic, the resumed table produces exactly the boards
+ * the original would have.
+ *
+ * <p>Moving a table:
+ * <ol>
+ *     <li>stop ticking it on the source node ({@link TableTickScheduler#unregister}) and
+ *     {@link #capture(ServerGameManager) capture} it, which also ends its game loop;</li>
+ *     <li>ship {@link #toBytes()} to the destination, which calls {@link #fromBytes(byte[])}
+ *     and {@link #resume()}, then registers the table with its own scheduler;</li>
+ *     <li>send each session its {@link #redirect(String, String, int) redirect}; the
+ *     destination admits reconnecting sessions with {@link #accepts(String, long)}.</li>
+ * </ol>
+ * {@link #snapshot(ServerGameManager)} captures a table without stopping it, for
+ * {@link TableCheckpointer checkpoints}. Capturing only copies the boards; they are
+ * encoded by {@link #toBytes()}, off the tick thread in the checkpointer's case. A
+ * snapshot carries no redirect token, since no session is ever sent to it.
+ *
+ * <pre>
+ * blob:   int magic, short version, string tableId, short boardCount, long seed, int tick,
+ *         int tickRate, byte running, float countdownRemaining, long token,
+ *         boardCount keyframes,
+ *         int sessions, (string sessionId, byte seat) per session,
+ *         int requests, (string clientId, string sessionId, long clientTick, action) per request
+ * </pre>
+ */
+public final class TableMigration {
+    private static final Logger logger = LoggerFactory.getLogger(TableMigration.class);
+
+    static final int MAGIC = 0x59504D47; // "YPMG"
+    static final short VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final SecureRandom TOKENS = new SecureRandom();
+    /** Token of a checkpoint snapshot, which no reconnecting session can present. */
+    private static final long NO_TOKEN = 0;
+
+    private final String tableId;
+    private final long seed;
+    private final int tick;
+    private final int tickRate;
+    private final boolean running;
+    private final float countdownRemaining;
+    private final long token;
+    private final YipeeGameBoardState[] states;
+    private final Map<String, Integer> sessions;
+    private final List<PlayerActionRequest> pending;
+
+    private TableMigration(String tableId, long seed, int tick, int tickRate, boolean running, float countdownRemaining,
+                           long token, YipeeGameBoardState[] states, Map<String, Integer> sessions,
+                           List<PlayerActionRequest> pending) {
+        this.tableId = tableId;
+        this.seed = seed;
+        this.tick = tick;
+        this.tickRate = tickRate;
+        this.running = running;
+        this.countdownRemaining = countdownRemaining;
+        this.token = token;
+        this.states = states;
+        this.sessions = sessions;
+        this.pending = pending;
+    }
+
+    /**
+     * Captures a table and ends its game loop, so it cannot diverge from the copy. The table
+     * must not be ticked concurrently: unregister it from its scheduler first, or call this on
+     * its shard thread.
+     *
+     * @param table an initialized table
+     * @return the captured table
+     */
+    public static TableMigration capture(ServerGameManager table) {
+        TableMigration migration = of(table, table.drainPending(), newToken());
+        table.endGameLoop();
+        logger.info("Captured table {} at tick {} with {} sessions and {} pending requests",
+            migration.tableId, migration.tick, migration.sessions.size(), migration.pending.size());
+        return migration;
+    }
+
+    /**
+     * Captures a table without disturbing it, for a checkpoint. Requests not yet applied
+     * are left queued and are not part of the snapshot. Must be called on the table's shard
+     * thread between updates.
+     *
+     * @param table an initialized table
+     * @return the captured table
+     */
+    public static TableMigration snapshot(ServerGameManager table) {
+        return of(table, Collections.<PlayerActionRequest>emptyList(), NO_TOKEN);
+    }
+
+    private static TableMigration of(ServerGameManager table, List<PlayerActionRequest> pending, long token) {
+        GameBoardState[] views = table.getStateViews();
+        if (views == null) {
+            throw new IllegalStateException("Table " + table.getTableId() + " has not been initialized");
+        }
+        YipeeGameBoardState[] states = new YipeeGameBoardState[views.length];
+        for (int seat = 0; seat < views.length; seat++) {
+            states[seat] = KeyframeCodec.copy(views[seat]);
+        }
+
+        TableBroadcaster broadcaster = table.getStateBroadcaster();
+        Map<String, Integer> sessions = broadcaster != null
+            ? broadcaster.getRecipients() : Collections.<String, Integer>emptyMap();
+        return new TableMigration(table.getTableId(), table.getSeed(), table.getTick(), table.getTickRate(),
+            table.isRunning(), table.getCountdownRemaining(), token, states, sessions, pending);
+    }
+
+    private static long newToken() {
+        long token;
+        do {
+            token = TOKENS.nextLong();
+        } while (token == NO_TOKEN);
+        return token;
+    }
+
+    /**
+     * Rebuilds a table on this node, positioned where it was captured. Register it with a
+     * scheduler to continue the game, and give it a {@link TableBroadcaster} before calling
+     * {@link #restoreRecipients(TableBroadcaster)}. Pending requests are queued again on
+     * behalf of the seat their session was captured in.
+     *
+     * @return the resumed table
+     */
+    public ServerGameManager resume() {
+        ServerGameManager table = new ServerGameManager(tableId, states.length);
+        YipeeGameBoardState[] copies = new YipeeGameBoardState[states.length];
+        for (int seat = 0; seat < states.length; seat++) {
+            copies[seat] = states[seat].copy();
+        }
+        try {
+            table.restore(seed, tick, copies, running, countdownRemaining);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to restore table " + tableId, e);
+        }
+        table.setTickRate(tickRate);
+        for (PlayerActionRequest request : pending) {
+            Integer seat = sessions.get(request.getSessionId());
+            table.submit(request, seat != null ? seat : PlayerActionRequest.NO_SEAT, null);
+        }
+        logger.info("Resumed table {} at tick {}", tableId, tick);
+        return table;
+    }
+
+    /**
+     * Adds every captured session to a broadcaster of the resumed table.
+     *
+     * @param broadcaster the resumed table's broadcaster
+     */
+    public void restoreRecipients(TableBroadcaster broadcaster) {
+        for (Map.Entry<String, Integer> session : sessions.entrySet()) {
+            if (session.getValue() == InterestPolicy.WATCHER) {
+                broadcaster.addWatcher(session.getKey());
+            } else {
+                broadcaster.addPlayer(session.getKey(), session.getValue());
+            }
+        }
+    }
+
+    /**
+     * Builds the response telling a session where its table went.
+     *
+     * @param sessionId a captured session
+     * @param host      host of the destination node
+     * @param port      port of the destination node
+     * @return the redirect
+     */
+    public TableRedirectResponse redirect(String sessionId, String host, int port) {
+        TableRedirectResponse response = new TableRedirectResponse();
+        response.setGameId(tableId);
+        response.setTableId(tableId);
+        response.setSessionId(sessionId);
+        response.setServerTick(tick);
+        response.setServerTimestamp(TimeUtils.millis());
+        response.setTickRate(tickRate);
+        response.setHost(host);
+        response.setPort(port);
+        response.setMigrationToken(token);
+        return response;
+    }
+
+    /**
+     * Returns whether a reconnecting session belonged to the table and presented this
+     * migration's token.
+     */
+    public boolean accepts(String sessionId, long migrationToken) {
+        return token != NO_TOKEN && migrationToken == token && sessions.containsKey(sessionId);
+    }
+
+    public String getTableId() {
+        return tableId;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the captured sessions' seats, or {@link InterestPolicy#WATCHER}, by session.
+     */
+    public Map<String, Integer> getSessions() {
+        return Collections.unmodifiableMap(sessions);
+    }
+
+    /**
+     * Encodes the migration for transfer to another node.
+     */
+    public byte[] toBytes() {
+        ByteBuffer out = ByteBuffer.allocate(INITIAL_CAPACITY * (states.length + 1));
+        while (true) {
+            try {
+                ((Buffer) out).clear();
+                write(out);
+                break;
+            } catch (BufferOverflowException | IndexOutOfBoundsException e) {
+                out = ByteBuffer.allocate(out.capacity() * 2);
+            }
+        }
+        byte[] bytes = new byte[out.position()];
+        ((Buffer) out).flip();
+        out.get(bytes);
+        return bytes;
+    }
+
+    private void write(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        KeyframeCodec.writeString(out, tableId);
+        out.putShort((short) states.length);
+        out.putLong(seed);
+        out.putInt(tick);
+        out.putInt(tickRate);
+        out.put((byte) (running ? 1 : 0));
+        out.putFloat(countdownRemaining);
+        out.putLong(token);
+        for (YipeeGameBoardState state : states) {
+            KeyframeCodec.write(out, state);
+        }
+
+        out.putInt(sessions.size());
+        for (Map.Entry<String, Integer> session : sessions.entrySet()) {
+            KeyframeCodec.writeString(out, session.getKey());
+            out.put(session.getValue().byteValue());
+        }
+
+        out.putInt(pending.size());
+        for (PlayerActionRequest request : pending) {
+            KeyframeCodec.writeString(out, request.getClientId());
+            KeyframeCodec.writeString(out, request.getSessionId());
+            out.putLong(request.getClientTick());
+            JournalFormat.writeAction(out, tick, request.getPlayerAction());
+        }
+    }
+
+    /**
+     * Decodes a migration produced by {@link #toBytes()}.
+     *
+     * @param bytes the encoded migration
+     * @return the migration
+     * @throws IllegalArgumentException if the bytes are not a migration this node can read
+     */
+    public static TableMigration fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a table migration");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported table migration version " + version);
+            }
+            String tableId = KeyframeCodec.readString(in);
+            YipeeGameBoardState[] states = new YipeeGameBoardState[in.getShort()];
+            long seed = in.getLong();
+            int tick = in.getInt();
+            int tickRate = in.getInt();
+            boolean running = in.get() != 0;
+            float countdownRemaining = in.getFloat();
+            long token = in.getLong();
+            for (int seat = 0; seat < states.length; seat++) {
+                states[seat] = KeyframeCodec.read(in);
+            }
+
+            Map<String, Integer> sessions = new LinkedHashMap<>();
+            for (int i = in.getInt(); i > 0; i--) {
+                String sessionId = KeyframeCodec.readString(in);
+                sessions.put(sessionId, (int) in.get());
+            }
+
+            List<PlayerActionRequest> pending = new ArrayList<>();
+            for (int i = in.getInt(); i > 0; i--) {
+                PlayerActionRequest request = new PlayerActionRequest();
+                request.setGameId(tableId);
+                request.setClientId(KeyframeCodec.readString(in));
+                request.setSessionId(KeyframeCodec.readString(in));
+                request.setClientTick(in.getLong());
+                in.getInt();
+                PlayerAction action = JournalFormat.readAction(in);
+                request.setPlayerAction(action);
+                pending.add(request);
+            }
+            return new TableMigration(tableId, seed, tick, tickRate, running, countdownRemaining, token, states,
+                sessions, pending);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated table migration", e);
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import asg.games.yipee.core.tools.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Advances registered tables at a fixed tick rate on a fixed set of shard threads.
+ *
+ * <p>Every table is pinned to one shard, chosen from the hash of its table id, and is only
+ * ever updated by that shard's thread. Together with the per-table input queue in
+ * {@link ServerGameManager} this keeps all board mutation single-threaded without locks,
+ * while network threads enqueue actions independently. Shards share nothing, so throughput
+ * grows with the number of shards up to the number of available cores.
+ *
+ * <p>Each shard keeps its own clock. Tick deadlines are computed from the start time
+ * ({@code start + n * period}) rather than from the end of the previous tick, so sleep jitter
+ * and slow ticks do not accumulate as drift. When a tick starts late the shard runs the next
+ * ticks back to back to catch up; if it falls more than {@link #MAX_CATCH_UP_TICKS} behind,
+ * the backlog is dropped and counted as skipped. Timing is published per shard as a
+ * {@link TickStats}.
+ *
+ * <p>The base rate is the highest rate any table runs at. A {@link TickRatePolicy} may
+ * update a table only every few shard ticks, with a proportionally longer step, depending
+ * on its game phase and the shard's load; simulated time, and so game speed, is
+ * unchanged. The table's current rate is set on it, so every response it sends tells
+ * clients the rate to interpolate at.
+ *
+ * <p>With a {@link TableCheckpointer} set, each shard snapshots its running tables once per
+ * checkpoint interval, at the end of a tick, and leaves the writing to the checkpointer's
+ * thread.
+ */
+public class TableTickScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(TableTickScheduler.class);
+
+    public static final int DEFAULT_TICK_RATE = 60;
+    public static final int MAX_CATCH_UP_TICKS = 5;
+    /** Shard ticks between re-evaluations of a shard's degrade level. */
+    static final int DEGRADE_CHECK_TICKS = 16;
+
+    private final int tickRate;
+    private final long periodNanos;
+    private final float tickDelta;
+    private final Shard[] shards;
+    private final TickRatePolicy policy;
+    private volatile TableCheckpointer checkpointer;
+    private volatile boolean running;
+
+    /**
+     * Creates a scheduler that runs every table at a fixed rate.
+     *
+     * @param tickRate   ticks per second
+     * @param shardCount number of shard threads tables are spread across
+     */
+    public TableTickScheduler(int tickRate, int shardCount) {
+        this(tickRate, shardCount, TickRatePolicy.FIXED);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param tickRate   base ticks per second
+     * @param shardCount number of shard threads tables are spread across
+     * @param policy     decides each table's rate
+     */
+    public TableTickScheduler(int tickRate, int shardCount, TickRatePolicy policy) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be positive: " + tickRate);
+        }
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        this.tickRate = tickRate;
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+        this.tickDelta = 1f / tickRate;
+        this.policy = policy;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getTableCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.tables.size();
+        }
+        return count;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the shard a table id is pinned to.
+     *
+     * @param tableId the table id
+     * @return shard index in {@code [0, getShardCount())}
+     */
+    public int shardOf(String tableId) {
+        int hash = tableId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Returns timing for the most recent tick of a shard.
+     *
+     * @param shard shard index
+     */
+    public TickStats getShardStats(int shard) {
+        return shards[shard].stats;
+    }
+
+    /**
+     * Returns timing combined across shards: counters and table counts are summed, durations,
+     * lag and degrade level are the worst of any shard, and {@code ticks} is the count of the
+     * slowest shard.
+     */
+    public TickStats getStats() {
+        long ticks = Long.MAX_VALUE;
+        long skipped = 0;
+        long overruns = 0;
+        int tables = 0;
+        long last = 0;
+        long slowest = 0;
+        long max = 0;
+        long average = 0;
+        long lag = 0;
+        int degradeLevel = 0;
+        for (Shard shard : shards) {
+            TickStats stats = shard.stats;
+            ticks = Math.min(ticks, stats.getTicks());
+            skipped += stats.getSkippedTicks();
+            overruns += stats.getOverruns();
+            tables += stats.getTableCount();
+            last = Math.max(last, stats.getLastTickNanos());
+            slowest = Math.max(slowest, stats.getSlowestTableNanos());
+            max = Math.max(max, stats.getMaxTickNanos());
+            average = Math.max(average, stats.getAverageTickNanos());
+            lag = Math.max(lag, stats.getLastLagNanos());
+            degradeLevel = Math.max(degradeLevel, stats.getDegradeLevel());
+        }
+        return new TickStats(ticks, skipped, overruns, tables, last, slowest, max, average, lag, degradeLevel);
+    }
+
+    /**
+     * Sets where shards send periodic snapshots of their tables.
+     *
+     * @param checkpointer the checkpointer, or {@code null} to stop checkpointing
+     */
+    public void setCheckpointer(TableCheckpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Adds a table to its shard. It is advanced on its shard's ticks, as often as the policy
+     * allows, while its game loop is running.
+     *
+     * @param table the table to drive
+     */
+    public void register(ServerGameManager table) {
+        table.setTickRate(tickRate);
+        table.tickInterval = 1;
+        table.ticksUntilDue = 0;
+        Shard shard = shards[shardOf(table.getTableId())];
+        shard.tables.add(table);
+        logger.debug("Registered table {} on shard {} ({} tables)", table.getTableId(), shard.index, shard.tables.size());
+    }
+
+    /**
+     * Removes a table. Takes effect from its shard's next tick. The table is also left out
+     * of later checkpoints, so a table migrated away is not resumed here after a restart.
+     *
+     * @param table the table to remove
+     */
+    public void unregister(ServerGameManager table) {
+        Shard shard = shards[shardOf(table.getTableId())];
+        if (shard.tables.remove(table)) {
+            logger.debug("Unregistered table {} from shard {} ({} tables)", table.getTableId(), shard.index, shard.tables.size());
+        }
+        TableCheckpointer target = checkpointer;
+        if (target != null) {
+            target.forget(table.getTableId());
+        }
+    }
+
+    /**
+     * Starts one thread per shard.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread = new Thread(shard, "yipee-tick-shard-" + shard.index);
+            shard.thread.setDaemon(true);
+            shard.thread.start();
+        }
+        logger.info("Tick scheduler started at {} ticks/s with {} shards", tickRate, shards.length);
+    }
+
+    /**
+     * Stops every shard after its current tick.
+     *
+     * @throws InterruptedException if interrupted while waiting for the shards to stop
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            if (shard.thread != null) {
+                LockSupport.unpark(shard.thread);
+                shard.thread.join();
+                shard.thread = null;
+            }
+        }
+        logger.info("Tick scheduler stopped: {}", getStats());
+    }
+
+    /**
+     * Advances every running table of one shard by one tick on the calling thread.
+     *
+     * @param shard    shard index
+     * @param lagNanos how late this tick started relative to its schedule
+     */
+    void tick(int shard, long lagNanos) {
+        shards[shard].tick(lagNanos);
+    }
+
+    private final class Shard implements Runnable {
+        private final int index;
+        private final List<ServerGameManager> tables = new CopyOnWriteArrayList<>();
+        private volatile TickStats stats = TickStats.EMPTY;
+        private Thread thread;
+
+        // Written only by the shard thread
+        private long ticks;
+        private long skippedTicks;
+        private long overruns;
+        private long maxTickNanos;
+        private long totalTickNanos;
+        private double load;
+        private int degradeLevel;
+        private long lastCheckpointNanos = TimeUtils.nanoTime();
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            long nextTick = TimeUtils.nanoTime();
+            while (running) {
+                long lag = TimeUtils.nanoTime() - nextTick;
+                if (lag < 0) {
+                    LockSupport.parkNanos(-lag);
+                    continue;
+                }
+                if (lag >= periodNanos * MAX_CATCH_UP_TICKS) {
+                    long behind = lag / periodNanos;
+                    skippedTicks += behind;
+                    nextTick += behind * periodNanos;
+                    lag -= behind * periodNanos;
+                    logger.warn("Tick shard {} fell {} ticks behind; skipping ahead", index, behind);
+                }
+                tick(lag);
+                nextTick += periodNanos;
+            }
+        }
+
+        void tick(long lagNanos) {
+            long start = TimeUtils.nanoTime();
+            long slowest = 0;
+            int updated = 0;
+
+            for (ServerGameManager table : tables) {
+                try {
+                    if (table.isRunning() && --table.ticksUntilDue <= 0) {
+                        table.update(tickDelta * table.tickInterval);
+                        updated++;
+                        slowest = Math.max(slowest, table.getLastUpdateNanos());
+                        if (table.isRunning()) {
+                            schedule(table);
+                        } else {
+                            unregister(table);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Table {} failed during tick; removing it", table.getTableId(), e);
+                    table.endGameLoop();
+                    unregister(table);
+                }
+            }
+            checkpoint(start);
+
+            long elapsed = TimeUtils.nanoTime() - start;
+            ticks++;
+            totalTickNanos += elapsed;
+            maxTickNanos = Math.max(maxTickNanos, elapsed);
+            if (elapsed > periodNanos) {
+                overruns++;
+            }
+            load = policy.smoothLoad(load, (double) elapsed / periodNanos);
+            if (ticks % DEGRADE_CHECK_TICKS == 0) {
+                int level = policy.nextDegradeLevel(degradeLevel, load);
+                if (level != degradeLevel) {
+                    logger.info("Tick shard {} load {}: degrade level {} -> {}",
+                        index, String.format("%.2f", load), degradeLevel, level);
+                    degradeLevel = level;
+                }
+            }
+            stats = new TickStats(ticks, skippedTicks, overruns, updated, elapsed, slowest,
+                maxTickNanos, totalTickNanos / ticks, lagNanos, degradeLevel);
+        }
+
+        private void checkpoint(long now) {
+            TableCheckpointer target = checkpointer;
+            if (target == null || now - lastCheckpointNanos < target.getIntervalNanos()) {
+                return;
+            }
+            lastCheckpointNanos = now;
+            for (ServerGameManager table : tables) {
+                if (table.isRunning()) {
+                    try {
+                        target.offer(TableMigration.snapshot(table));
+                    } catch (RuntimeException e) {
+                        logger.warn("Unable to snapshot table {}", table.getTableId(), e);
+                    }
+                }
+            }
+        }
+
+        private void schedule(ServerGameManager table) {
+            int interval = policy.intervalFor(table, degradeLevel);
+            if (interval != table.tickInterval) {
+                table.tickInterval = interval;
+                table.setTickRate(Math.max(1, tickRate / interval));
+            }
+            table.ticksUntilDue = interval;
+        }
+    }
+}
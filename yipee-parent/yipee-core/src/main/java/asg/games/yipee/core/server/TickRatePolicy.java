@@ -0,0 +1,122 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+/**
+ * Decides how often a {@link TableTickScheduler} updates each table.
+ *
+ * <p>A shard always runs at the scheduler's base rate; a table is updated every
+ * {@code interval} shard ticks with a step {@code interval} times as long, so it runs at
+ * {@code baseRate / interval} without changing game speed. Intervals are chosen from:
+ * <ul>
+ *     <li>the table: a running game gets the active interval, while a countdown or a
+ *     table that is not running gets the idle interval. The spawn and break phases
+ *     between pieces are too short to switch on; each switch changes the step length
+ *     clients interpolate with and is journaled;</li>
+ *     <li>the shard's load, the smoothed fraction of each tick period spent updating
+ *     tables: above {@code highLoad} the degrade level rises and every interval is
+ *     doubled per level up to {@code maxInterval}; below {@code lowLoad} it falls back.</li>
+ * </ul>
+ *
+ * <p>Policies are immutable and may be shared between schedulers.
+ */
+public class TickRatePolicy {
+    /** Every table at the base rate, regardless of phase or load. */
+    public static final TickRatePolicy FIXED = new TickRatePolicy(1, 1, 1, 1.0, 1.0);
+
+    private static final double LOAD_SMOOTHING = 0.1;
+
+    private final int activeInterval;
+    private final int idleInterval;
+    private final int maxInterval;
+    private final double highLoad;
+    private final double lowLoad;
+
+    /**
+     * Creates a policy.
+     *
+     * @param activeInterval shard ticks between updates while the game is running
+     * @param idleInterval   shard ticks between updates otherwise
+     * @param maxInterval    longest interval load shedding may stretch a table to
+     * @param highLoad       load above which tables are degraded further
+     * @param lowLoad        load below which degradation is relaxed
+     */
+    public TickRatePolicy(int activeInterval, int idleInterval, int maxInterval, double highLoad, double lowLoad) {
+        if (activeInterval <= 0 || idleInterval < activeInterval || maxInterval < idleInterval) {
+            throw new IllegalArgumentException("Intervals must satisfy 0 < active <= idle <= max: "
+                + activeInterval + ", " + idleInterval + ", " + maxInterval);
+        }
+        if (lowLoad > highLoad) {
+            throw new IllegalArgumentException("lowLoad must not exceed highLoad: " + lowLoad + " > " + highLoad);
+        }
+        this.activeInterval = activeInterval;
+        this.idleInterval = idleInterval;
+        this.maxInterval = maxInterval;
+        this.highLoad = highLoad;
+        this.lowLoad = lowLoad;
+    }
+
+    /**
+     * Returns a policy that runs active tables at the base rate, idle tables and countdowns
+     * at a quarter of it, and sheds load down to a quarter of the base rate.
+     */
+    public static TickRatePolicy adaptive() {
+        return new TickRatePolicy(1, 4, 4, 0.8, 0.5);
+    }
+
+    /**
+     * Returns the interval, in shard ticks, for a table's next update.
+     *
+     * @param table        the table
+     * @param degradeLevel the shard's current degrade level
+     * @return interval of at least one
+     */
+    public int intervalFor(ServerGameManager table, int degradeLevel) {
+        int interval = table.isRunning() && !table.isCountingDown() ? activeInterval : idleInterval;
+        if (degradeLevel > 0) {
+            interval = (int) Math.min((long) interval << Math.min(degradeLevel, 30), maxInterval);
+        }
+        return Math.max(interval, 1);
+    }
+
+    /**
+     * Folds the latest tick's load into a shard's smoothed load.
+     *
+     * @param smoothedLoad previous smoothed load
+     * @param tickLoad     time spent in the last tick divided by the tick period
+     * @return new smoothed load
+     */
+    public double smoothLoad(double smoothedLoad, double tickLoad) {
+        return smoothedLoad + (tickLoad - smoothedLoad) * LOAD_SMOOTHING;
+    }
+
+    /**
+     * Returns a shard's next degrade level given its smoothed load.
+     *
+     * @param degradeLevel current level, zero when not degraded
+     * @param smoothedLoad smoothed load
+     * @return the new level
+     */
+    public int nextDegradeLevel(int degradeLevel, double smoothedLoad) {
+        if (smoothedLoad > highLoad && (activeInterval << degradeLevel) < maxInterval) {
+            return degradeLevel + 1;
+        }
+        if (smoothedLoad < lowLoad && degradeLevel > 0) {
+            return degradeLevel - 1;
+        }
+        return degradeLevel;
+    }
+}
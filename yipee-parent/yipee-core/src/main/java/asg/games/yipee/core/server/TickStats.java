@@ -0,0 +1,81 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core.server;
+
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of a {@link TableTickScheduler} shard's timing, published after every tick.
+ *
+ * <p>All durations are in nanoseconds. A tick is an <em>overrun</em> when advancing every
+ * table took longer than the tick period; <em>skipped</em> ticks were dropped because the
+ * scheduler fell too far behind to catch up.
+ */
+@Getter
+public final class TickStats {
+    public static final TickStats EMPTY = new TickStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    /** Ticks completed since the scheduler started. */
+    private final long ticks;
+    /** Ticks dropped to recover from falling behind. */
+    private final long skippedTicks;
+    /** Ticks whose work took longer than the tick period. */
+    private final long overruns;
+    /** Tables advanced during the last tick. */
+    private final int tableCount;
+    /** Wall time of the last tick, from first table started to last table finished. */
+    private final long lastTickNanos;
+    /** Longest single-table update during the last tick. */
+    private final long slowestTableNanos;
+    /** Longest tick seen so far. */
+    private final long maxTickNanos;
+    /** Mean tick duration since the scheduler started. */
+    private final long averageTickNanos;
+    /** How late the last tick started relative to its schedule. */
+    private final long lastLagNanos;
+    /** How many times the {@link TickRatePolicy} has halved table rates to shed load. */
+    private final int degradeLevel;
+
+    TickStats(long ticks, long skippedTicks, long overruns, int tableCount, long lastTickNanos,
+              long slowestTableNanos, long maxTickNanos, long averageTickNanos, long lastLagNanos,
+              int degradeLevel) {
+        this.ticks = ticks;
+        this.skippedTicks = skippedTicks;
+        this.overruns = overruns;
+        this.tableCount = tableCount;
+        this.lastTickNanos = lastTickNanos;
+        this.slowestTableNanos = slowestTableNanos;
+        this.maxTickNanos = maxTickNanos;
+        this.averageTickNanos = averageTickNanos;
+        this.lastLagNanos = lastLagNanos;
+        this.degradeLevel = degradeLevel;
+    }
+
+    @Override
+    public String toString() {
+        return "TickStats[ticks=" + ticks +
+            ", skipped=" + skippedTicks +
+            ", overruns=" + overruns +
+            ", tables=" + tableCount +
+            ", last=" + lastTickNanos +
+            ", slowestTable=" + slowestTableNanos +
+            ", max=" + maxTickNanos +
+            ", avg=" + averageTickNanos +
+            ", lag=" + lastLagNanos +
+            ", degrade=" + degradeLevel +
+            "]";
+    }
+}
@@ -110,6 +110,12 @@ public class RandomUtil {
     public static class RandomNumberArray implements CommonRandomNumberArray, Serializable {
         int[] randomNumbers;
 
+        /**
+         * No-arg constructor for Kryo.
+         */
+        protected RandomNumberArray() {
+        }
+
         public RandomNumberArray(int byteLength, long seed, int maxValue) {
             randomNumbers = new int[byteLength];
             RandomNumber numberGenerator = new RandomNumber(seed);
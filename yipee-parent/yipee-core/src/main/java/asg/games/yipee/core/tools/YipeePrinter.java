@@ -18,8 +18,8 @@ package asg.games.yipee.core.tools;
 import asg.games.yipee.common.game.GameBoardState;
 import asg.games.yipee.core.game.YipeeBlockEval;
 import asg.games.yipee.core.game.YipeeGameBoard;
+import asg.games.yipee.core.game.YipeeGameBoardView;
 import asg.games.yipee.core.objects.YipeeBlock;
-import asg.games.yipee.core.objects.YipeeGameBoardState;
 import asg.games.yipee.core.objects.YipeePiece;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.Getter;
@@ -33,6 +33,7 @@ import java.util.Arrays;
 @Setter
 public class YipeePrinter {
     public static final YipeePrinter INSTANCE = new YipeePrinter();
+    private static final int[][] EMPTY_CELLS = new int[YipeeGameBoard.MAX_ROWS][YipeeGameBoard.MAX_COLS];
 
     private int logLevel = 0;
 
@@ -62,14 +63,14 @@ public class YipeePrinter {
 
     public static void printYipeeBoard(YipeeGameBoard board) throws JsonProcessingException {
         if (board != null) {
-            printYipeeBoardState(board.exportGameState());
+            printYipeeBoardState(board.getStateView());
         }
     }
 
     public static String toStringYipeeBoard(YipeeGameBoard board) throws JsonProcessingException {
         String output = "";
         if (board != null) {
-            output = getYipeeBoardStateString(board.exportGameState());
+            output = getYipeeBoardStateString(board.getStateView());
         }
         return output;
     }
@@ -88,7 +89,7 @@ public class YipeePrinter {
 
     public String getYipeeBoardOutput(YipeeGameBoard board) throws JsonProcessingException {
         if (board != null) {
-            return getYipeeBoardStateOutput(board.exportGameState());
+            return getYipeeBoardStateOutput(board.getStateView());
         }
         return "";
     }
@@ -102,12 +103,10 @@ public class YipeePrinter {
         return stateToString(gameState, 0);
     }
 
-    public String stateToString(GameBoardState inState, int depth) throws JsonProcessingException {
-        if (inState == null) throw new IllegalArgumentException("GameState cannot be null.");
+    public String stateToString(GameBoardState gameState, int depth) throws JsonProcessingException {
+        if (gameState == null) throw new IllegalArgumentException("GameState cannot be null.");
         if (depth > 1) return "(partner omitted to prevent circular reference)";
 
-        YipeeGameBoardState gameState = (YipeeGameBoardState) inState;
-
         StringBuilder out = new StringBuilder();
         if (isLogInfo()) {
             out.append("#################").append("\n");
@@ -146,14 +145,14 @@ public class YipeePrinter {
 
         if (isLogWarn()) {
             out.append("#################").append("\n");
-            YipeePiece piece = NetUtil.getObjectFromJsonString(YipeePiece.class, gameState.getPiece());
+            YipeePiece piece = readPiece(gameState);
             if (piece != null) {
                 out.append("player piece pos(").append(piece.column).append(",").append(piece.row).append(")").append("\n");
             }
             out.append("#################").append("\n");
             addPrintLine(out);
             for (int r = YipeeGameBoard.MAX_ROWS - 1; r > -1; r--) {
-                printRow(out, r, gameState, depth);
+                printRow(out, r, gameState, piece);
                 printRowReturn(out);
             }
             addPrintLine(out);
@@ -164,7 +163,7 @@ public class YipeePrinter {
         return out.toString();
     }
 
-    private int[][] getPartnerCells(YipeeGameBoardState partnerBoardState) {
+    private int[][] getPartnerCells(GameBoardState partnerBoardState) {
         int[][] cells = new int[YipeeGameBoard.MAX_ROWS][YipeeGameBoard.MAX_COLS];
 
         if (partnerBoardState != null) {
@@ -173,26 +172,30 @@ public class YipeePrinter {
         return cells;
     }
 
-    private int[][] getPartnerCells(YipeeGameBoardState partner, int depth) {
+    private int[][] getPartnerCells(GameBoardState partner, int depth) {
         if (partner != null && partner.getPlayerCells() != null) {
             return partner.getPlayerCells();
         }
         return new int[YipeeGameBoard.MAX_ROWS][YipeeGameBoard.MAX_COLS];
     }
 
-    private void printRow(StringBuilder out, int r, @NotNull YipeeGameBoardState gameState, int depth) throws JsonProcessingException {
+    private static int[][] orEmpty(int[][] cells) {
+        return cells != null ? cells : EMPTY_CELLS;
+    }
+
+    private void printRow(StringBuilder out, int r, @NotNull GameBoardState gameState, YipeePiece piece) {
         boolean isPartnerRight = gameState.isPartnerRight();
-        int[][] playerCells = gameState.getPlayerCells();
-        int[][] partnerCells = gameState.getPartnerCells();
+        int[][] playerCells = orEmpty(gameState.getPlayerCells());
+        int[][] partnerCells = orEmpty(gameState.getPartnerCells());
 
         if (isPartnerRight) {
-            printPlayerRows(playerCells, partnerCells, r, out, gameState);
+            printPlayerRows(playerCells, partnerCells, r, out, gameState, piece);
         } else {
-            printPlayerRows(partnerCells, playerCells, r, out, gameState);
+            printPlayerRows(partnerCells, playerCells, r, out, gameState, piece);
         }
     }
 
-    private void printPlayerRows(int[][] cellsLeft, int[][] cellsRight, int r, StringBuilder out, @NotNull YipeeGameBoardState gameState) throws JsonProcessingException {
+    private void printPlayerRows(int[][] cellsLeft, int[][] cellsRight, int r, StringBuilder out, @NotNull GameBoardState gameState, YipeePiece piece) {
         boolean isPartnerRight = gameState.isPartnerRight();
         for (int c = 0; c < YipeeGameBoard.MAX_COLS * 2; c++) {
             int block;
@@ -200,10 +203,10 @@ public class YipeePrinter {
                 out.append('|');
             }
             if (c < YipeeGameBoard.MAX_COLS) {
-                block = isPieceBlock(r, c, gameState) && isPartnerRight ? getPieceBlock(r, gameState) : getPieceValue(cellsLeft, c, r);
+                block = isPieceBlock(r, c, piece) && isPartnerRight ? getPieceBlock(r, piece) : getPieceValue(cellsLeft, c, r);
                 printGameLine(out, block);
             } else {
-                block = isPieceBlock(r, c - YipeeGameBoard.MAX_COLS, gameState) && !isPartnerRight ? getPieceBlock(r, gameState) : getPieceValue(cellsRight, c - YipeeGameBoard.MAX_COLS, r);
+                block = isPieceBlock(r, c - YipeeGameBoard.MAX_COLS, piece) && !isPartnerRight ? getPieceBlock(r, piece) : getPieceValue(cellsRight, c - YipeeGameBoard.MAX_COLS, r);
                 printGameLine(out, block);
             }
         }
@@ -237,13 +240,19 @@ public class YipeePrinter {
         out.append("\n");
     }
 
-    private boolean isPieceBlock(int row, int col, @NotNull YipeeGameBoardState gameState) throws JsonProcessingException {
-        YipeePiece piece = NetUtil.getObjectFromJsonString(YipeePiece.class, gameState.getPiece());
+    private YipeePiece readPiece(GameBoardState gameState) throws JsonProcessingException {
+        if (gameState instanceof YipeeGameBoardView) {
+            return ((YipeeGameBoardView) gameState).getPieceObject();
+        }
+        String json = gameState.getPiece();
+        return json == null ? null : NetUtil.getObjectFromJsonString(YipeePiece.class, json);
+    }
+
+    private boolean isPieceBlock(int row, int col, YipeePiece piece) {
         return piece != null && piece.column == col && (piece.row == row || piece.row + 1 == row || piece.row + 2 == row);
     }
 
-    private int getPieceBlock(int row, YipeeGameBoardState gameState) throws JsonProcessingException {
-        YipeePiece piece = NetUtil.getObjectFromJsonString(YipeePiece.class, gameState.getPiece());
+    private int getPieceBlock(int row, YipeePiece piece) {
         return piece.getValueAt(Math.abs(2 - (row - piece.row)));
     }
 
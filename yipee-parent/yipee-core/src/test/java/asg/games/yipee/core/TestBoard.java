@@ -16,7 +16,10 @@
 package asg.games.yipee.core;
 
 import asg.games.yipee.core.game.YipeeGameBoard;
+import asg.games.yipee.core.game.YipeeGameBoardView;
+import asg.games.yipee.core.objects.YipeeGameBoardState;
 import asg.games.yipee.core.tools.RandomUtil;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
@@ -34,6 +37,82 @@ public class TestBoard {
         System.out.println("realArray=" + Arrays.toString(randomToArray(nextBlocks)));
     }
 
+    @Test()
+    public void testStateChecksumIsDeterministic() {
+        YipeeGameBoard board1 = new YipeeGameBoard(1);
+        YipeeGameBoard board2 = new YipeeGameBoard(1);
+
+        Assert.assertEquals(board1.getStateChecksum(), board2.getStateChecksum());
+
+        board1.getNewNextPiece();
+        board2.getNewNextPiece();
+        Assert.assertEquals(board1.getStateChecksum(), board2.getStateChecksum());
+    }
+
+    @Test()
+    public void testStateChecksumDetectsDivergence() {
+        YipeeGameBoard board1 = new YipeeGameBoard(1);
+        YipeeGameBoard board2 = new YipeeGameBoard(1);
+        board1.getNewNextPiece();
+        board2.getNewNextPiece();
+
+        board2.movePieceLeft();
+        Assert.assertNotEquals(board1.getStateChecksum(), board2.getStateChecksum());
+
+        board1.movePieceLeft();
+        Assert.assertEquals(board1.getStateChecksum(), board2.getStateChecksum());
+
+        board2.setCell(0, 0, 1);
+        Assert.assertNotEquals(board1.getStateChecksum(), board2.getStateChecksum());
+    }
+
+    @Test()
+    public void testStateViewReadsLiveBoard() throws Exception {
+        YipeeGameBoard board = new YipeeGameBoard(1);
+        YipeeGameBoardView view = board.getStateView();
+
+        Assert.assertSame(view, board.getStateView());
+        Assert.assertSame(view.getPlayerCells(), board.getCells());
+
+        board.setCell(0, 0, 3);
+        Assert.assertEquals(view.getPlayerCells()[0][0], 3);
+        Assert.assertThrows(UnsupportedOperationException.class, () -> view.setBoardNumber(2));
+    }
+
+    @Test()
+    public void testStateViewReusesJsonUntilRestamped() throws Exception {
+        YipeeGameBoard board = new YipeeGameBoard(1);
+        YipeeGameBoardView view = board.getStateView();
+        board.tick(1 / 60f);
+        long first = view.getCurrentStateTimeStamp();
+
+        String piece = view.getPiece();
+        board.getStateView();
+        Assert.assertSame(view.getPiece(), piece);
+        Assert.assertEquals(view.getCurrentStateTimeStamp(), first);
+        Assert.assertSame(view.getPieceObject(), board.getPiece());
+        Assert.assertEquals(view.getServerGameStartTime(), 0);
+
+        board.getGameClock().start();
+        board.tick(1 / 60f);
+        Assert.assertNotSame(view.getPiece(), piece);
+        Assert.assertEquals(view.getPiece(), piece);
+        Assert.assertEquals(view.getPreviousStateTimeStamp(), first);
+        Assert.assertEquals(view.getServerGameStartTime(), board.getGameClock().getStart());
+    }
+
+    @Test()
+    public void testStateViewFreezeIsDetached() throws Exception {
+        YipeeGameBoard board = new YipeeGameBoard(1);
+        board.setCell(0, 0, 3);
+
+        YipeeGameBoardState frozen = board.getStateView().freeze();
+        board.setCell(0, 0, 5);
+
+        Assert.assertEquals(frozen.getPlayerCells()[0][0], 3);
+        Assert.assertNotSame(frozen.getPlayerCells(), board.getCells());
+    }
+
     private int[] randomToArray(RandomUtil.RandomNumberArray blocksArray) {
         int[] testReturn = new int[2048];
         for (int i = 0; i < 2048; i++) {
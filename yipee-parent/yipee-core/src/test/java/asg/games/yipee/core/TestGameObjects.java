@@ -287,6 +287,59 @@ public class TestGameObjects {
         Assert.assertEquals(pair.getRightBoard(), board2);
     }
 
+    @Test
+    public void testGameBoardStateCopyOnWrite() {
+        YipeeGameBoardState original = new YipeeGameBoardState();
+        original.setPlayerCells(new int[16][6]);
+        original.setCountOfBreaks(new int[6]);
+        original.setPowers(Arrays.asList(1, 2));
+
+        YipeeGameBoardState snapshot = original.copy();
+        Assert.assertSame(snapshot.getPlayerCells()[3], original.getPlayerCells()[3]);
+
+        snapshot.setPlayerCell(3, 2, 7);
+        snapshot.mutableCountOfBreaks()[0] = 4;
+        snapshot.mutablePowers().add(3);
+
+        Assert.assertEquals(original.getPlayerCells()[3][2], 0);
+        Assert.assertEquals(snapshot.getPlayerCells()[3][2], 7);
+        Assert.assertSame(snapshot.getPlayerCells()[4], original.getPlayerCells()[4]);
+        Assert.assertEquals(original.getCountOfBreaks()[0], 0);
+        Assert.assertEquals(original.getPowers().size(), 2);
+        Assert.assertEquals(snapshot.getPowers().size(), 3);
+
+        // The original gives up ownership on its first write after the snapshot
+        original.setPlayerCell(4, 0, 9);
+        Assert.assertEquals(snapshot.getPlayerCells()[4][0], 0);
+        int[] copiedRow = original.getPlayerCells()[4];
+        original.setPlayerCell(4, 1, 9);
+        Assert.assertSame(original.getPlayerCells()[4], copiedRow);
+
+        // Copying a snapshot taken from the original leaves the snapshot's own rows alone
+        YipeeGameBoardState second = snapshot.copy();
+        snapshot.setPlayerCell(3, 2, 8);
+        Assert.assertEquals(second.getPlayerCells()[3][2], 7);
+    }
+
+    @Test
+    public void testGameBoardStateDeepCopyKeepsSourceOwnership() {
+        YipeeGameBoardState original = new YipeeGameBoardState();
+        original.setPlayerCells(new int[16][6]);
+        original.setPowers(Arrays.asList(1, 2));
+        original.setPlayerCell(4, 0, 1);
+        int[] ownedRow = original.getPlayerCells()[4];
+        Object ownedPowers = original.mutablePowers();
+
+        YipeeGameBoardState copy = original.deepCopy();
+        original.setPlayerCell(4, 0, 9);
+        original.mutablePowers().add(3);
+
+        Assert.assertSame(original.getPlayerCells()[4], ownedRow);
+        Assert.assertSame(original.mutablePowers(), ownedPowers);
+        Assert.assertEquals(copy.getPlayerCells()[4][0], 1);
+        Assert.assertEquals(copy.getPowers().size(), 2);
+    }
+
     @Test
     public void testYokelBlockMove() throws JsonProcessingException {
         YipeeBlockMove blockMove = new YipeeBlockMove(5, 5, 1, 2, 4);
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core;
+
+import asg.games.yipee.core.loadtest.LoadGenerator;
+import asg.games.yipee.core.loadtest.LoadReport;
+import asg.games.yipee.net.transport.LinkConditions;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestLoadGenerator {
+
+    @Test()
+    public void testSyntheticClientsPlayOverLossyLinks() {
+        LinkConditions lossy = new LinkConditions(60, 40, 0.03, LinkConditions.UNLIMITED);
+        LoadReport report = new LoadGenerator(16, 8, lossy, 7L).run(10);
+
+        Assert.assertEquals(report.getTables(), 2);
+        Assert.assertTrue(report.getGamesStarted() >= 2, report.toString());
+        Assert.assertTrue(report.getActionsSent() > 0, report.toString());
+        Assert.assertTrue(report.getActionsAcked() > report.getActionsSent() / 2, report.toString());
+        Assert.assertTrue(report.getLatencyP50() >= 2 * lossy.getLatencyMillis(), report.toString());
+        Assert.assertTrue(report.getUpdatesReceived() > 0, report.toString());
+        Assert.assertTrue(report.getBytesUpPerClientSecond() > 0, report.toString());
+        Assert.assertTrue(report.getBytesDownPerClientSecond() > report.getBytesUpPerClientSecond(), report.toString());
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.core;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.core.game.YipeeTableSimulation;
+import asg.games.yipee.core.replay.ReplayJournalReader;
+import asg.games.yipee.core.replay.ReplayJournalWriter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestReplayJournal {
+    private static final int BOARDS = 4;
+    private static final int TICKS = 120;
+    private static final float DELTA = 1f / 30f;
+
+    @Test()
+    public void testSeekMatchesRecordedMatch() throws Exception {
+        Path file = Files.createTempFile("yipee-replay", ".journal");
+        long[][] expected = new long[TICKS + 1][];
+
+        YipeeTableSimulation live = new YipeeTableSimulation(42, BOARDS);
+        live.begin();
+        try (ReplayJournalWriter writer = ReplayJournalWriter.create(file, "table-1", 42, BOARDS, DELTA, 25)) {
+            for (int tick = 0; tick < TICKS; tick++) {
+                expected[tick] = checksums(live);
+                writer.recordTick(live);
+                PlayerAction action = scriptedAction(tick);
+                if (action != null) {
+                    live.applyAction(action);
+                    writer.recordAction(tick, action);
+                }
+                live.step(DELTA);
+            }
+            expected[TICKS] = checksums(live);
+        }
+        Assert.assertNotEquals(expected[TICKS], expected[0], "match did not progress");
+
+        try (ReplayJournalReader reader = ReplayJournalReader.open(file)) {
+            Assert.assertEquals(reader.getTableId(), "table-1");
+            Assert.assertEquals(reader.getSeed(), 42);
+            Assert.assertEquals(reader.getKeyframeCount(), 5);
+
+            for (int tick : new int[]{0, 1, 24, 25, 26, 63, 100, TICKS}) {
+                YipeeTableSimulation replayed = reader.seek(tick);
+                Assert.assertEquals(replayed.getTick(), tick);
+                Assert.assertEquals(checksums(replayed), expected[tick], "diverged at tick " + tick);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test()
+    public void testSeekFollowsTickDeltaChanges() throws Exception {
+        Path file = Files.createTempFile("yipee-replay", ".journal");
+        long[][] expected = new long[TICKS + 1][];
+
+        YipeeTableSimulation live = new YipeeTableSimulation(7, BOARDS);
+        live.begin();
+        try (ReplayJournalWriter writer = ReplayJournalWriter.create(file, "table-2", 7, BOARDS, 1f / 60f, 25)) {
+            for (int tick = 0; tick < TICKS; tick++) {
+                float delta = tick >= 40 && tick < 80 ? 4f / 60f : 1f / 60f;
+                expected[tick] = checksums(live);
+                writer.recordTick(live);
+                if (delta != writer.getTickDelta()) {
+                    writer.recordTickDelta(tick, delta);
+                }
+                PlayerAction action = scriptedAction(tick);
+                if (action != null) {
+                    live.applyAction(action);
+                    writer.recordAction(tick, action);
+                }
+                live.step(delta);
+            }
+            expected[TICKS] = checksums(live);
+        }
+
+        try (ReplayJournalReader reader = ReplayJournalReader.open(file)) {
+            Assert.assertEquals(reader.getTickDelta(39), 1f / 60f);
+            Assert.assertEquals(reader.getTickDelta(40), 4f / 60f);
+            Assert.assertEquals(reader.getTickDelta(80), 1f / 60f);
+            for (int tick : new int[]{30, 45, 60, 79, 90, TICKS}) {
+                Assert.assertEquals(checksums(reader.seek(tick)), expected[tick], "diverged at tick " + tick);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test()
+    public void testActionLargerThanScratchBufferIsRecorded() throws Exception {
+        Path file = Files.createTempFile("yipee-replay", ".journal");
+        StringBuilder data = new StringBuilder();
+        while (data.length() < 64 * 1024) {
+            data.append("yipee");
+        }
+
+        YipeeTableSimulation live = new YipeeTableSimulation(3, BOARDS);
+        live.begin();
+        try (ReplayJournalWriter writer = ReplayJournalWriter.create(file, "table-3", 3, BOARDS, DELTA, 25)) {
+            writer.recordTick(live);
+            writer.recordAction(0, new PlayerAction(0, PlayerAction.ActionType.P_MOVE_LEFT, 0, data.toString()));
+        }
+
+        try (ReplayJournalReader reader = ReplayJournalReader.open(file)) {
+            Assert.assertEquals(reader.getActionCount(), 1);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static PlayerAction scriptedAction(int tick) {
+        int seat = tick % BOARDS;
+        switch (tick % 7) {
+            case 0:
+                return new PlayerAction(seat, PlayerAction.ActionType.P_MOVE_LEFT, seat, null);
+            case 3:
+                return new PlayerAction(seat, PlayerAction.ActionType.P_CYCLE_UP, seat, null);
+            case 5:
+                return new PlayerAction(seat, PlayerAction.ActionType.P_MOVE_DOWN_START, seat, null);
+            default:
+                return null;
+        }
+    }
+
+    private static long[] checksums(YipeeTableSimulation simulation) {
+        long[] values = new long[simulation.getBoardCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = simulation.getBoard(i).getStateChecksum();
+        }
+        return values;
+    }
+}
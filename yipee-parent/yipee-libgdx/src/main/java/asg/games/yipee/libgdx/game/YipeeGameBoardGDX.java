@@ -19,6 +19,7 @@ import asg.games.yipee.common.game.CommonRandomNumberArray;
 import asg.games.yipee.common.game.GameBoardState;
 import asg.games.yipee.common.game.GamePhase;
 import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.common.tools.StateChecksum;
 import asg.games.yipee.libgdx.objects.YipeeBlockGDX;
 import asg.games.yipee.libgdx.objects.YipeeBlockMoveGDX;
 import asg.games.yipee.libgdx.objects.YipeeBrokenBlockGDX;
@@ -59,6 +60,9 @@ public class YipeeGameBoardGDX implements Disposable {
     public static final float FALL_RATE = 0.04f;
     public static final float FAST_FALL_RATE = 0.496f;
     private static final int MAX_FALL_VALUE = 1;
+    /** Step rate {@link #FALL_RATE} and {@link #FAST_FALL_RATE} are expressed in. */
+    public static final int NOMINAL_TICK_RATE = 60;
+    private static final float NOMINAL_STEP = 1f / NOMINAL_TICK_RATE;
     private static final int CONST_ROW_ADD = 1;
     private GamePhase currentPhase = GamePhase.SPAWN_NEXT;
 
@@ -215,6 +219,46 @@ public class YipeeGameBoardGDX implements Disposable {
         return state;
     }
 
+    /**
+     * Computes a cheap checksum over the simulated state of this board: cells, active and
+     * next piece, timers, power and special queues, block pointer and phase.
+     *
+     * <p>Must fold the same fields in the same order as the server board so that a
+     * predicting client can compare it against the checksum carried in
+     * {@code SeatStateUpdateResponse}.
+     *
+     * @return 64-bit checksum of the current board state
+     */
+    public long getStateChecksum() {
+        long hash = StateChecksum.SEED;
+        hash = StateChecksum.mix(hash, cells);
+        hash = mixPiece(hash, piece);
+        hash = mixPiece(hash, nextPiece);
+        hash = StateChecksum.mix(hash, pieceFallTimer);
+        hash = StateChecksum.mix(hash, pieceLockTimer);
+        hash = StateChecksum.mix(hash, blockAnimationTimer);
+        hash = StateChecksum.mix(hash, powers);
+        hash = StateChecksum.mix(hash, specialPieces);
+        hash = StateChecksum.mix(hash, countOfBreaks);
+        hash = StateChecksum.mix(hash, powersKeep);
+        hash = StateChecksum.mix(hash, currentBlockPointer);
+        hash = StateChecksum.mix(hash, idIndex);
+        hash = StateChecksum.mix(hash, yahooDuration);
+        hash = StateChecksum.mix(hash, currentPhase != null ? currentPhase.ordinal() : -1);
+        hash = StateChecksum.mix(hash, fastDown);
+        hash = StateChecksum.mix(hash, hasGameStarted);
+        return StateChecksum.finish(hash);
+    }
+
+    private static long mixPiece(long hash, YipeePieceGDX piece) {
+        if (piece == null) {
+            return StateChecksum.mix(hash, -1);
+        }
+        hash = StateChecksum.mix(hash, piece.row);
+        hash = StateChecksum.mix(hash, piece.column);
+        return StateChecksum.mix(hash, piece.getCells());
+    }
+
     private void resetPieceFallTimer() {
         pieceFallTimer = MAX_FALL_VALUE;
     }
@@ -764,6 +808,9 @@ public class YipeeGameBoardGDX implements Disposable {
     public void applyPlayerAction(PlayerAction action) {
         //TODO: handle yahoo add blocks
         if (action != null) {
+            if (applyControlAction(action.getActionType())) {
+                return;
+            }
             if (PlayerAction.ActionType.S_SPEED.equals(action.getActionType())) {
                 //TODO: handle speed special
             } else if (PlayerAction.ActionType.O_MEDUSA.equals(action.getActionType())) {
@@ -776,6 +823,39 @@ public class YipeeGameBoardGDX implements Disposable {
         }
     }
 
+    /**
+     * Applies direct player input (move, cycle, fast drop) to the active piece.
+     *
+     * @return true if the action type was a control action
+     */
+    private boolean applyControlAction(PlayerAction.ActionType type) {
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+            case P_MOVE_LEFT:
+                movePieceLeft();
+                return true;
+            case P_MOVE_RIGHT:
+                movePieceRight();
+                return true;
+            case P_MOVE_DOWN_START:
+                startMoveDown();
+                return true;
+            case P_MOVE_DOWN_END:
+                stopMoveDown();
+                return true;
+            case P_CYCLE_UP:
+                cycleUp();
+                return true;
+            case P_CYCLE_DOWN:
+                cycleDown();
+                return true;
+            default:
+                return false;
+        }
+    }
+
     public void handlePower(int i) {
         if (YipeeBlockEvalGDX.getPowerFlag(i) == 0) {
             switch (i) {
@@ -1738,7 +1818,7 @@ public class YipeeGameBoardGDX implements Disposable {
                 break;
 
             case FALLING:
-                pieceFallTimer -= getCurrentFallRate();
+                pieceFallTimer -= getCurrentFallRate() * nominalSteps(delta);
                 if (pieceFallTimer <= 0) {
                     if (isDownCellFree(piece.column, piece.row)) {
                         movePieceDown();
@@ -1751,7 +1831,7 @@ public class YipeeGameBoardGDX implements Disposable {
                 break;
 
             case LOCKING:
-                pieceLockTimer -= getCurrentFallRate();
+                pieceLockTimer -= getCurrentFallRate() * nominalSteps(delta);
                 if (pieceLockTimer <= 0) {
                     setNextPiece();
                     piece = null;
@@ -1872,7 +1952,7 @@ public class YipeeGameBoardGDX implements Disposable {
                 //Check if it is time to move Piece down
                 if (pieceFallTimer > 0) {
                     //System.out.println("-}}}}The Piece is falling in subpixels");
-                    pieceFallTimer -= getCurrentFallRate();
+                    pieceFallTimer -= getCurrentFallRate() * nominalSteps(delta);
                 } else {
 
                     //Moving PIECE
@@ -1888,7 +1968,7 @@ public class YipeeGameBoardGDX implements Disposable {
                         //check if lockOut time has expired
                         if (pieceLockTimer > 0) {
                             //System.out.println("}}}}lockout not met");
-                            pieceLockTimer -= getCurrentFallRate();
+                            pieceLockTimer -= getCurrentFallRate() * nominalSteps(delta);
                         } else {
                             //SET PIECE
                             //System.out.println("}}}}LOCKOUT!!  Setting piece");
@@ -1923,6 +2003,15 @@ public class YipeeGameBoardGDX implements Disposable {
         }
     }
 
+    /**
+     * Converts a step length into nominal steps so that fall and lock speed depend on
+     * simulated time rather than on the tick rate, matching the server board. A nominal
+     * step is exactly one.
+     */
+    private static float nominalSteps(float delta) {
+        return delta == NOMINAL_STEP ? 1f : delta * NOMINAL_TICK_RATE;
+    }
+
     private float getCurrentFallRate() {
         if (fastDown) {
             return FAST_FALL_RATE;
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.libgdx.tools;
+
+import asg.games.yipee.net.tools.PacketRegistrar;
+import asg.games.yipee.processor.GeneratePacketRegistry;
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Registers the LibGDX client's packet classes with Kryo from
+ * {@link GeneratedLibGDXPacketRegistry}, generated from {@code libgdxPackets.xml} when this
+ * module is compiled.
+ */
+@GeneratePacketRegistry(config = "libgdxPackets.xml", name = "GeneratedLibGDXPacketRegistry")
+public class LibGDXPacketRegistrar {
+    private LibGDXPacketRegistrar() {
+    }
+
+    /**
+     * Registers every class listed in {@code libgdxPackets.xml}.
+     *
+     * @param kryo Kryo instance to register classes.
+     */
+    public static void registerPackets(Kryo kryo) {
+        PacketRegistrar.registerPackets(kryo, GeneratedLibGDXPacketRegistry.INSTANCE);
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.game;
+
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.AbstractServerResponse;
+
+/**
+ * Running estimate of one connection's round-trip time, clock offset and tick drift,
+ * built from the tick and timestamp fields every packet already carries.
+ *
+ * <p><b>Client side.</b> A response that answers a request echoes the request's
+ * {@code timestamp} (t0) along with the server's receive time (t1) and send time
+ * {@code serverTimestamp} (t2); the client adds its own receive time (t3). As in NTP:
+ * <pre>
+ * rtt    = (t3 - t0) - (t2 - t1)
+ * offset = ((t1 - t0) + (t2 - t3)) / 2      server clock minus client clock
+ * </pre>
+ * RTT is smoothed with its mean deviation as TCP does. Queuing only ever adds delay and
+ * skews the offset, so the offset is taken from the lowest-RTT sample of the last
+ * {@link #WINDOW} exchanges. Every response also anchors the server's tick to its clock,
+ * so the client can {@link #estimateServerTick estimate} the tick the server is on; how far
+ * each new anchor lands from the previous one's prediction is smoothed into the
+ * {@link #getTickDrift() tick drift}. Clients use {@link #inputTargetTick} to stamp inputs
+ * with the tick they will arrive for and {@link #interpolationDelayTicks} to size their
+ * interpolation buffer.
+ *
+ * <p><b>Server side.</b> {@link #echo} fills in a response's echo fields from the request
+ * it answers. {@link #onRequest} tracks how many ticks late each client's inputs arrive
+ * for the tick they were stamped with, and {@link #allowedRewind} bounds how far back an
+ * input may be validated: no further than the connection's usual lateness allows, so a
+ * client cannot claim an arbitrarily old tick. The server keeps one instance per session;
+ * it does not rewind yet, so only the lateness is tracked for now.
+ *
+ * <p>All times are in milliseconds, as {@code timestamp} and {@code serverTimestamp} are.
+ * Instances are thread-safe.
+ */
+public class ClockSync {
+    /** Exchanges considered when choosing the offset. */
+    public static final int WINDOW = 8;
+
+    private static final double RTT_GAIN = 1.0 / 8;
+    private static final double DEVIATION_GAIN = 1.0 / 4;
+    /** A tick reference more than this many seconds of ticks off is a new table, not drift. */
+    private static final int MAX_DRIFT_SECONDS = 1;
+
+    private final long[] windowRtt = new long[WINDOW];
+    private final long[] windowOffset = new long[WINDOW];
+    private int samples;
+    private double smoothedRtt;
+    private double rttDeviation;
+    private long offset;
+
+    private boolean anchored;
+    private long anchorTick;
+    private long anchorServerTime;
+    private int tickRate;
+    private double tickDrift;
+
+    private int lagSamples;
+    private double inputLag;
+    private double inputLagDeviation;
+
+    // -------------------------------------------------------------------------
+    // Client side
+    // -------------------------------------------------------------------------
+
+    /**
+     * Folds a response into the estimates.
+     *
+     * @param response   a response from the server
+     * @param receivedAt local time the response arrived
+     * @return {@code true} if the response answered a request and produced an RTT sample
+     */
+    public synchronized boolean onResponse(AbstractServerResponse response, long receivedAt) {
+        anchor(response);
+        long t0 = response.getRequestTimestamp();
+        if (t0 == 0) {
+            return false;
+        }
+        long t1 = response.getReceivedTimestamp();
+        long t2 = response.getServerTimestamp();
+        long rtt = Math.max(0, (receivedAt - t0) - (t2 - t1));
+        long sampleOffset = ((t1 - t0) + (t2 - receivedAt)) / 2;
+
+        if (samples == 0) {
+            smoothedRtt = rtt;
+            rttDeviation = rtt / 2.0;
+        } else {
+            rttDeviation += (Math.abs(rtt - smoothedRtt) - rttDeviation) * DEVIATION_GAIN;
+            smoothedRtt += (rtt - smoothedRtt) * RTT_GAIN;
+        }
+        int slot = samples % WINDOW;
+        windowRtt[slot] = rtt;
+        windowOffset[slot] = sampleOffset;
+        samples++;
+
+        int best = 0;
+        for (int i = 1; i < Math.min(samples, WINDOW); i++) {
+            if (windowRtt[i] < windowRtt[best]) {
+                best = i;
+            }
+        }
+        offset = windowOffset[best];
+        return true;
+    }
+
+    private void anchor(AbstractServerResponse response) {
+        if (response.getTickRate() <= 0 || response.getServerTick() <= 0) {
+            return;
+        }
+        if (anchored) {
+            if (response.getServerTimestamp() <= anchorServerTime) {
+                return;
+            }
+            double predicted = anchorTick + (response.getServerTimestamp() - anchorServerTime) * tickRate / 1000.0;
+            double error = response.getServerTick() - predicted;
+            if (response.getTickRate() == tickRate && Math.abs(error) <= tickRate * MAX_DRIFT_SECONDS) {
+                tickDrift += (error - tickDrift) * RTT_GAIN;
+            } else {
+                tickDrift = 0;
+            }
+        }
+        anchored = true;
+        anchorTick = response.getServerTick();
+        anchorServerTime = response.getServerTimestamp();
+        tickRate = response.getTickRate();
+    }
+
+    /**
+     * Returns whether at least one request has been answered, so RTT and offset mean
+     * something.
+     */
+    public synchronized boolean isSynchronized() {
+        return samples > 0;
+    }
+
+    public synchronized int getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * Returns the smoothed round-trip time.
+     */
+    public synchronized long getRtt() {
+        return Math.round(smoothedRtt);
+    }
+
+    /**
+     * Returns the mean deviation of the round-trip time, a measure of jitter.
+     */
+    public synchronized long getRttDeviation() {
+        return Math.round(rttDeviation);
+    }
+
+    /**
+     * Returns the server's clock minus the client's.
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the smoothed number of ticks by which the server's tick has been ahead of
+     * (positive) or behind its nominal rate between responses.
+     */
+    public synchronized double getTickDrift() {
+        return tickDrift;
+    }
+
+    /**
+     * Converts a local time to the server's clock.
+     */
+    public synchronized long toServerTime(long localMillis) {
+        return localMillis + offset;
+    }
+
+    /**
+     * Estimates the tick the server is on at a local time.
+     *
+     * @param localMillis local time
+     * @return the fractional tick, or {@code -1} before any response carried a tick
+     */
+    public synchronized double estimateServerTick(long localMillis) {
+        if (!anchored) {
+            return -1;
+        }
+        return anchorTick + (localMillis + offset - anchorServerTime) * tickRate / 1000.0;
+    }
+
+    /**
+     * Returns the tick an input sent now should be stamped with: the tick the server will
+     * be on when it arrives, allowing for half the round trip plus twice its deviation.
+     *
+     * @param localMillis local send time
+     * @return the tick, or {@code -1} before any response carried a tick
+     */
+    public synchronized long inputTargetTick(long localMillis) {
+        if (!anchored) {
+            return -1;
+        }
+        long arrival = localMillis + Math.round(smoothedRtt / 2 + 2 * rttDeviation);
+        return (long) Math.ceil(estimateServerTick(arrival));
+    }
+
+    /**
+     * Returns how many ticks behind the newest received state a client should render to
+     * ride out the connection's jitter: one tick plus twice the RTT deviation.
+     */
+    public synchronized int interpolationDelayTicks() {
+        if (tickRate <= 0) {
+            return 1;
+        }
+        return 1 + (int) Math.ceil(2 * rttDeviation * tickRate / 1000.0);
+    }
+
+    // -------------------------------------------------------------------------
+    // Server side
+    // -------------------------------------------------------------------------
+
+    /**
+     * Fills in a response's echo fields from the request it answers.
+     *
+     * @param request  the request, with its {@code receivedAt} set on arrival
+     * @param response the response
+     */
+    public static void echo(AbstractClientRequest request, AbstractServerResponse response) {
+        response.setRequestTimestamp(request.getTimestamp());
+        response.setReceivedTimestamp(request.getReceivedAt());
+    }
+
+    /**
+     * Records how late a client's input arrived.
+     *
+     * @param request    the request, stamped with the server tick it was meant for
+     * @param serverTick the tick the server is on
+     */
+    public synchronized void onRequest(AbstractClientRequest request, long serverTick) {
+        double lag = serverTick - request.getClientTick();
+        if (lagSamples == 0) {
+            inputLag = lag;
+            inputLagDeviation = 0;
+        } else {
+            inputLagDeviation += (Math.abs(lag - inputLag) - inputLagDeviation) * DEVIATION_GAIN;
+            inputLag += (lag - inputLag) * RTT_GAIN;
+        }
+        lagSamples++;
+    }
+
+    /**
+     * Returns the smoothed number of ticks inputs arrive after the tick they were stamped
+     * with; negative when they arrive early.
+     */
+    public synchronized double getInputLag() {
+        return inputLag;
+    }
+
+    public synchronized double getInputLagDeviation() {
+        return inputLagDeviation;
+    }
+
+    /**
+     * Returns how many ticks back the server may rewind to validate a request: as late as
+     * the request is, but no more than the connection's usual lateness plus twice its
+     * deviation and one tick, nor {@code maxRewind}.
+     *
+     * @param request    the request
+     * @param serverTick the tick the server is on
+     * @param maxRewind  the most ticks of history the server keeps
+     * @return ticks to rewind, zero if the request is not late
+     */
+    public synchronized int allowedRewind(AbstractClientRequest request, long serverTick, int maxRewind) {
+        long late = serverTick - request.getClientTick();
+        if (late <= 0 || lagSamples == 0) {
+            return 0;
+        }
+        long bound = (long) Math.ceil(Math.max(inputLag, 0) + 2 * inputLagDeviation) + 1;
+        return (int) Math.min(Math.min(late, bound), maxRewind);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.game;
+
+import asg.games.yipee.net.errors.ErrorCode;
+import asg.games.yipee.net.errors.YipeeSyncException;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+
+/**
+ * Compares authoritative board checksums against a predicting client's local board.
+ *
+ * <p>The server stamps every {@link SeatStateUpdateResponse} with the checksum of the
+ * seat's board for that tick. A client computes the checksum of its own predicted board
+ * for the same tick and calls {@link #verify(SeatStateUpdateResponse, long)}; only when
+ * the values differ does it need to request a full state resync. The thrown
+ * {@link YipeeSyncException} maps to {@link ErrorCode#OUT_OF_SYNC}.
+ */
+public final class DesyncDetector {
+
+    /**
+     * Checksum value meaning "not supplied"; such responses are always treated as in sync.
+     */
+    public static final long NO_CHECKSUM = 0L;
+
+    private DesyncDetector() {
+    }
+
+    /**
+     * Returns whether a local board checksum matches the authoritative one.
+     *
+     * @param response      the authoritative seat update
+     * @param localChecksum checksum of the client's board at {@code response.getServerTick()}
+     * @return {@code true} if the boards agree or the server did not supply a checksum
+     */
+    public static boolean isInSync(SeatStateUpdateResponse response, long localChecksum) {
+        if (response == null || response.getChecksum() == NO_CHECKSUM) {
+            return true;
+        }
+        return response.getChecksum() == localChecksum;
+    }
+
+    /**
+     * Verifies a local board checksum against the authoritative one.
+     *
+     * @param response      the authoritative seat update
+     * @param localChecksum checksum of the client's board at {@code response.getServerTick()}
+     * @throws YipeeSyncException if the checksums differ and a full resync is required
+     */
+    public static void verify(SeatStateUpdateResponse response, long localChecksum) {
+        if (!isInSync(response, localChecksum)) {
+            throw new YipeeSyncException("Seat " + response.getSeatIndex()
+                + " diverged at tick " + response.getServerTick()
+                + ": server=" + Long.toHexString(response.getChecksum())
+                + ", local=" + Long.toHexString(localChecksum));
+        }
+    }
+}
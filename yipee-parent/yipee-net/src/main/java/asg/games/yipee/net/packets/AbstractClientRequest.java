@@ -30,10 +30,16 @@ import lombok.NoArgsConstructor;
  *   <li>{@code clientId} – identifies the client device/instance.</li>
  *   <li>{@code authToken} – proves who the user is (issued by WordPress/IdP).</li>
  *   <li>{@code sessionId} – identifies the active game session.</li>
+ *   <li>{@code sessionHandle}, {@code gameHandle} – compact integer stand-ins for the
+ *   session and game, issued by the server during the handshake.</li>
  *   <li>{@code clientTick} – the client's notion of the game tick at send time.</li>
  *   <li>{@code timestamp} – local send time in milliseconds (diagnostics only).</li>
  * </ul>
  *
+ * <p>Once a client holds handles it should send them and leave the string identifiers
+ * {@code null}; the server resolves handles through an array-indexed table, and a
+ * {@code null} string costs a single byte on the wire.
+ *
  * <p>Concrete request types (e.g., seat selection, input actions, table updates)
  * should extend this class and add their own payload fields as needed. KryoNet
  * will serialize subclasses according to the packet registration performed at
@@ -47,6 +53,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = false, exclude = {"timestamp"})
 public abstract class AbstractClientRequest implements YipeeSerializable {
+    /** Handle value meaning no handle has been issued. */
+    public static final int NO_HANDLE = 0;
+
     /**
      * Identifier of the game/table context associated with this response.
      *
@@ -88,6 +97,20 @@ public abstract class AbstractClientRequest implements YipeeSerializable {
      */
     private String sessionId;
 
+    /**
+     * Session handle issued in {@link ClientHandshakeResponse}, or {@link #NO_HANDLE}.
+     *
+     * <p>Identifies the same session as {@code sessionId} in a few bytes. It is only
+     * meaningful on the connection it was issued to and becomes invalid when the session
+     * ends.
+     */
+    private int sessionHandle;
+
+    /**
+     * Game handle issued for the table the client joins, or {@link #NO_HANDLE}.
+     */
+    private int gameHandle;
+
     /**
      * The client's notion of the game tick when this request was created.
      *
@@ -107,6 +130,12 @@ public abstract class AbstractClientRequest implements YipeeSerializable {
      */
     private long timestamp;
 
+    /**
+     * Local system time (server-side) in milliseconds when this request arrived, set by the
+     * receiving server so its response can echo it. Never sent.
+     */
+    private transient long receivedAt;
+
     @Override
     public String toString() {
         return "ClientRequest[" + clientId + ", clientTick=" + clientTick + ", ts=" + timestamp + "]";
@@ -40,13 +40,13 @@ import lombok.NoArgsConstructor;
  * consistent metadata across the entire network layer and simplifies client-side
  * synchronization and logging.
  *
- * <p>The Lombok-generated equality intentionally excludes {@code serverTimestamp}
- * so that responses with identical semantic content but different send times are
- * treated as equivalent.
+ * <p>The Lombok-generated equality intentionally excludes {@code serverTimestamp} and
+ * the echoed request times so that responses with identical semantic content but
+ * different send times are treated as equivalent.
  */
 @Data
 @NoArgsConstructor
-@EqualsAndHashCode(callSuper = false, exclude = {"serverTimestamp"})
+@EqualsAndHashCode(callSuper = false, exclude = {"serverTimestamp", "requestTimestamp", "receivedTimestamp"})
 public class AbstractServerResponse implements YipeeSerializable {
 
     /**
@@ -74,6 +74,22 @@ public class AbstractServerResponse implements YipeeSerializable {
      */
     private String sessionId;
 
+    /**
+     * Compact handle of the receiving client's session, or
+     * {@link AbstractClientRequest#NO_HANDLE}.
+     *
+     * <p>Issued in {@link ClientHandshakeResponse}; the client sends it back in place of
+     * {@code sessionId} on every later request.
+     */
+    private int sessionHandle;
+
+    /**
+     * Compact handle of the game/table this response concerns, or
+     * {@link AbstractClientRequest#NO_HANDLE}. Responses from a table with a handle carry
+     * it instead of {@code gameId}.
+     */
+    private int gameHandle;
+
     /**
      * The authoritative server tick at the time this message was generated.
      *
@@ -90,6 +106,22 @@ public class AbstractServerResponse implements YipeeSerializable {
      */
     private long serverTimestamp;
 
+    /**
+     * The {@code timestamp} of the request this response answers, echoed unchanged, or
+     * {@code 0} if the response answers no request.
+     *
+     * <p>With {@link #receivedTimestamp} and {@link #serverTimestamp} this gives the client
+     * all four times of an NTP exchange, from which it estimates round-trip time and clock
+     * offset.
+     */
+    private long requestTimestamp;
+
+    /**
+     * Local system time (server-side) in milliseconds when the answered request arrived.
+     * Only meaningful when {@link #requestTimestamp} is set.
+     */
+    private long receivedTimestamp;
+
     /**
      * The server's configured tick rate (in updates per second).
      *
@@ -27,14 +27,15 @@ import lombok.NoArgsConstructor;
  *
  * <ul>
  *   <li>a server-generated {@code sessionId},</li>
+ *   <li>a compact {@code sessionHandle} standing in for the {@code sessionId},</li>
  *   <li>the authoritative {@code playerId},</li>
  *   <li>a confirmation flag indicating successful authentication,</li>
  *   <li>standard response metadata from {@link AbstractServerResponse}.</li>
  * </ul>
  *
- * <p>The client must retain the {@code sessionId} and include it in all subsequent
- * game-related requests. The server will reject any request that lacks a valid
- * session identifier.</p>
+ * <p>The client must retain the {@code sessionId} and {@code sessionHandle}, and include
+ * the handle (or, failing that, the identifier) in all subsequent game-related requests.
+ * The server will reject any request that lacks a valid session identifier.</p>
  *
  * <p><b>Direction:</b> Server → Client</p>
  */
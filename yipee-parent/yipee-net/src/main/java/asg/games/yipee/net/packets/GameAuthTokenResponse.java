@@ -50,6 +50,8 @@ import lombok.NoArgsConstructor;
  * Fields such as {@code playerId}, {@code clientId}, and {@code tableId} are
  * provided for client convenience and logging only; authoritative identity
  * validation occurs exclusively on the server during the game handshake.
+ * When the table is already open, the inherited {@code gameHandle} carries its
+ * compact handle for use in later requests in place of {@code gameId}.
  */
 @Data
 @NoArgsConstructor
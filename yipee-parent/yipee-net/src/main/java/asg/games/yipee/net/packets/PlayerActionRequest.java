@@ -31,10 +31,21 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class PlayerActionRequest extends AbstractClientRequest {
+    /**
+     * Value of {@link #senderSeat} before the server has resolved the sender's seat.
+     */
+    public static final int NO_SEAT = -1;
 
     /**
      * The full PlayerAction object describing what the player did.
      * Includes initiating board, action type, target, and optional data.
      */
     private PlayerAction playerAction;
+
+    /**
+     * Seat of the session that sent this request, resolved by the receiving server when
+     * the request is submitted to a table. Only actions initiated by this seat are applied.
+     * Never sent.
+     */
+    private transient int senderSeat = NO_SEAT;
 }
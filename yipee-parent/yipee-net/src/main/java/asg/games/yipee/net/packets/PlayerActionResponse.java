@@ -26,6 +26,11 @@ import lombok.NoArgsConstructor;
  * <p>This allows the server to confirm or reject the action, provide updated state,
  * or trigger a rollback/retry in case of desync.</p>
  *
+ * <p>The server applies input once per tick, so a single response acknowledges every
+ * request a client sent for that tick: {@link #ackClientTick} is the newest client tick
+ * covered and {@link #actionCount} the number of requests acknowledged. Requests the server
+ * refused are counted in {@link #rejectedCount}; the rest of the batch was still applied.</p>
+ *
  * <p><b>Direction:</b> Server → Client</p>
  */
 @Data
@@ -34,7 +39,8 @@ import lombok.NoArgsConstructor;
 public class PlayerActionResponse extends AbstractServerResponse {
 
     /**
-     * Whether the action was accepted and applied successfully.
+     * Whether any of the acknowledged actions was accepted and applied; {@code false} only
+     * when every one of them was rejected.
      */
     private boolean accepted;
 
@@ -44,7 +50,28 @@ public class PlayerActionResponse extends AbstractServerResponse {
     private String message;
 
     /**
-     * Echo of the original action for reference or reconciliation.
+     * Echo of the original action (the newest one, for a batch) for reference or reconciliation.
      */
     private PlayerAction playerAction;
+
+    /**
+     * Highest {@code clientTick} among the requests acknowledged by this response.
+     */
+    private long ackClientTick;
+
+    /**
+     * Number of requests acknowledged by this response.
+     */
+    private int actionCount;
+
+    /**
+     * Number of acknowledged requests that were rejected and not applied.
+     */
+    private int rejectedCount;
+
+    /**
+     * Lowest {@code clientTick} among the rejected requests; meaningful only when
+     * {@link #rejectedCount} is non-zero.
+     */
+    private long firstRejectedClientTick;
 }
@@ -51,4 +51,13 @@ public class SeatStateUpdateResponse extends AbstractServerResponse {
      * Ignored if {@code spectator} is true.
      */
     private int seatIndex;
+
+    /**
+     * Checksum of the seat's authoritative board at {@code serverTick}.
+     *
+     * <p>Predicting clients compare this value against the checksum of their own board
+     * for the same tick and only request a full resync when the two differ.
+     * A value of {@code 0} means no checksum was supplied.
+     */
+    private long checksum;
 }
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.packets;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tells a client that its table has moved to another server node.
+ *
+ * <p>The client should connect to {@code host}:{@code port} and present
+ * {@code migrationToken} with its existing session id; the new node resumes the table
+ * from the tick given in {@code serverTick} and accepts only sessions that were seated
+ * or watching when the table moved.
+ *
+ * <p><b>Direction:</b> Server → Client
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class TableRedirectResponse extends AbstractServerResponse {
+    /** The table that moved. */
+    private String tableId;
+
+    /** Host of the node now running the table. */
+    private String host;
+
+    /** Port of the node now running the table. */
+    private int port;
+
+    /** Token proving the client belonged to the table before it moved. */
+    private long migrationToken;
+}
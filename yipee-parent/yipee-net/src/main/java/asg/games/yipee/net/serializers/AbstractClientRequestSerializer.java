@@ -0,0 +1,76 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.serializers;
+
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Base serializer for client requests. Writes the {@link AbstractClientRequest} header,
+ * with the handles and tick as variable-length integers, then hands the packet's own fields to
+ * {@link #writeBody}.
+ *
+ * @param <T> the request type
+ */
+public abstract class AbstractClientRequestSerializer<T extends AbstractClientRequest> extends Serializer<T> {
+
+    @Override
+    public void write(Kryo kryo, Output output, T request) {
+        output.writeString(request.getGameId());
+        output.writeString(request.getClientId());
+        output.writeString(request.getAuthToken());
+        output.writeString(request.getSessionId());
+        output.writeInt(request.getSessionHandle(), true);
+        output.writeInt(request.getGameHandle(), true);
+        output.writeLong(request.getClientTick(), true);
+        output.writeLong(request.getTimestamp());
+        writeBody(kryo, output, request);
+    }
+
+    @Override
+    public T read(Kryo kryo, Input input, Class<T> type) {
+        T request = create();
+        kryo.reference(request);
+        request.setGameId(input.readString());
+        request.setClientId(input.readString());
+        request.setAuthToken(input.readString());
+        request.setSessionId(input.readString());
+        request.setSessionHandle(input.readInt(true));
+        request.setGameHandle(input.readInt(true));
+        request.setClientTick(input.readLong(true));
+        request.setTimestamp(input.readLong());
+        readBody(kryo, input, request);
+        return request;
+    }
+
+    /**
+     * Returns a new, empty request to read into.
+     */
+    protected abstract T create();
+
+    /**
+     * Writes the fields declared by the request's own class.
+     */
+    protected abstract void writeBody(Kryo kryo, Output output, T request);
+
+    /**
+     * Reads the fields written by {@link #writeBody}.
+     */
+    protected abstract void readBody(Kryo kryo, Input input, T request);
+}
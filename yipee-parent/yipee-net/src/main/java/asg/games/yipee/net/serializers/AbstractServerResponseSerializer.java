@@ -0,0 +1,87 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.serializers;
+
+import asg.games.yipee.net.packets.AbstractServerResponse;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Base serializer for server responses. Writes the {@link AbstractServerResponse} header,
+ * with the handles, tick and tick rate as variable-length numbers, then hands the packet's own
+ * fields to {@link #writeBody}. The echoed request time costs one byte when absent; when
+ * present, the server's receive time follows as the short hold before {@code serverTimestamp}.
+ *
+ * @param <T> the response type
+ */
+public abstract class AbstractServerResponseSerializer<T extends AbstractServerResponse> extends Serializer<T> {
+
+    @Override
+    public void write(Kryo kryo, Output output, T response) {
+        output.writeString(response.getServerId());
+        output.writeString(response.getGameId());
+        output.writeString(response.getSessionId());
+        output.writeInt(response.getSessionHandle(), true);
+        output.writeInt(response.getGameHandle(), true);
+        output.writeLong(response.getServerTick(), true);
+        output.writeLong(response.getServerTimestamp());
+        output.writeLong(response.getRequestTimestamp(), true);
+        if (response.getRequestTimestamp() != 0) {
+            output.writeLong(response.getServerTimestamp() - response.getReceivedTimestamp(), false);
+        }
+        output.writeInt(response.getTickRate(), true);
+        writeBody(kryo, output, response);
+    }
+
+    @Override
+    public T read(Kryo kryo, Input input, Class<T> type) {
+        T response = create();
+        kryo.reference(response);
+        response.setServerId(input.readString());
+        response.setGameId(input.readString());
+        response.setSessionId(input.readString());
+        response.setSessionHandle(input.readInt(true));
+        response.setGameHandle(input.readInt(true));
+        response.setServerTick(input.readLong(true));
+        response.setServerTimestamp(input.readLong());
+        response.setRequestTimestamp(input.readLong(true));
+        if (response.getRequestTimestamp() != 0) {
+            response.setReceivedTimestamp(response.getServerTimestamp() - input.readLong(false));
+        }
+        response.setTickRate(input.readInt(true));
+        readBody(kryo, input, response);
+        return response;
+    }
+
+    /**
+     * Returns a new, empty response to read into.
+     */
+    protected abstract T create();
+
+    /**
+     * Writes the fields declared by the response's own class. Writes nothing by default.
+     */
+    protected void writeBody(Kryo kryo, Output output, T response) {
+    }
+
+    /**
+     * Reads the fields written by {@link #writeBody}. Reads nothing by default.
+     */
+    protected void readBody(Kryo kryo, Input input, T response) {
+    }
+}
@@ -0,0 +1,611 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.serializers;
+
+import asg.games.yipee.common.dto.NetYipeeKeyMap;
+import asg.games.yipee.common.game.GameBoardState;
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.errors.ErrorCode;
+import asg.games.yipee.net.packets.AbstractServerResponse;
+import asg.games.yipee.net.packets.ClientHandshakeRequest;
+import asg.games.yipee.net.packets.ClientHandshakeResponse;
+import asg.games.yipee.net.packets.DisconnectRequest;
+import asg.games.yipee.net.packets.DisconnectResponse;
+import asg.games.yipee.net.packets.ErrorResponse;
+import asg.games.yipee.net.packets.GameAuthTokenResponse;
+import asg.games.yipee.net.packets.GameStartRequest;
+import asg.games.yipee.net.packets.GameStartResponse;
+import asg.games.yipee.net.packets.MappedKeyUpdateRequest;
+import asg.games.yipee.net.packets.MappedKeyUpdateResponse;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatSelectionRequest;
+import asg.games.yipee.net.packets.SeatSelectionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateRequest;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.packets.TableRedirectResponse;
+import asg.games.yipee.net.packets.TableStateUpdateRequest;
+import asg.games.yipee.net.packets.TableStateUpdateResponse;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written serializers for every packet in {@code asg.games.yipee.net.packets}.
+ *
+ * <p>Kryo's default field serializer reflects over each packet and its superclasses and
+ * writes every field with a generic path, including the boxed elements of the
+ * {@code List<GameBoardState>} and {@code List<PlayerAction>} fields. These serializers
+ * write fields in a fixed order with no field metadata: ticks, counts and small ints as
+ * varints, booleans as single bytes, enums as ordinals and actions through
+ * {@link PlayerActionSerializer}. Board states and key maps are interfaces whose
+ * implementations live outside this module, so they are still written with their class.
+ *
+ * <p>{@link #register(Kryo)} attaches them to a Kryo instance and is called by
+ * {@code PacketRegistrar.registerPackets}. Any change to a packet's fields must be
+ * mirrored here.
+ */
+public final class PacketSerializers {
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+
+    private PacketSerializers() {
+    }
+
+    /**
+     * Sets the serializer of every packet class and of {@link PlayerAction}, keeping any
+     * registration id already assigned.
+     *
+     * @param kryo the Kryo instance
+     */
+    public static void register(Kryo kryo) {
+        kryo.register(PlayerAction.class, new PlayerActionSerializer());
+        kryo.register(AbstractServerResponse.class, new AbstractServerResponseSerializer<AbstractServerResponse>() {
+            @Override
+            protected AbstractServerResponse create() {
+                return new AbstractServerResponse();
+            }
+        });
+        kryo.register(ClientHandshakeRequest.class, new ClientHandshakeRequestSerializer());
+        kryo.register(ClientHandshakeResponse.class, new ClientHandshakeResponseSerializer());
+        kryo.register(DisconnectRequest.class, new DisconnectRequestSerializer());
+        kryo.register(DisconnectResponse.class, new DisconnectResponseSerializer());
+        kryo.register(ErrorResponse.class, new ErrorResponseSerializer());
+        kryo.register(GameAuthTokenResponse.class, new GameAuthTokenResponseSerializer());
+        kryo.register(GameStartRequest.class, new GameStartRequestSerializer());
+        kryo.register(GameStartResponse.class, new GameStartResponseSerializer());
+        kryo.register(MappedKeyUpdateRequest.class, new MappedKeyUpdateRequestSerializer());
+        kryo.register(MappedKeyUpdateResponse.class, new MappedKeyUpdateResponseSerializer());
+        kryo.register(PlayerActionRequest.class, new PlayerActionRequestSerializer());
+        kryo.register(PlayerActionResponse.class, new PlayerActionResponseSerializer());
+        kryo.register(SeatSelectionRequest.class, new SeatSelectionRequestSerializer());
+        kryo.register(SeatSelectionResponse.class, new SeatSelectionResponseSerializer());
+        kryo.register(SeatStateUpdateRequest.class, new SeatStateUpdateRequestSerializer());
+        kryo.register(SeatStateUpdateResponse.class, new SeatStateUpdateResponseSerializer());
+        kryo.register(TableActionsBroadcastResponse.class, new TableActionsBroadcastResponseSerializer());
+        kryo.register(TableRedirectResponse.class, new TableRedirectResponseSerializer());
+        kryo.register(TableStateUpdateRequest.class, new TableStateUpdateRequestSerializer());
+        kryo.register(TableStateUpdateResponse.class, new TableStateUpdateResponseSerializer());
+    }
+
+    static void writeAction(Kryo kryo, Output output, PlayerAction action) {
+        kryo.writeObjectOrNull(output, action, PlayerAction.class);
+    }
+
+    static PlayerAction readAction(Kryo kryo, Input input) {
+        return kryo.readObjectOrNull(input, PlayerAction.class);
+    }
+
+    /**
+     * Writes a list's size plus one, or zero for {@code null}.
+     */
+    private static void writeSize(Output output, List<?> list) {
+        output.writeInt(list != null ? list.size() + 1 : 0, true);
+    }
+
+    /**
+     * Reads a size written by {@link #writeSize}, returning {@code -1} for {@code null}.
+     */
+    private static int readSize(Input input) {
+        return input.readInt(true) - 1;
+    }
+
+    // ---------------------------------------------------------------------
+    // Handshake and session
+    // ---------------------------------------------------------------------
+
+    static final class ClientHandshakeRequestSerializer extends AbstractClientRequestSerializer<ClientHandshakeRequest> {
+        @Override
+        protected ClientHandshakeRequest create() {
+            return new ClientHandshakeRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, ClientHandshakeRequest request) {
+            output.writeString(request.getPlayerId());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, ClientHandshakeRequest request) {
+            request.setPlayerId(input.readString());
+        }
+    }
+
+    static final class ClientHandshakeResponseSerializer extends AbstractServerResponseSerializer<ClientHandshakeResponse> {
+        @Override
+        protected ClientHandshakeResponse create() {
+            return new ClientHandshakeResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, ClientHandshakeResponse response) {
+            output.writeString(response.getPlayerId());
+            output.writeBoolean(response.isConnected());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, ClientHandshakeResponse response) {
+            response.setPlayerId(input.readString());
+            response.setConnected(input.readBoolean());
+        }
+    }
+
+    static final class DisconnectRequestSerializer extends AbstractClientRequestSerializer<DisconnectRequest> {
+        @Override
+        protected DisconnectRequest create() {
+            return new DisconnectRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, DisconnectRequest request) {
+            output.writeString(request.getPlayerId());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, DisconnectRequest request) {
+            request.setPlayerId(input.readString());
+        }
+    }
+
+    static final class DisconnectResponseSerializer extends AbstractServerResponseSerializer<DisconnectResponse> {
+        @Override
+        protected DisconnectResponse create() {
+            return new DisconnectResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, DisconnectResponse response) {
+            output.writeString(response.getPlayerId());
+            output.writeBoolean(response.isSuccessful());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, DisconnectResponse response) {
+            response.setPlayerId(input.readString());
+            response.setSuccessful(input.readBoolean());
+        }
+    }
+
+    static final class ErrorResponseSerializer extends AbstractServerResponseSerializer<ErrorResponse> {
+        @Override
+        protected ErrorResponse create() {
+            return new ErrorResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, ErrorResponse response) {
+            ErrorCode code = response.getCode();
+            output.writeInt(code != null ? code.ordinal() + 1 : 0, true);
+            output.writeString(response.getMessage());
+            output.writeString(response.getDetails());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, ErrorResponse response) {
+            int code = input.readInt(true);
+            response.setCode(code > 0 ? ERROR_CODES[code - 1] : null);
+            response.setMessage(input.readString());
+            response.setDetails(input.readString());
+        }
+    }
+
+    static final class GameAuthTokenResponseSerializer extends AbstractServerResponseSerializer<GameAuthTokenResponse> {
+        @Override
+        protected GameAuthTokenResponse create() {
+            return new GameAuthTokenResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, GameAuthTokenResponse response) {
+            output.writeString(response.getPlayerId());
+            output.writeString(response.getName());
+            output.writeInt(response.getIcon(), true);
+            output.writeInt(response.getRating(), true);
+            output.writeString(response.getClientId());
+            output.writeString(response.getTableId());
+            output.writeString(response.getExpiresAt());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, GameAuthTokenResponse response) {
+            response.setPlayerId(input.readString());
+            response.setName(input.readString());
+            response.setIcon(input.readInt(true));
+            response.setRating(input.readInt(true));
+            response.setClientId(input.readString());
+            response.setTableId(input.readString());
+            response.setExpiresAt(input.readString());
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Lobby and seating
+    // ---------------------------------------------------------------------
+
+    static final class GameStartRequestSerializer extends AbstractClientRequestSerializer<GameStartRequest> {
+        @Override
+        protected GameStartRequest create() {
+            return new GameStartRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, GameStartRequest request) {
+            output.writeBoolean(request.isReady());
+            output.writeString(request.getTableId());
+            output.writeString(request.getPlayerId());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, GameStartRequest request) {
+            request.setReady(input.readBoolean());
+            request.setTableId(input.readString());
+            request.setPlayerId(input.readString());
+        }
+    }
+
+    static final class GameStartResponseSerializer extends AbstractServerResponseSerializer<GameStartResponse> {
+        @Override
+        protected GameStartResponse create() {
+            return new GameStartResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, GameStartResponse response) {
+            output.writeInt(response.getCountdownSecondsRemaining(), true);
+            output.writeLong(response.getGameSeed());
+            output.writeBoolean(response.isAccepted());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, GameStartResponse response) {
+            response.setCountdownSecondsRemaining(input.readInt(true));
+            response.setGameSeed(input.readLong());
+            response.setAccepted(input.readBoolean());
+        }
+    }
+
+    static final class MappedKeyUpdateRequestSerializer extends AbstractClientRequestSerializer<MappedKeyUpdateRequest> {
+        @Override
+        protected MappedKeyUpdateRequest create() {
+            return new MappedKeyUpdateRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, MappedKeyUpdateRequest request) {
+            output.writeString(request.getPlayerId());
+            kryo.writeClassAndObject(output, request.getKeyConfig());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, MappedKeyUpdateRequest request) {
+            request.setPlayerId(input.readString());
+            request.setKeyConfig((NetYipeeKeyMap) kryo.readClassAndObject(input));
+        }
+    }
+
+    static final class MappedKeyUpdateResponseSerializer extends AbstractServerResponseSerializer<MappedKeyUpdateResponse> {
+        @Override
+        protected MappedKeyUpdateResponse create() {
+            return new MappedKeyUpdateResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, MappedKeyUpdateResponse response) {
+            output.writeBoolean(response.isAccepted());
+            output.writeString(response.getMessage());
+            output.writeString(response.getPlayerId());
+            output.writeBoolean(response.isSuccess());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, MappedKeyUpdateResponse response) {
+            response.setAccepted(input.readBoolean());
+            response.setMessage(input.readString());
+            response.setPlayerId(input.readString());
+            response.setSuccess(input.readBoolean());
+        }
+    }
+
+    static final class SeatSelectionRequestSerializer extends AbstractClientRequestSerializer<SeatSelectionRequest> {
+        @Override
+        protected SeatSelectionRequest create() {
+            return new SeatSelectionRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, SeatSelectionRequest request) {
+            output.writeString(request.getTableId());
+            output.writeInt(request.getSeatIndex(), false);
+            output.writeBoolean(request.isSpectator());
+            output.writeString(request.getPlayerId());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, SeatSelectionRequest request) {
+            request.setTableId(input.readString());
+            request.setSeatIndex(input.readInt(false));
+            request.setSpectator(input.readBoolean());
+            request.setPlayerId(input.readString());
+        }
+    }
+
+    static final class SeatSelectionResponseSerializer extends AbstractServerResponseSerializer<SeatSelectionResponse> {
+        @Override
+        protected SeatSelectionResponse create() {
+            return new SeatSelectionResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, SeatSelectionResponse response) {
+            output.writeBoolean(response.isAccepted());
+            output.writeString(response.getMessage());
+            output.writeString(response.getTableId());
+            output.writeInt(response.getSeatIndex(), false);
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, SeatSelectionResponse response) {
+            response.setAccepted(input.readBoolean());
+            response.setMessage(input.readString());
+            response.setTableId(input.readString());
+            response.setSeatIndex(input.readInt(false));
+        }
+    }
+
+    static final class TableRedirectResponseSerializer extends AbstractServerResponseSerializer<TableRedirectResponse> {
+        @Override
+        protected TableRedirectResponse create() {
+            return new TableRedirectResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, TableRedirectResponse response) {
+            output.writeString(response.getTableId());
+            output.writeString(response.getHost());
+            output.writeInt(response.getPort(), true);
+            output.writeLong(response.getMigrationToken());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, TableRedirectResponse response) {
+            response.setTableId(input.readString());
+            response.setHost(input.readString());
+            response.setPort(input.readInt(true));
+            response.setMigrationToken(input.readLong());
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Gameplay
+    // ---------------------------------------------------------------------
+
+    static final class PlayerActionRequestSerializer extends AbstractClientRequestSerializer<PlayerActionRequest> {
+        @Override
+        protected PlayerActionRequest create() {
+            return new PlayerActionRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, PlayerActionRequest request) {
+            writeAction(kryo, output, request.getPlayerAction());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, PlayerActionRequest request) {
+            request.setPlayerAction(readAction(kryo, input));
+        }
+    }
+
+    static final class PlayerActionResponseSerializer extends AbstractServerResponseSerializer<PlayerActionResponse> {
+        @Override
+        protected PlayerActionResponse create() {
+            return new PlayerActionResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, PlayerActionResponse response) {
+            output.writeBoolean(response.isAccepted());
+            output.writeString(response.getMessage());
+            writeAction(kryo, output, response.getPlayerAction());
+            output.writeLong(response.getAckClientTick(), true);
+            output.writeInt(response.getActionCount(), true);
+            output.writeInt(response.getRejectedCount(), true);
+            output.writeLong(response.getFirstRejectedClientTick(), true);
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, PlayerActionResponse response) {
+            response.setAccepted(input.readBoolean());
+            response.setMessage(input.readString());
+            response.setPlayerAction(readAction(kryo, input));
+            response.setAckClientTick(input.readLong(true));
+            response.setActionCount(input.readInt(true));
+            response.setRejectedCount(input.readInt(true));
+            response.setFirstRejectedClientTick(input.readLong(true));
+        }
+    }
+
+    static final class TableActionsBroadcastResponseSerializer
+        extends AbstractServerResponseSerializer<TableActionsBroadcastResponse> {
+        @Override
+        protected TableActionsBroadcastResponse create() {
+            return new TableActionsBroadcastResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, TableActionsBroadcastResponse response) {
+            output.writeString(response.getTableId());
+            List<PlayerAction> actions = response.getActions();
+            writeSize(output, actions);
+            if (actions != null) {
+                for (int i = 0, n = actions.size(); i < n; i++) {
+                    writeAction(kryo, output, actions.get(i));
+                }
+            }
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, TableActionsBroadcastResponse response) {
+            response.setTableId(input.readString());
+            int size = readSize(input);
+            if (size >= 0) {
+                List<PlayerAction> actions = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    actions.add(readAction(kryo, input));
+                }
+                response.setActions(actions);
+            }
+        }
+    }
+
+    static final class SeatStateUpdateRequestSerializer extends AbstractClientRequestSerializer<SeatStateUpdateRequest> {
+        @Override
+        protected SeatStateUpdateRequest create() {
+            return new SeatStateUpdateRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, SeatStateUpdateRequest request) {
+            output.writeString(request.getTableId());
+            output.writeInt(request.getSeatIndex(), false);
+            output.writeString(request.getRequestedById());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, SeatStateUpdateRequest request) {
+            request.setTableId(input.readString());
+            request.setSeatIndex(input.readInt(false));
+            request.setRequestedById(input.readString());
+        }
+    }
+
+    static final class SeatStateUpdateResponseSerializer extends AbstractServerResponseSerializer<SeatStateUpdateResponse> {
+        @Override
+        protected SeatStateUpdateResponse create() {
+            return new SeatStateUpdateResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, SeatStateUpdateResponse response) {
+            output.writeString(response.getTableId());
+            output.writeInt(response.getSeatIndex(), false);
+            output.writeLong(response.getChecksum());
+            List<GameBoardState> states = response.getStates();
+            writeSize(output, states);
+            if (states != null) {
+                for (int i = 0, n = states.size(); i < n; i++) {
+                    kryo.writeClassAndObject(output, states.get(i));
+                }
+            }
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, SeatStateUpdateResponse response) {
+            response.setTableId(input.readString());
+            response.setSeatIndex(input.readInt(false));
+            response.setChecksum(input.readLong());
+            int size = readSize(input);
+            if (size >= 0) {
+                List<GameBoardState> states = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    states.add((GameBoardState) kryo.readClassAndObject(input));
+                }
+                response.setStates(states);
+            }
+        }
+    }
+
+    static final class TableStateUpdateRequestSerializer extends AbstractClientRequestSerializer<TableStateUpdateRequest> {
+        @Override
+        protected TableStateUpdateRequest create() {
+            return new TableStateUpdateRequest();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, TableStateUpdateRequest request) {
+            output.writeString(request.getTableId());
+            output.writeString(request.getRequestedById());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, TableStateUpdateRequest request) {
+            request.setTableId(input.readString());
+            request.setRequestedById(input.readString());
+        }
+    }
+
+    static final class TableStateUpdateResponseSerializer extends AbstractServerResponseSerializer<TableStateUpdateResponse> {
+        @Override
+        protected TableStateUpdateResponse create() {
+            return new TableStateUpdateResponse();
+        }
+
+        @Override
+        protected void writeBody(Kryo kryo, Output output, TableStateUpdateResponse response) {
+            writeSeat(kryo, output, response.getSeatState1());
+            writeSeat(kryo, output, response.getSeatState2());
+            writeSeat(kryo, output, response.getSeatState3());
+            writeSeat(kryo, output, response.getSeatState4());
+            writeSeat(kryo, output, response.getSeatState5());
+            writeSeat(kryo, output, response.getSeatState6());
+            writeSeat(kryo, output, response.getSeatState7());
+            writeSeat(kryo, output, response.getSeatState8());
+        }
+
+        @Override
+        protected void readBody(Kryo kryo, Input input, TableStateUpdateResponse response) {
+            response.setSeatState1(readSeat(kryo, input));
+            response.setSeatState2(readSeat(kryo, input));
+            response.setSeatState3(readSeat(kryo, input));
+            response.setSeatState4(readSeat(kryo, input));
+            response.setSeatState5(readSeat(kryo, input));
+            response.setSeatState6(readSeat(kryo, input));
+            response.setSeatState7(readSeat(kryo, input));
+            response.setSeatState8(readSeat(kryo, input));
+        }
+
+        private static void writeSeat(Kryo kryo, Output output, SeatStateUpdateResponse seat) {
+            kryo.writeObjectOrNull(output, seat, SeatStateUpdateResponse.class);
+        }
+
+        private static SeatStateUpdateResponse readSeat(Kryo kryo, Input input) {
+            return kryo.readObjectOrNull(input, SeatStateUpdateResponse.class);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.serializers;
+
+import asg.games.yipee.common.game.PlayerAction;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Serializer for {@link PlayerAction}, used for the actions in
+ * {@code PlayerActionRequest}, {@code PlayerActionResponse} and
+ * {@code TableActionsBroadcastResponse}.
+ *
+ * <pre>
+ * varint  (action type ordinal + 1) * 3 + payload kind   (kind: 0 none, 1 int, 2 object)
+ * byte    (initiating board + 2) &lt;&lt; 4 | (target board + 2)
+ *         or 0xFF followed by both board ids as zig-zag varints when either is
+ *         outside -2..12
+ * payload int as a zig-zag varint, or the object with its class
+ * </pre>
+ *
+ * <p>An input action with no payload, the bulk of all traffic, is two bytes; a small
+ * integer payload adds one. Reading an action allocates only the action itself and its
+ * payload.
+ */
+public class PlayerActionSerializer extends Serializer<PlayerAction> {
+    private static final PlayerAction.ActionType[] ACTION_TYPES = PlayerAction.ActionType.values();
+
+    private static final int DATA_NULL = 0;
+    private static final int DATA_INT = 1;
+    private static final int DATA_OBJECT = 2;
+    private static final int DATA_KINDS = 3;
+
+    private static final int BOARD_OFFSET = 2;
+    private static final int MAX_PACKED_BOARD = 12;
+    private static final int BOARDS_ESCAPE = 0xFF;
+
+    @Override
+    public void write(Kryo kryo, Output output, PlayerAction action) {
+        Object data = action.getActionData();
+        int kind = data == null ? DATA_NULL : data instanceof Integer ? DATA_INT : DATA_OBJECT;
+        writeHeader(output, action.getActionType(), kind, action.getInitiatingBoardId(), action.getTargetBoardId());
+        if (kind == DATA_INT) {
+            output.writeInt((Integer) data, false);
+        } else if (kind == DATA_OBJECT) {
+            kryo.writeClassAndObject(output, data);
+        }
+    }
+
+    @Override
+    public PlayerAction read(Kryo kryo, Input input, Class<PlayerAction> type) {
+        int header = input.readInt(true);
+        int kind = header % DATA_KINDS;
+        int boards = input.readByte() & 0xFF;
+        int initiatingBoardId;
+        int targetBoardId;
+        if (boards == BOARDS_ESCAPE) {
+            initiatingBoardId = input.readInt(false);
+            targetBoardId = input.readInt(false);
+        } else {
+            initiatingBoardId = (boards >>> 4) - BOARD_OFFSET;
+            targetBoardId = (boards & 0x0F) - BOARD_OFFSET;
+        }
+
+        Object data;
+        if (kind == DATA_INT) {
+            data = input.readInt(false);
+        } else if (kind == DATA_OBJECT) {
+            data = kryo.readClassAndObject(input);
+        } else {
+            data = null;
+        }
+        return new PlayerAction(initiatingBoardId, typeOf(header), targetBoardId, data);
+    }
+
+    private static void writeHeader(Output output, PlayerAction.ActionType type, int kind,
+                                    int initiatingBoardId, int targetBoardId) {
+        output.writeInt((type != null ? type.ordinal() + 1 : 0) * DATA_KINDS + kind, true);
+        if (fitsNibble(initiatingBoardId) && fitsNibble(targetBoardId)) {
+            output.writeByte((initiatingBoardId + BOARD_OFFSET) << 4 | (targetBoardId + BOARD_OFFSET));
+        } else {
+            output.writeByte(BOARDS_ESCAPE);
+            output.writeInt(initiatingBoardId, false);
+            output.writeInt(targetBoardId, false);
+        }
+    }
+
+    private static PlayerAction.ActionType typeOf(int header) {
+        int ordinal = header / DATA_KINDS;
+        return ordinal > 0 ? ACTION_TYPES[ordinal - 1] : null;
+    }
+
+    private static boolean fitsNibble(int boardId) {
+        return boardId >= -BOARD_OFFSET && boardId <= MAX_PACKED_BOARD;
+    }
+}
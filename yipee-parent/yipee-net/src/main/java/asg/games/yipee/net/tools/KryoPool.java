@@ -0,0 +1,230 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.tools;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pool of fully registered Kryo instances, each with its own reusable {@link Output} and
+ * {@link Input}, for encoding and decoding packets on any thread.
+ *
+ * <p>A Kryo instance is not thread-safe and registering every packet class on a new one is
+ * expensive, so instances are configured once and then shared by borrowing. The pool is a
+ * lock-free queue: borrowing takes an idle instance or creates one, and
+ * {@link Handle#close() closing} the handle puts it back, so the number of instances ever
+ * created tracks the peak number of threads encoding at once rather than the number of
+ * messages. Handles may be returned from a different thread than the one that borrowed
+ * them.
+ *
+ * <pre>
+ * try (KryoPool.Handle handle = pool.borrow()) {
+ *     handle.getKryo().writeClassAndObject(handle.getOutput(), packet);
+ *     send(handle.getOutput().getBuffer(), handle.getOutput().position());
+ * }
+ * </pre>
+ */
+public class KryoPool {
+    private static final Logger logger = LoggerFactory.getLogger(KryoPool.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_IDLE = 64;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Consumer<Kryo> configurer;
+    private final int bufferSize;
+    private final int maxBufferSize;
+    private final int maxIdle;
+    private final ConcurrentLinkedQueue<Handle> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+
+    /**
+     * Creates a pool of instances registered by {@link PacketRegistrar#registerPackets(Kryo)}.
+     */
+    public KryoPool() {
+        this(PacketRegistrar::registerPackets, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param configurer    registers classes on each new Kryo instance
+     * @param bufferSize    initial size of each output buffer, and the size it is trimmed
+     *                      back to when returned after growing
+     * @param maxBufferSize largest an output buffer may grow while encoding one message
+     * @param maxIdle       idle instances kept; instances returned beyond this are dropped
+     */
+    public KryoPool(Consumer<Kryo> configurer, int bufferSize, int maxBufferSize, int maxIdle) {
+        if (bufferSize <= 0 || maxBufferSize < bufferSize || maxIdle < 0) {
+            throw new IllegalArgumentException("Invalid pool sizes: " + bufferSize + ", " + maxBufferSize + ", " + maxIdle);
+        }
+        this.configurer = Objects.requireNonNull(configurer, "configurer");
+        this.bufferSize = bufferSize;
+        this.maxBufferSize = maxBufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an idle instance, or creates and registers a new one if none is idle. The caller
+     * has exclusive use of it until the handle is closed.
+     *
+     * @return the handle
+     */
+    public Handle borrow() {
+        borrowed.incrementAndGet();
+        Handle handle = idle.poll();
+        if (handle != null) {
+            idleCount.decrementAndGet();
+            handle.open = true;
+            return handle;
+        }
+        Kryo kryo = new Kryo();
+        configurer.accept(kryo);
+        long count = created.incrementAndGet();
+        logger.debug("Created pooled Kryo instance #{}", count);
+        return new Handle(kryo, new Output(bufferSize, maxBufferSize));
+    }
+
+    private void release(Handle handle) {
+        Output output = handle.output;
+        if (output.getBuffer().length > bufferSize) {
+            output.setBuffer(new byte[bufferSize], maxBufferSize);
+        } else {
+            output.clear();
+        }
+        handle.input.setBuffer(EMPTY);
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(handle);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Encodes an object with its class, as KryoNet frames messages.
+     *
+     * @param object the object, or {@code null}
+     * @return the encoded bytes
+     */
+    public byte[] encode(Object object) {
+        try (Handle handle = borrow()) {
+            handle.kryo.writeClassAndObject(handle.output, object);
+            return handle.output.toBytes();
+        }
+    }
+
+    /**
+     * Decodes an object written by {@link #encode(Object)}.
+     *
+     * @param bytes the encoded bytes
+     * @return the object
+     */
+    public Object decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Decodes an object written by {@link #encode(Object)}.
+     *
+     * @param bytes  buffer holding the encoded object
+     * @param offset start of the object in {@code bytes}
+     * @param length bytes available from {@code offset}
+     * @return the object
+     */
+    public Object decode(byte[] bytes, int offset, int length) {
+        try (Handle handle = borrow()) {
+            handle.input.setBuffer(bytes, offset, length);
+            return handle.kryo.readClassAndObject(handle.input);
+        }
+    }
+
+    /**
+     * Returns how many Kryo instances have been created and registered.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * Returns how many times an instance has been borrowed.
+     */
+    public long getBorrowCount() {
+        return borrowed.get();
+    }
+
+    /**
+     * Returns how many instances are idle in the pool. This walks the pool, so it is meant
+     * for monitoring and tests.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * A borrowed Kryo instance with its buffers. Closing the handle returns it to the pool;
+     * neither the handle nor anything obtained from it may be used afterwards.
+     */
+    public final class Handle implements AutoCloseable {
+        private final Kryo kryo;
+        private final Output output;
+        private final Input input = new Input();
+        private boolean open = true;
+
+        private Handle(Kryo kryo, Output output) {
+            this.kryo = kryo;
+            this.output = output;
+        }
+
+        public Kryo getKryo() {
+            return kryo;
+        }
+
+        /**
+         * Returns the output buffer, cleared when the handle was borrowed.
+         */
+        public Output getOutput() {
+            return output;
+        }
+
+        /**
+         * Returns an input to point at received bytes with {@link Input#setBuffer}.
+         */
+        public Input getInput() {
+            return input;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                release(this);
+            }
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package asg.games.yipee.net.tools;
 
+import asg.games.yipee.net.serializers.PacketSerializers;
+import asg.games.yipee.processor.GeneratePacketRegistry;
 import com.esotericsoftware.kryo.Kryo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,10 +47,15 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * PacketRegistrar dynamically scans and registers all packet classes in the specified packages.
- * It supports reading from an XML configuration file (packets.xml) to extend or override
- * default package and exclusion lists.
+ * PacketRegistrar registers all packet classes and their ids with Kryo.
+ *
+ * <p>By default the registrations come from {@link GeneratedPacketRegistry}, which is
+ * generated from {@code packets.xml} when this module is compiled, so startup needs no XML
+ * parsing or reflection. Loading a configuration with {@link #reloadConfiguration} or
+ * {@link #reloadConfigurationFromStream} replaces the generated registry with the loaded
+ * file until {@link #reset()}.
  */
+@GeneratePacketRegistry(config = "packets.xml")
 public class PacketRegistrar {
     private static final Logger logger = LoggerFactory.getLogger(PacketRegistrar.class);
     private static final String CONFIG_FILE = "resources/packets.xml";
@@ -148,6 +155,10 @@ public class PacketRegistrar {
             logger.error("Kryo instance is null");
             return;
         }
+        if (packetsXMLDocument == null) {
+            registerPackets(kryo, GeneratedPacketRegistry.INSTANCE);
+            return;
+        }
 
         Set<Class<?>> registered = new HashSet<>();
         registerAllArrayTypes(kryo);
@@ -165,10 +176,55 @@ public class PacketRegistrar {
             }
         }
 
+        //Replace reflective field serialization of packets with the hand-written serializers
+        PacketSerializers.register(kryo);
+
         //Register Internal Kryo Framework Messages
         registerFrameworkMessages(kryo);
     }
 
+    /**
+     * Registers all packet classes and array types listed by a generated registry.
+     *
+     * @param kryo     Kryo instance to register classes.
+     * @param registry registry generated from a packet configuration.
+     */
+    public static void registerPackets(Kryo kryo, PacketRegistry registry) {
+        if (kryo == null) {
+            logger.error("Kryo instance is null");
+            return;
+        }
+        registerAllArrayTypes(kryo);
+
+        Class<?>[] types = registry.getTypes();
+        int[] ids = registry.getIds();
+        for (int i = 0; i < types.length; i++) {
+            if (ids[i] == PacketRegistry.NEXT_ID) {
+                kryo.register(types[i]);
+            } else {
+                kryo.register(types[i], ids[i]);
+            }
+        }
+
+        String[] deferredNames = registry.getDeferredNames();
+        int[] deferredIds = registry.getDeferredIds();
+        Set<Class<?>> registered = new HashSet<>(Arrays.asList(types));
+        for (int i = 0; i < deferredNames.length; i++) {
+            try {
+                Class<?> clazz = Class.forName(deferredNames[i]);
+                kryo.register(clazz, deferredIds[i]);
+                registered.add(clazz);
+                registerFieldTypes(kryo, clazz, registered);
+            } catch (ClassNotFoundException e) {
+                logger.debug("Deferred packet class not on classpath: {}", deferredNames[i]);
+            }
+        }
+        logger.info("Registered {} generated and {} deferred packet classes.", types.length, deferredNames.length);
+
+        PacketSerializers.register(kryo);
+        registerFrameworkMessages(kryo);
+    }
+
     /**
      * Registers KryoNet internal framework messages required for TCP/UDP handshake.
      *
@@ -297,11 +353,23 @@ public class PacketRegistrar {
     }
 
     /**
-     * Returns explicitClassIds
+     * Returns explicitClassIds, or the explicitly mapped classes of the generated registry
+     * when no configuration has been loaded.
      *
      * @return an unmodifiable Map of class Ids
      */
     public static Map<String, Integer> getExplicitMappings() {
+        if (packetsXMLDocument == null) {
+            Map<String, Integer> generated = new LinkedHashMap<>();
+            Class<?>[] types = GeneratedPacketRegistry.INSTANCE.getTypes();
+            int[] ids = GeneratedPacketRegistry.INSTANCE.getIds();
+            for (int i = 0; i < types.length; i++) {
+                if (ids[i] != PacketRegistry.NEXT_ID) {
+                    generated.put(types[i].getName(), ids[i]);
+                }
+            }
+            return Collections.unmodifiableMap(generated);
+        }
         return Collections.unmodifiableMap(explicitClassIds);
     }
 
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.tools;
+
+/**
+ * Ordered list of classes to register with Kryo, generated at compile time from a packet
+ * configuration file by the {@code @GeneratePacketRegistry} processor.
+ *
+ * <p>{@link #getTypes()} and {@link #getIds()} are parallel: each class is registered in
+ * order with its id, or with Kryo's next free id when the id is {@link #NEXT_ID}. Classes
+ * that were not visible when the registry was generated are listed by binary name in
+ * {@link #getDeferredNames()} and loaded when the registry is used.
+ */
+public interface PacketRegistry {
+    /** Id of a type registered with Kryo's next free id. */
+    int NEXT_ID = -1;
+
+    Class<?>[] getTypes();
+
+    int[] getIds();
+
+    String[] getDeferredNames();
+
+    int[] getDeferredIds();
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import asg.games.yipee.net.tools.KryoPool;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encodes a message once for every recipient of a broadcast.
+ *
+ * <p>An action broadcast or board state at a table with 8 players and 30 watchers goes to
+ * 38 connections. Handed to each as an object, it would be serialized 38 times; encoded
+ * here, it is serialized once into an {@link EncodedMessage} whose bytes every
+ * connection's {@link OutboundQueue}, {@link OutboundBatcher} and {@link SequencedChannel}
+ * copy as they are. Messages meant for fan-out must therefore carry nothing that differs
+ * between recipients; routing fields such as the session id are left unset, since each
+ * connection already knows whose it is.
+ *
+ * <pre>
+ * EncodedMessage shared = encoder.encode(broadcast);
+ * try {
+ *     for (OutboundQueue queue : recipients) {
+ *         queue.offer(shared);
+ *     }
+ * } finally {
+ *     shared.release();
+ * }
+ * </pre>
+ *
+ * <p>Buffers are pooled by power-of-two size from {@value #MIN_POOLED_BYTES} bytes up to
+ * {@code maxPooledBytes}, and return to the pool when the last reference to their message
+ * is released. Larger messages get a buffer of their own. All methods are thread-safe.
+ */
+public class BroadcastEncoder {
+    public static final int MIN_POOLED_BYTES = 64;
+    public static final int DEFAULT_MAX_POOLED_BYTES = 64 * 1024;
+    public static final int DEFAULT_MAX_IDLE_PER_SIZE = 256;
+
+    private final KryoPool pool;
+    private final int maxPooledBytes;
+    private final int maxIdlePerSize;
+    private final ConcurrentLinkedQueue<byte[]>[] idle;
+    private final AtomicInteger[] idleCounts;
+
+    private final AtomicLong encoded = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    public BroadcastEncoder(KryoPool pool) {
+        this(pool, DEFAULT_MAX_POOLED_BYTES, DEFAULT_MAX_IDLE_PER_SIZE);
+    }
+
+    /**
+     * Creates an encoder.
+     *
+     * @param pool           encodes the messages
+     * @param maxPooledBytes largest buffer kept for reuse, a power of two
+     * @param maxIdlePerSize idle buffers kept of each size
+     */
+    @SuppressWarnings("unchecked")
+    public BroadcastEncoder(KryoPool pool, int maxPooledBytes, int maxIdlePerSize) {
+        if (maxPooledBytes < MIN_POOLED_BYTES || Integer.bitCount(maxPooledBytes) != 1 || maxIdlePerSize < 0) {
+            throw new IllegalArgumentException("Invalid pool sizes: " + maxPooledBytes + ", " + maxIdlePerSize);
+        }
+        this.pool = Objects.requireNonNull(pool, "pool");
+        this.maxPooledBytes = maxPooledBytes;
+        this.maxIdlePerSize = maxIdlePerSize;
+        int sizes = sizeClass(maxPooledBytes) + 1;
+        this.idle = new ConcurrentLinkedQueue[sizes];
+        this.idleCounts = new AtomicInteger[sizes];
+        for (int i = 0; i < sizes; i++) {
+            idle[i] = new ConcurrentLinkedQueue<>();
+            idleCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Encodes a message with its class.
+     *
+     * @param message the message
+     * @return the encoded message, holding one reference for the caller
+     */
+    public EncodedMessage encode(Object message) {
+        Objects.requireNonNull(message, "message");
+        if (message instanceof EncodedMessage) {
+            throw new IllegalArgumentException("Message is already encoded: " + message);
+        }
+        try (KryoPool.Handle handle = pool.borrow()) {
+            Output output = handle.getOutput();
+            handle.getKryo().writeClassAndObject(output, message);
+            int length = output.position();
+            byte[] buffer = take(length);
+            System.arraycopy(output.getBuffer(), 0, buffer, 0, length);
+            encoded.incrementAndGet();
+            return new EncodedMessage(message, buffer, length, this);
+        }
+    }
+
+    private byte[] take(int length) {
+        if (length > maxPooledBytes) {
+            allocated.incrementAndGet();
+            return new byte[length];
+        }
+        int sizeClass = sizeClass(length);
+        byte[] buffer = idle[sizeClass].poll();
+        if (buffer != null) {
+            idleCounts[sizeClass].decrementAndGet();
+            reused.incrementAndGet();
+            return buffer;
+        }
+        allocated.incrementAndGet();
+        return new byte[MIN_POOLED_BYTES << sizeClass];
+    }
+
+    void recycle(byte[] buffer) {
+        int length = buffer.length;
+        if (length > maxPooledBytes || Integer.bitCount(length) != 1) {
+            return;
+        }
+        int sizeClass = sizeClass(length);
+        if (idleCounts[sizeClass].incrementAndGet() <= maxIdlePerSize) {
+            idle[sizeClass].offer(buffer);
+        } else {
+            idleCounts[sizeClass].decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the index of the smallest pooled size holding {@code length} bytes.
+     */
+    private static int sizeClass(int length) {
+        if (length <= MIN_POOLED_BYTES) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - Integer.numberOfTrailingZeros(MIN_POOLED_BYTES);
+    }
+
+    /**
+     * Returns how many messages have been encoded.
+     */
+    public long getEncodedCount() {
+        return encoded.get();
+    }
+
+    /**
+     * Returns how many buffers have been allocated because none of the right size was idle.
+     */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+
+    /**
+     * Returns how many buffers have been reused from the pool.
+     */
+    public long getReusedCount() {
+        return reused.get();
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+/**
+ * Sending half of an unreliable datagram path to one peer: a UDP socket in production,
+ * or a stand-in in tests. Datagrams may be lost, duplicated or reordered; nothing is
+ * retransmitted.
+ */
+public interface DatagramLink {
+    /**
+     * Sends one datagram. The bytes are copied or written before this returns, so the
+     * caller may reuse the buffer.
+     *
+     * @param data   buffer holding the datagram
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     */
+    void send(byte[] data, int offset, int length);
+}
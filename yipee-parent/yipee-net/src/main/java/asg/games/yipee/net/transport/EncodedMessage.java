@@ -0,0 +1,162 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A message encoded once, with its class as {@link asg.games.yipee.net.tools.KryoPool#encode}
+ * writes it, whose bytes are shared by every connection it is sent to.
+ *
+ * <p>The bytes are reference-counted. The creator holds the first reference; anything that
+ * keeps the message beyond the call handing it over, such as an {@link OutboundQueue} or a
+ * {@link SequencedChannel}'s event history, {@link #retain() retains} a reference of its
+ * own and {@link #release() releases} it once the bytes have been written or dropped. When
+ * the last reference is released the buffer goes back to the {@link BroadcastEncoder} that
+ * filled it, and the message must not be read again.
+ *
+ * <p>Counting is thread-safe; the bytes are never modified while references are held.
+ */
+public final class EncodedMessage {
+    private final Object message;
+    private final byte[] buffer;
+    private final int length;
+    private final BroadcastEncoder owner;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    EncodedMessage(Object message, byte[] buffer, int length, BroadcastEncoder owner) {
+        this.message = message;
+        this.buffer = buffer;
+        this.length = length;
+        this.owner = owner;
+    }
+
+    /**
+     * Wraps bytes that are not pooled; releasing the last reference leaves them to the
+     * garbage collector.
+     *
+     * @param message the message the bytes encode
+     * @param encoded the message with its class, as written by
+     *                {@link asg.games.yipee.net.tools.KryoPool#encode}
+     * @return the message, holding one reference
+     */
+    public static EncodedMessage wrap(Object message, byte[] encoded) {
+        return new EncodedMessage(Objects.requireNonNull(message, "message"), encoded, encoded.length, null);
+    }
+
+    /**
+     * Returns the message these bytes encode. It must not be modified, since it is only
+     * kept for routing decisions such as the stream or seat it belongs to.
+     */
+    public Object getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the buffer holding the encoded message in its first {@link #getLength()}
+     * bytes. Valid only while a reference is held.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Appends the encoded message to an output.
+     *
+     * @param output the output
+     */
+    public void writeTo(Output output) {
+        output.writeBytes(buffer, 0, length);
+    }
+
+    /**
+     * Returns how many references are held.
+     */
+    public int refCount() {
+        return references.get();
+    }
+
+    /**
+     * Takes another reference.
+     *
+     * @return this message
+     * @throws IllegalStateException if the last reference has already been released
+     */
+    public EncodedMessage retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Message already released: " + message.getClass().getSimpleName());
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * Gives up a reference.
+     *
+     * @return {@code true} if that was the last one and the buffer has been recycled
+     * @throws IllegalStateException if the last reference has already been released
+     */
+    public boolean release() {
+        int count = references.decrementAndGet();
+        if (count > 0) {
+            return false;
+        }
+        if (count < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Message already released: " + message.getClass().getSimpleName());
+        }
+        if (owner != null) {
+            owner.recycle(buffer);
+        }
+        return true;
+    }
+
+    /**
+     * Releases a reference if {@code message} is an {@code EncodedMessage}; does nothing
+     * otherwise.
+     *
+     * @param message a message as queued or sent
+     */
+    public static void release(Object message) {
+        if (message instanceof EncodedMessage) {
+            ((EncodedMessage) message).release();
+        }
+    }
+
+    /**
+     * Returns the message an {@code EncodedMessage} encodes, or {@code message} itself.
+     *
+     * @param message a message as queued or sent
+     */
+    public static Object unwrap(Object message) {
+        return message instanceof EncodedMessage ? ((EncodedMessage) message).message : message;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedMessage[" + message.getClass().getSimpleName() + ", " + length + " bytes, refs=" + references.get() + "]";
+    }
+}
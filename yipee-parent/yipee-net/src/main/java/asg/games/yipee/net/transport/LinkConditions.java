@@ -0,0 +1,92 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+/**
+ * Network conditions applied to one direction of a {@link LoopbackNetwork} connection.
+ *
+ * <p>Each packet waits for the link to be free, is clocked out at {@code bytesPerSecond},
+ * then takes {@code latencyMillis} plus a uniformly random extra of up to
+ * {@code jitterMillis} to arrive. Datagrams are lost with probability {@code lossRate}, and
+ * jitter may reorder them; reliable messages are never lost and always arrive in order, so
+ * loss and jitter on the reliable path show up as head-of-line delay instead.
+ *
+ * <p>Conditions are immutable and may be shared between connections.
+ */
+public class LinkConditions {
+    /** Delivers everything immediately. */
+    public static final LinkConditions PERFECT = new LinkConditions(0, 0, 0, 0);
+
+    /** Means no bandwidth cap. */
+    public static final int UNLIMITED = 0;
+
+    private final int latencyMillis;
+    private final int jitterMillis;
+    private final double lossRate;
+    private final int bytesPerSecond;
+
+    /**
+     * Creates conditions.
+     *
+     * @param latencyMillis  one-way delay of every packet
+     * @param jitterMillis   largest random extra delay
+     * @param lossRate       probability, from 0 to 1, that a datagram is lost
+     * @param bytesPerSecond link capacity, or {@link #UNLIMITED}
+     */
+    public LinkConditions(int latencyMillis, int jitterMillis, double lossRate, int bytesPerSecond) {
+        if (latencyMillis < 0 || jitterMillis < 0 || bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Delays and bandwidth must not be negative: "
+                + latencyMillis + ", " + jitterMillis + ", " + bytesPerSecond);
+        }
+        if (lossRate < 0 || lossRate > 1) {
+            throw new IllegalArgumentException("lossRate must be between 0 and 1: " + lossRate);
+        }
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.lossRate = lossRate;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Returns a poor mobile connection: 60ms each way with 40ms of jitter, 3% datagram
+     * loss and 32 KB/s.
+     */
+    public static LinkConditions mobile() {
+        return new LinkConditions(60, 40, 0.03, 32 * 1024);
+    }
+
+    public int getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public int getJitterMillis() {
+        return jitterMillis;
+    }
+
+    public double getLossRate() {
+        return lossRate;
+    }
+
+    public int getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return "LinkConditions[" + latencyMillis + "ms +" + jitterMillis + "ms, loss=" + lossRate
+            + ", " + (bytesPerSecond == UNLIMITED ? "unlimited" : bytesPerSecond + " B/s") + "]";
+    }
+}
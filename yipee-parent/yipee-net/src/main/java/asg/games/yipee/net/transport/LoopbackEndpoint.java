@@ -0,0 +1,146 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import asg.games.yipee.net.tools.KryoPool;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * One end of a {@link LoopbackNetwork} connection: a reliable message stream plus a
+ * {@link DatagramLink}, so a {@link SequencedChannel} runs over it exactly as over
+ * {@link UdpLink}.
+ *
+ * <p>Reliable messages are encoded with the same pooled, registered Kryo instances as the
+ * real network path and decoded again on arrival, so serializer bugs show up here too.
+ * Arrivals are taken by polling from the endpoint's own thread, which also decides when
+ * simulated time has moved on.
+ */
+public class LoopbackEndpoint implements DatagramLink, Closeable {
+    private final String name;
+    private final KryoPool pool;
+    private final LoopbackPipe out;
+    private final LoopbackPipe in;
+
+    LoopbackEndpoint(String name, KryoPool pool, LoopbackPipe out, LoopbackPipe in) {
+        this.name = name;
+        this.pool = pool;
+        this.out = out;
+        this.in = in;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sends a message on the reliable stream.
+     *
+     * @param message the message, or an {@link EncodedMessage} whose bytes are copied
+     * @return {@code false} if the connection is closed
+     */
+    public boolean sendReliable(Object message) {
+        Objects.requireNonNull(message, "message");
+        if (message instanceof EncodedMessage) {
+            EncodedMessage shared = (EncodedMessage) message;
+            return out.offer(Arrays.copyOf(shared.getBuffer(), shared.getLength()), true);
+        }
+        return out.offer(pool.encode(message), true);
+    }
+
+    @Override
+    public void send(byte[] data, int offset, int length) {
+        out.offer(Arrays.copyOfRange(data, offset, offset + length), false);
+    }
+
+    /**
+     * Hands every reliable message that has arrived by now to a receiver, in order.
+     *
+     * @param receiver receives the decoded messages
+     * @return the number of messages delivered
+     */
+    public int poll(Consumer<Object> receiver) {
+        int count = 0;
+        byte[] data;
+        while ((data = in.poll(true)) != null) {
+            receiver.accept(pool.decode(data));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Hands every datagram that has arrived by now to a channel, in arrival order.
+     *
+     * @param target the channel to receive them
+     * @return the number of datagrams delivered
+     */
+    public int pollDatagrams(SequencedChannel target) {
+        int count = 0;
+        byte[] data;
+        while ((data = in.poll(false)) != null) {
+            target.receive(data, 0, data.length);
+            count++;
+        }
+        return count;
+    }
+
+    public boolean isOpen() {
+        return !out.isClosed();
+    }
+
+    /**
+     * Closes both directions; anything still in flight is lost.
+     */
+    @Override
+    public void close() {
+        out.close();
+        in.close();
+    }
+
+    /**
+     * Returns how many packets this end has put on the link, reliable or not.
+     */
+    public long getSent() {
+        return out.getSent();
+    }
+
+    /**
+     * Returns how many datagrams from this end the link lost or dropped.
+     */
+    public long getLost() {
+        return out.getLost();
+    }
+
+    /**
+     * Returns how many packets have been delivered to this end.
+     */
+    public long getReceived() {
+        return in.getDelivered();
+    }
+
+    public long getBytesSent() {
+        return out.getBytesSent();
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackEndpoint[" + name + ", " + out.getConditions() + "]";
+    }
+}
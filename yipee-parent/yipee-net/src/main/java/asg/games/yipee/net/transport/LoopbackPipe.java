@@ -0,0 +1,172 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * One direction of a {@link LoopbackNetwork} connection.
+ *
+ * <p>Senders stamp each packet with its arrival time under the pipe's {@link LinkConditions}
+ * and hand it over through a lock-free queue. The receiving thread moves arrivals into its
+ * own priority queues, ordered by arrival time, and takes packets out once they are due.
+ */
+final class LoopbackPipe {
+    /** Datagrams that would wait longer than this for the link are dropped, as a router would. */
+    static final int DATAGRAM_QUEUE_LIMIT_MILLIS = 500;
+
+    private static final Comparator<InFlight> BY_ARRIVAL =
+        Comparator.comparingLong((InFlight packet) -> packet.arrival).thenComparingLong(packet -> packet.sequence);
+
+    private final LinkConditions conditions;
+    private final LongSupplier clock;
+    private final Random random;
+    private final ConcurrentLinkedQueue<InFlight> inbox = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    // Guarded by this
+    private long linkFreeAt;
+    private long lastReliableArrival;
+    private long sequence;
+
+    // Receiving thread only
+    private final PriorityQueue<InFlight> reliable = new PriorityQueue<>(BY_ARRIVAL);
+    private final PriorityQueue<InFlight> datagrams = new PriorityQueue<>(BY_ARRIVAL);
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    LoopbackPipe(LinkConditions conditions, LongSupplier clock, long seed) {
+        this.conditions = conditions;
+        this.clock = clock;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Puts a packet on the link.
+     *
+     * @param data       the encoded packet, owned by the pipe from now on
+     * @param isReliable whether it belongs to the reliable stream
+     * @return {@code false} if the packet was lost or the pipe is closed
+     */
+    boolean offer(byte[] data, boolean isReliable) {
+        if (closed) {
+            return false;
+        }
+        InFlight packet;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            long start = Math.max(now, linkFreeAt);
+            if (!isReliable && start - now > DATAGRAM_QUEUE_LIMIT_MILLIS) {
+                lost.incrementAndGet();
+                return false;
+            }
+            if (conditions.getBytesPerSecond() != LinkConditions.UNLIMITED) {
+                linkFreeAt = start + (data.length * 1000L + conditions.getBytesPerSecond() - 1) / conditions.getBytesPerSecond();
+            } else {
+                linkFreeAt = start;
+            }
+            if (!isReliable && conditions.getLossRate() > 0 && random.nextDouble() < conditions.getLossRate()) {
+                lost.incrementAndGet();
+                return false;
+            }
+            long arrival = linkFreeAt + conditions.getLatencyMillis();
+            if (conditions.getJitterMillis() > 0) {
+                arrival += random.nextInt(conditions.getJitterMillis() + 1);
+            }
+            if (isReliable) {
+                arrival = Math.max(arrival, lastReliableArrival);
+                lastReliableArrival = arrival;
+            }
+            packet = new InFlight(data, isReliable, arrival, sequence++);
+        }
+        inbox.offer(packet);
+        sent.incrementAndGet();
+        bytesSent.addAndGet(data.length);
+        return true;
+    }
+
+    /**
+     * Takes the next packet of one kind that has arrived by now. Receiving thread only.
+     *
+     * @param isReliable which kind to take
+     * @return the packet's bytes, or {@code null} if none is due
+     */
+    byte[] poll(boolean isReliable) {
+        InFlight arrived;
+        while ((arrived = inbox.poll()) != null) {
+            (arrived.reliable ? reliable : datagrams).add(arrived);
+        }
+        PriorityQueue<InFlight> queue = isReliable ? reliable : datagrams;
+        InFlight next = queue.peek();
+        if (closed || next == null || next.arrival > clock.getAsLong()) {
+            return null;
+        }
+        queue.poll();
+        delivered.incrementAndGet();
+        return next.data;
+    }
+
+    void close() {
+        closed = true;
+        inbox.clear();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    LinkConditions getConditions() {
+        return conditions;
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getLost() {
+        return lost.get();
+    }
+
+    long getDelivered() {
+        return delivered.get();
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    private static final class InFlight {
+        final byte[] data;
+        final boolean reliable;
+        final long arrival;
+        final long sequence;
+
+        InFlight(byte[] data, boolean reliable, long arrival, long sequence) {
+            this.data = data;
+            this.reliable = reliable;
+            this.arrival = arrival;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import asg.games.yipee.net.tools.KryoPool;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Writes everything a connection's {@link OutboundQueue} collected during a server tick as
+ * one framed batch with a single write.
+ *
+ * <p>At an 8-player table one tick can queue a seat state per board, an action broadcast,
+ * acks and lobby updates for the same client. Written one by one, each costs a write call
+ * and its own framing; batched, the whole tick is encoded back to back into a pooled
+ * buffer and handed to the socket at once.
+ *
+ * <pre>
+ * batch: int length of the rest (big-endian), varint message count, messages with their class
+ * </pre>
+ *
+ * <p>An {@link EncodedMessage} from a broadcast is copied into the batch as it is, so a
+ * message sent to every client of a table is serialized once rather than once per client.
+ *
+ * <p>Each message is encoded after the ones before it; one that fails to encode is cut
+ * back out of the batch, logged and dropped, and the rest of the batch is still sent.
+ *
+ * <p>A batch stops growing once it passes {@code maxBatchBytes}; whatever is left stays
+ * queued for the next flush, where newer states can still replace it. If the socket
+ * accepts only part of a batch, the remainder is written first on the next flush and no
+ * new batch is started until it has gone, so a slow client backs up in its queue rather
+ * than in memory here.
+ *
+ * <p>Flushing is done by the connection's writer and is thread-safe; messages may be
+ * offered to the queue from any thread meanwhile.
+ */
+public class OutboundBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundBatcher.class);
+
+    public static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+
+    /** Bytes preceding every batch: its length. */
+    public static final int BATCH_HEADER_BYTES = 4;
+
+    /** Room for the message count, written after the messages are known. */
+    private static final int COUNT_BYTES = 5;
+
+    private final KryoPool pool;
+    private final OutboundQueue queue;
+    private final WritableByteChannel out;
+    private final int maxBatchBytes;
+
+    private ByteBuffer pending;
+    private long batches;
+    private long messages;
+    private long writes;
+    private long bytesWritten;
+    private long encodeFailures;
+
+    public OutboundBatcher(KryoPool pool, OutboundQueue queue, WritableByteChannel out) {
+        this(pool, queue, out, DEFAULT_MAX_BATCH_BYTES);
+    }
+
+    /**
+     * Creates a batcher.
+     *
+     * @param pool          encodes the messages
+     * @param queue         the connection's outbound messages
+     * @param out           the connection's socket
+     * @param maxBatchBytes size past which a batch takes no more messages
+     */
+    public OutboundBatcher(KryoPool pool, OutboundQueue queue, WritableByteChannel out, int maxBatchBytes) {
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("maxBatchBytes must be positive: " + maxBatchBytes);
+        }
+        this.pool = Objects.requireNonNull(pool, "pool");
+        this.queue = Objects.requireNonNull(queue, "queue");
+        this.out = Objects.requireNonNull(out, "out");
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /**
+     * Writes the unsent part of the previous batch, then, if it has all gone, everything
+     * queued since as a new batch.
+     *
+     * @return the number of messages in the new batch, zero if none was started
+     * @throws IOException if the write fails
+     */
+    public synchronized int flush() throws IOException {
+        if (pending != null) {
+            write(pending);
+            if (pending.hasRemaining()) {
+                return 0;
+            }
+            pending = null;
+        }
+        if (queue.isEmpty()) {
+            return 0;
+        }
+
+        try (KryoPool.Handle handle = pool.borrow()) {
+            Output output = handle.getOutput();
+            output.setPosition(BATCH_HEADER_BYTES + COUNT_BYTES);
+            int count = 0;
+            Object message;
+            while (output.position() < maxBatchBytes && (message = queue.poll()) != null) {
+                int mark = output.position();
+                try {
+                    if (message instanceof EncodedMessage) {
+                        ((EncodedMessage) message).writeTo(output);
+                    } else {
+                        handle.getKryo().writeClassAndObject(output, message);
+                    }
+                    count++;
+                } catch (RuntimeException e) {
+                    output.setPosition(mark);
+                    handle.getKryo().reset();
+                    encodeFailures++;
+                    logger.error("Dropped a {} that could not be encoded",
+                        EncodedMessage.unwrap(message).getClass().getSimpleName(), e);
+                } finally {
+                    EncodedMessage.release(message);
+                }
+            }
+            int end = output.position();
+            int start = writeHeader(output, end, count);
+
+            ByteBuffer batch = ByteBuffer.wrap(output.getBuffer(), start, end - start);
+            write(batch);
+            if (batch.hasRemaining()) {
+                pending = ByteBuffer.wrap(Arrays.copyOfRange(output.getBuffer(), batch.position(), end));
+                logger.debug("Socket took {} of {} batch bytes; holding the rest", batch.position() - start, end - start);
+            }
+            batches++;
+            messages += count;
+            return count;
+        }
+    }
+
+    /**
+     * Writes the length and count in front of the messages, right-aligned against them so
+     * the variable-width count needs no copying.
+     *
+     * @return the offset where the batch starts
+     */
+    private static int writeHeader(Output output, int end, int count) {
+        int start = COUNT_BYTES - varIntLength(count);
+        output.setPosition(start);
+        output.writeInt(end - start - BATCH_HEADER_BYTES);
+        output.writeInt(count, true);
+        output.setPosition(end);
+        return start;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        int written = out.write(buffer);
+        writes++;
+        bytesWritten += written;
+    }
+
+    /**
+     * Returns whether part of a batch is still waiting for the socket.
+     */
+    public synchronized boolean hasPending() {
+        return pending != null;
+    }
+
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns how many messages have been sent in batches.
+     */
+    public synchronized long getMessages() {
+        return messages;
+    }
+
+    /**
+     * Returns how many times the socket has been written to.
+     */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns how many messages were dropped because they could not be encoded.
+     */
+    public synchronized long getEncodeFailures() {
+        return encodeFailures;
+    }
+
+    /**
+     * Decodes every complete batch in a buffer of received bytes, leaving a trailing partial
+     * batch in place for when the rest arrives.
+     *
+     * @param pool     decodes the messages
+     * @param in       received bytes, ready for reading
+     * @param receiver receives each message in order
+     * @return the number of messages decoded
+     */
+    public static int readBatches(KryoPool pool, ByteBuffer in, Consumer<Object> receiver) {
+        int count = 0;
+        while (in.remaining() >= BATCH_HEADER_BYTES) {
+            int length = in.getInt(in.position());
+            if (length < 0) {
+                throw new IllegalArgumentException("Negative batch length " + length);
+            }
+            if (in.remaining() < BATCH_HEADER_BYTES + length) {
+                break;
+            }
+            int start = in.position() + BATCH_HEADER_BYTES;
+            try (KryoPool.Handle handle = pool.borrow()) {
+                Input input = handle.getInput();
+                if (in.hasArray()) {
+                    input.setBuffer(in.array(), in.arrayOffset() + start, length);
+                } else {
+                    byte[] copy = new byte[length];
+                    ByteBuffer slice = in.duplicate();
+                    ((Buffer) slice).position(start);
+                    slice.get(copy);
+                    input.setBuffer(copy);
+                }
+                int messageCount = input.readInt(true);
+                for (int i = 0; i < messageCount; i++) {
+                    receiver.accept(handle.getKryo().readClassAndObject(input));
+                }
+                count += messageCount;
+            }
+            ((Buffer) in).position(start + length);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableStateUpdateResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Bounded, per-connection queue of messages waiting to be written to a client.
+ *
+ * <p>Messages fall into two lanes:
+ * <ul>
+ *     <li><b>State</b> ({@link SeatStateUpdateResponse}, {@link TableStateUpdateResponse}):
+ *     only the newest undelivered state per table and seat matters. Offering a state for a
+ *     key that already has one waiting replaces it and counts the older one as dropped.
+ *     The replacement joins the back of the line, so a state is never written ahead of
+ *     a message queued before it was produced.</li>
+ *     <li><b>Reliable</b> (everything else: lobby traffic, acks, attack broadcasts): delivered
+ *     exactly once, in the order offered.</li>
+ * </ul>
+ * {@link #poll()} returns messages of both lanes in the order they were queued.
+ *
+ * <p>Memory is bounded by {@code maxStateSlots} waiting states and {@code maxReliable}
+ * waiting reliable messages. A full state lane evicts its oldest state. A full reliable lane
+ * cannot drop anything, so the queue rejects the message and reports itself
+ * {@link #isOverflowed() overflowed}; the connection should then be closed, since the
+ * client is too far behind to ever catch up.
+ *
+ * <p>An {@link EncodedMessage} shared by a broadcast is queued like the message it encodes.
+ * The queue retains its own reference, which {@link #poll()} hands to the writer; states
+ * replaced or evicted, and messages discarded by {@link #clear()}, are released here.
+ *
+ * <p>All methods are thread-safe: game threads offer while the connection's writer polls.
+ */
+public class OutboundQueue {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+
+    public static final int DEFAULT_MAX_RELIABLE = 1024;
+    public static final int DEFAULT_MAX_STATE_SLOTS = 64;
+
+    private static final int TABLE_STATE_SEAT = -1;
+
+    private final int maxReliable;
+    private final int maxStateSlots;
+    private final ArrayDeque<Entry> reliable = new ArrayDeque<>();
+    private final Map<StateKey, Entry> statesByKey = new HashMap<>();
+    private final TreeMap<Long, Entry> statesInOrder = new TreeMap<>();
+    private long nextSequence;
+    private boolean overflowed;
+
+    private long droppedStates;
+    private long evictedStates;
+    private long delivered;
+    private int highWaterMark;
+
+    public OutboundQueue() {
+        this(DEFAULT_MAX_RELIABLE, DEFAULT_MAX_STATE_SLOTS);
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param maxReliable   reliable messages that may wait before the queue overflows
+     * @param maxStateSlots distinct table/seat states that may wait at once
+     */
+    public OutboundQueue(int maxReliable, int maxStateSlots) {
+        if (maxReliable <= 0 || maxStateSlots <= 0) {
+            throw new IllegalArgumentException("Limits must be positive: " + maxReliable + ", " + maxStateSlots);
+        }
+        this.maxReliable = maxReliable;
+        this.maxStateSlots = maxStateSlots;
+    }
+
+    /**
+     * Returns whether a message, or the message an {@link EncodedMessage} encodes, belongs
+     * to the latest-state-wins lane.
+     */
+    public static boolean isState(Object message) {
+        Object decoded = EncodedMessage.unwrap(message);
+        return decoded instanceof SeatStateUpdateResponse || decoded instanceof TableStateUpdateResponse;
+    }
+
+    /**
+     * Queues a message for delivery.
+     *
+     * @param message the message; an {@link EncodedMessage} is retained until polled
+     * @return {@code false} if the message was rejected because the reliable lane is full
+     */
+    public synchronized boolean offer(Object message) {
+        Objects.requireNonNull(message, "message");
+        if (isState(message)) {
+            offerState(keyOf(message), retain(message));
+            return true;
+        }
+        if (reliable.size() >= maxReliable) {
+            if (!overflowed) {
+                logger.warn("Outbound queue overflowed with {} reliable messages waiting", reliable.size());
+            }
+            overflowed = true;
+            return false;
+        }
+        reliable.add(new Entry(nextSequence++, null, retain(message)));
+        updateHighWaterMark();
+        return true;
+    }
+
+    private void offerState(StateKey key, Object message) {
+        Entry waiting = statesByKey.remove(key);
+        if (waiting != null) {
+            statesInOrder.remove(waiting.sequence);
+            EncodedMessage.release(waiting.message);
+            droppedStates++;
+        } else if (statesByKey.size() >= maxStateSlots) {
+            Entry oldest = statesInOrder.pollFirstEntry().getValue();
+            statesByKey.remove(oldest.key);
+            EncodedMessage.release(oldest.message);
+            evictedStates++;
+        }
+        Entry entry = new Entry(nextSequence++, key, message);
+        statesByKey.put(key, entry);
+        statesInOrder.put(entry.sequence, entry);
+        updateHighWaterMark();
+    }
+
+    private static Object retain(Object message) {
+        return message instanceof EncodedMessage ? ((EncodedMessage) message).retain() : message;
+    }
+
+    /**
+     * Removes the next message to write. An {@link EncodedMessage} comes with the queue's
+     * reference, which the caller releases once it has written the bytes.
+     *
+     * @return the message, or {@code null} if nothing is waiting
+     */
+    public synchronized Object poll() {
+        Entry head = reliable.peekFirst();
+        Map.Entry<Long, Entry> firstState = statesInOrder.firstEntry();
+        Entry next;
+        if (firstState != null && (head == null || firstState.getKey() < head.sequence)) {
+            next = firstState.getValue();
+            statesInOrder.pollFirstEntry();
+            statesByKey.remove(next.key);
+        } else if (head != null) {
+            next = reliable.pollFirst();
+        } else {
+            return null;
+        }
+        delivered++;
+        return next.message;
+    }
+
+    /**
+     * Discards every waiting message, for example when the connection closes.
+     */
+    public synchronized void clear() {
+        for (Entry entry : reliable) {
+            EncodedMessage.release(entry.message);
+        }
+        for (Entry entry : statesByKey.values()) {
+            EncodedMessage.release(entry.message);
+        }
+        reliable.clear();
+        statesByKey.clear();
+        statesInOrder.clear();
+    }
+
+    public synchronized int size() {
+        return reliable.size() + statesByKey.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return reliable.isEmpty() && statesByKey.isEmpty();
+    }
+
+    /**
+     * Returns whether a reliable message has been rejected. Once set, this stays set.
+     */
+    public synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * Returns how many states were replaced by a newer state for the same table and seat
+     * before being written.
+     */
+    public synchronized long getDroppedStates() {
+        return droppedStates;
+    }
+
+    /**
+     * Returns how many states were evicted because too many tables and seats were waiting.
+     */
+    public synchronized long getEvictedStates() {
+        return evictedStates;
+    }
+
+    /**
+     * Returns how many messages have been handed to the writer.
+     */
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Returns the largest number of messages that have been waiting at once.
+     */
+    public synchronized int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    private void updateHighWaterMark() {
+        highWaterMark = Math.max(highWaterMark, reliable.size() + statesByKey.size());
+    }
+
+    private static StateKey keyOf(Object queued) {
+        Object message = EncodedMessage.unwrap(queued);
+        if (message instanceof SeatStateUpdateResponse) {
+            SeatStateUpdateResponse seat = (SeatStateUpdateResponse) message;
+            return new StateKey(seat.getTableId(), seat.getGameHandle(), seat.getSeatIndex());
+        }
+        TableStateUpdateResponse table = (TableStateUpdateResponse) message;
+        return new StateKey(table.getGameId(), table.getGameHandle(), TABLE_STATE_SEAT);
+    }
+
+    private static final class Entry {
+        final long sequence;
+        final StateKey key;
+        final Object message;
+
+        Entry(long sequence, StateKey key, Object message) {
+            this.sequence = sequence;
+            this.key = key;
+            this.message = message;
+        }
+    }
+
+    private static final class StateKey {
+        final String tableId;
+        final int gameHandle;
+        final int seat;
+
+        StateKey(String tableId, int gameHandle, int seat) {
+            this.tableId = tableId;
+            this.gameHandle = gameHandle;
+            this.seat = seat;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            StateKey other = (StateKey) o;
+            return seat == other.seat && gameHandle == other.gameHandle && Objects.equals(tableId, other.tableId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Objects.hashCode(tableId) + gameHandle) + seat;
+        }
+    }
+}
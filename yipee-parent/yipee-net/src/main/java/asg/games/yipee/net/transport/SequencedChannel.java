@@ -0,0 +1,489 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.AbstractServerResponse;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.packets.TableStateUpdateResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Splits one connection's traffic between an unreliable, sequenced datagram path for
+ * per-tick game traffic and the reliable stream for everything else.
+ *
+ * <p>A lost or late datagram never holds up the ones behind it, which is what a single TCP
+ * stream does on a lossy network. Instead:
+ * <ul>
+ *     <li><b>States</b> ({@link SeatStateUpdateResponse}, {@link TableStateUpdateResponse})
+ *     are sent once. The receiver delivers a state only if its {@code serverTick} is newer
+ *     than the last one delivered for the same table and seat; a lost state is simply
+ *     superseded by the next.</li>
+ *     <li><b>Events</b> ({@link TableActionsBroadcastResponse}, {@link PlayerActionRequest})
+ *     must all arrive, so each datagram carries the newest event together with up to
+ *     {@code redundancy - 1} before it on the same stream. Events are numbered per stream
+ *     and the receiver delivers each number once, in order, so an event is only lost if
+ *     {@code redundancy} datagrams in a row are. The receiver counts events it had to skip
+ *     and logs each gap; they are not resent.</li>
+ *     <li>Everything else (handshake, lobby, seating, acks) goes to the reliable sink
+ *     unchanged, as do messages too large for one datagram.</li>
+ * </ul>
+ *
+ * <pre>
+ * datagram: byte kind, then
+ *   STATE:  message with its class
+ *   EVENTS: varint sequence of the newest event, varint count, messages oldest first
+ * </pre>
+ *
+ * <p>A broadcast may be sent as an {@link EncodedMessage}, encoded once for every recipient;
+ * its bytes go into the datagram as they are. The event history retains a reference to
+ * each event it may resend, and the reliable sink is handed the {@code EncodedMessage}
+ * itself, to retain if it keeps it past the call.
+ *
+ * <p>Both ends keep a little state per stream. {@link #reset(String, int)} drops a finished
+ * table's streams; it must be called on both ends, since a sender that forgets a stream
+ * numbers it from one again.
+ *
+ * <p>Sending and receiving are independent and may run on different threads; each side
+ * is thread-safe on its own.
+ */
+public class SequencedChannel {
+    private static final Logger logger = LoggerFactory.getLogger(SequencedChannel.class);
+
+    public static final int DEFAULT_REDUNDANCY = 3;
+    /** Fits in one unfragmented packet on any path with the IPv6 minimum MTU. */
+    public static final int DEFAULT_MAX_DATAGRAM = 1200;
+
+    private static final byte FRAME_STATE = 1;
+    private static final byte FRAME_EVENTS = 2;
+    private static final int NO_SEAT = -1;
+    private static final long NO_SEQUENCE = Long.MIN_VALUE;
+    /** Kind, newest sequence and count, at their largest. */
+    private static final int EVENTS_HEADER_BYTES = 1 + 9 + 5;
+
+    private final KryoPool pool;
+    private final DatagramLink link;
+    private final Consumer<Object> reliable;
+    private final Consumer<Object> receiver;
+    private final int redundancy;
+    private final int maxDatagram;
+
+    private final Object sendLock = new Object();
+    private final Map<StreamKey, EventHistory> sentEvents = new HashMap<>();
+    private final Object receiveLock = new Object();
+    private final Map<StreamKey, Long> lastDelivered = new HashMap<>();
+
+    private final AtomicLong datagramsSent = new AtomicLong();
+    private final AtomicLong reliableSent = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong staleDropped = new AtomicLong();
+    private final AtomicLong duplicatesDropped = new AtomicLong();
+    private final AtomicLong eventsSkipped = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+
+    /**
+     * Creates a channel with the default redundancy and datagram size.
+     *
+     * @param pool     encodes and decodes datagrams
+     * @param link     sends datagrams to the peer
+     * @param reliable sends a message on the peer's reliable stream
+     * @param receiver receives messages delivered from datagrams
+     */
+    public SequencedChannel(KryoPool pool, DatagramLink link, Consumer<Object> reliable, Consumer<Object> receiver) {
+        this(pool, link, reliable, receiver, DEFAULT_REDUNDANCY, DEFAULT_MAX_DATAGRAM);
+    }
+
+    /**
+     * Creates a channel.
+     *
+     * @param pool        encodes and decodes datagrams
+     * @param link        sends datagrams to the peer
+     * @param reliable    sends a message on the peer's reliable stream
+     * @param receiver    receives messages delivered from datagrams
+     * @param redundancy  events carried by each event datagram, counting the newest
+     * @param maxDatagram largest datagram sent, in bytes
+     */
+    public SequencedChannel(KryoPool pool, DatagramLink link, Consumer<Object> reliable, Consumer<Object> receiver,
+                            int redundancy, int maxDatagram) {
+        if (redundancy <= 0 || maxDatagram <= 0) {
+            throw new IllegalArgumentException("Limits must be positive: " + redundancy + ", " + maxDatagram);
+        }
+        this.pool = Objects.requireNonNull(pool, "pool");
+        this.link = Objects.requireNonNull(link, "link");
+        this.reliable = Objects.requireNonNull(reliable, "reliable");
+        this.receiver = Objects.requireNonNull(receiver, "receiver");
+        this.redundancy = redundancy;
+        this.maxDatagram = maxDatagram;
+    }
+
+    /**
+     * Returns whether a message travels on the datagram path.
+     */
+    public static boolean isSequenced(Object message) {
+        return OutboundQueue.isState(message) || isEvent(message);
+    }
+
+    private static boolean isEvent(Object message) {
+        message = EncodedMessage.unwrap(message);
+        return message instanceof TableActionsBroadcastResponse || message instanceof PlayerActionRequest;
+    }
+
+    /**
+     * Sends a message on whichever path it belongs to.
+     *
+     * @param message the message, or an {@link EncodedMessage} of it; the caller keeps its
+     *                reference
+     */
+    public void send(Object message) {
+        Objects.requireNonNull(message, "message");
+        if (!isSequenced(message)) {
+            sendReliable(message);
+            return;
+        }
+        synchronized (sendLock) {
+            if (isEvent(message)) {
+                sendEvent(message);
+            } else {
+                sendState(message);
+            }
+        }
+    }
+
+    private void sendState(Object message) {
+        try (KryoPool.Handle handle = pool.borrow()) {
+            Output output = handle.getOutput();
+            output.writeByte(FRAME_STATE);
+            if (message instanceof EncodedMessage) {
+                ((EncodedMessage) message).writeTo(output);
+            } else {
+                handle.getKryo().writeClassAndObject(output, message);
+            }
+            if (output.position() > maxDatagram) {
+                sendOversized(message, output.position());
+                return;
+            }
+            link.send(output.getBuffer(), 0, output.position());
+            datagramsSent.incrementAndGet();
+        }
+    }
+
+    private void sendEvent(Object message) {
+        EncodedMessage encoded = message instanceof EncodedMessage
+            ? ((EncodedMessage) message).retain()
+            : EncodedMessage.wrap(message, pool.encode(message));
+        if (encoded.getLength() + EVENTS_HEADER_BYTES > maxDatagram) {
+            encoded.release();
+            sendOversized(message, encoded.getLength());
+            return;
+        }
+        StreamKey key = keyOf(message);
+        EventHistory history = sentEvents.get(key);
+        if (history == null) {
+            history = new EventHistory();
+            sentEvents.put(key, history);
+        }
+        history.add(encoded, redundancy);
+
+        try (KryoPool.Handle handle = pool.borrow()) {
+            Iterator<EncodedMessage> events = history.events.iterator();
+            int count = history.events.size();
+            int size = history.size;
+            while (count > 1 && size + EVENTS_HEADER_BYTES > maxDatagram) {
+                size -= events.next().getLength();
+                count--;
+            }
+            Output output = handle.getOutput();
+            output.writeByte(FRAME_EVENTS);
+            output.writeLong(history.sequence, true);
+            output.writeInt(count, true);
+            while (events.hasNext()) {
+                events.next().writeTo(output);
+            }
+            link.send(output.getBuffer(), 0, output.position());
+            datagramsSent.incrementAndGet();
+        }
+    }
+
+    private void sendOversized(Object message, int size) {
+        logger.debug("{} of {} bytes exceeds the {} byte datagram limit; sending reliably",
+            EncodedMessage.unwrap(message).getClass().getSimpleName(), size, maxDatagram);
+        sendReliable(message);
+    }
+
+    private void sendReliable(Object message) {
+        reliable.accept(message);
+        reliableSent.incrementAndGet();
+    }
+
+    /**
+     * Handles a datagram from the peer, delivering whatever in it is new to the receiver.
+     * Datagrams that cannot be decoded are counted and dropped.
+     *
+     * @param data   buffer holding the datagram
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     */
+    public void receive(byte[] data, int offset, int length) {
+        synchronized (receiveLock) {
+            List<Object> messages = new ArrayList<>();
+            long firstSequence;
+            try (KryoPool.Handle handle = pool.borrow()) {
+                Input input = handle.getInput();
+                input.setBuffer(data, offset, length);
+                byte kind = input.readByte();
+                if (kind == FRAME_STATE) {
+                    firstSequence = NO_SEQUENCE;
+                    messages.add(checkType(handle.getKryo().readClassAndObject(input), false));
+                } else if (kind == FRAME_EVENTS) {
+                    long sequence = input.readLong(true);
+                    int count = input.readInt(true);
+                    firstSequence = sequence - count + 1;
+                    for (int i = 0; i < count; i++) {
+                        messages.add(checkType(handle.getKryo().readClassAndObject(input), true));
+                    }
+                } else {
+                    throw new IllegalArgumentException("Unknown datagram kind " + kind);
+                }
+            } catch (RuntimeException e) {
+                malformed.incrementAndGet();
+                logger.warn("Dropped malformed datagram of {} bytes: {}", length, e.toString());
+                return;
+            }
+
+            if (firstSequence == NO_SEQUENCE) {
+                Object state = messages.get(0);
+                if (!deliverIfNewer(keyOf(state), ((AbstractServerResponse) state).getServerTick(), state)) {
+                    staleDropped.incrementAndGet();
+                }
+                return;
+            }
+            for (int i = 0; i < messages.size(); i++) {
+                Object event = messages.get(i);
+                StreamKey key = keyOf(event);
+                long sequence = firstSequence + i;
+                Long last = lastDelivered.get(key);
+                long expected = last != null ? last + 1 : 1;
+                if (sequence > expected) {
+                    eventsSkipped.addAndGet(sequence - expected);
+                    logger.warn("Skipped {} {} events on {} before #{}", sequence - expected,
+                        key.type.getSimpleName(), key.id != null ? key.id : key.handle, sequence);
+                }
+                if (!deliverIfNewer(key, sequence, event)) {
+                    duplicatesDropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static Object checkType(Object message, boolean event) {
+        if (event ? !isEvent(message) : !OutboundQueue.isState(message)) {
+            throw new IllegalArgumentException("Unexpected " + (event ? "event" : "state") + ": " + message);
+        }
+        return message;
+    }
+
+    private boolean deliverIfNewer(StreamKey key, long sequence, Object message) {
+        Long last = lastDelivered.get(key);
+        if (last != null && sequence <= last) {
+            return false;
+        }
+        lastDelivered.put(key, sequence);
+        delivered.incrementAndGet();
+        receiver.accept(message);
+        return true;
+    }
+
+    /**
+     * Forgets every stream, for example when the peer reconnects and starts numbering
+     * again.
+     */
+    public void reset() {
+        synchronized (sendLock) {
+            for (EventHistory history : sentEvents.values()) {
+                history.clear();
+            }
+            sentEvents.clear();
+        }
+        synchronized (receiveLock) {
+            lastDelivered.clear();
+        }
+    }
+
+    /**
+     * Forgets the streams of one table on both the sending and receiving side, once the
+     * table is finished with this connection. The peer must do the same.
+     *
+     * @param tableId    the table's identifier
+     * @param gameHandle the table's game handle, or {@link AbstractClientRequest#NO_HANDLE}
+     */
+    public void reset(String tableId, int gameHandle) {
+        synchronized (sendLock) {
+            Iterator<Map.Entry<StreamKey, EventHistory>> streams = sentEvents.entrySet().iterator();
+            while (streams.hasNext()) {
+                Map.Entry<StreamKey, EventHistory> stream = streams.next();
+                if (stream.getKey().belongsTo(tableId, gameHandle)) {
+                    stream.getValue().clear();
+                    streams.remove();
+                }
+            }
+        }
+        synchronized (receiveLock) {
+            lastDelivered.keySet().removeIf(key -> key.belongsTo(tableId, gameHandle));
+        }
+    }
+
+    public long getDatagramsSent() {
+        return datagramsSent.get();
+    }
+
+    /**
+     * Returns how many messages were handed to the reliable sink, including oversized
+     * datagram traffic.
+     */
+    public long getReliableSent() {
+        return reliableSent.get();
+    }
+
+    /**
+     * Returns how many messages have been delivered from datagrams.
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Returns how many states arrived after a newer state for the same table and seat.
+     */
+    public long getStaleDropped() {
+        return staleDropped.get();
+    }
+
+    /**
+     * Returns how many events arrived again after already being delivered, mostly the
+     * redundant copies.
+     */
+    public long getDuplicatesDropped() {
+        return duplicatesDropped.get();
+    }
+
+    /**
+     * Returns how many events were never delivered because a later event on the same stream
+     * was delivered first: lost in more than {@code redundancy} datagrams in a row, or
+     * reordered further than that.
+     */
+    public long getEventsSkipped() {
+        return eventsSkipped.get();
+    }
+
+    public long getMalformed() {
+        return malformed.get();
+    }
+
+    private static StreamKey keyOf(Object sent) {
+        Object message = EncodedMessage.unwrap(sent);
+        if (message instanceof SeatStateUpdateResponse) {
+            SeatStateUpdateResponse seat = (SeatStateUpdateResponse) message;
+            return new StreamKey(SeatStateUpdateResponse.class, seat.getTableId(), seat.getGameHandle(), seat.getSeatIndex());
+        }
+        if (message instanceof TableActionsBroadcastResponse) {
+            TableActionsBroadcastResponse broadcast = (TableActionsBroadcastResponse) message;
+            return new StreamKey(TableActionsBroadcastResponse.class, broadcast.getTableId(), broadcast.getGameHandle(), NO_SEAT);
+        }
+        if (message instanceof AbstractServerResponse) {
+            AbstractServerResponse response = (AbstractServerResponse) message;
+            return new StreamKey(message.getClass(), response.getGameId(), response.getGameHandle(), NO_SEAT);
+        }
+        AbstractClientRequest request = (AbstractClientRequest) message;
+        return new StreamKey(message.getClass(), request.getGameId(), request.getGameHandle(), NO_SEAT);
+    }
+
+    private static final class EventHistory {
+        final ArrayDeque<EncodedMessage> events = new ArrayDeque<>();
+        long sequence;
+        int size;
+
+        void add(EncodedMessage encoded, int redundancy) {
+            if (events.size() == redundancy) {
+                EncodedMessage oldest = events.pollFirst();
+                size -= oldest.getLength();
+                oldest.release();
+            }
+            events.addLast(encoded);
+            size += encoded.getLength();
+            sequence++;
+        }
+
+        void clear() {
+            for (EncodedMessage event : events) {
+                event.release();
+            }
+            events.clear();
+            size = 0;
+        }
+    }
+
+    private static final class StreamKey {
+        final Class<?> type;
+        final String id;
+        final int handle;
+        final int seat;
+
+        StreamKey(Class<?> type, String id, int handle, int seat) {
+            this.type = type;
+            this.id = id;
+            this.handle = handle;
+            this.seat = seat;
+        }
+
+        boolean belongsTo(String tableId, int gameHandle) {
+            return (id != null && id.equals(tableId))
+                || (gameHandle != AbstractClientRequest.NO_HANDLE && handle == gameHandle);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StreamKey)) {
+                return false;
+            }
+            StreamKey other = (StreamKey) o;
+            return type == other.type && seat == other.seat && handle == other.handle && Objects.equals(id, other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * type.hashCode() + Objects.hashCode(id)) + handle) + seat;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * {@link DatagramLink} over a non-blocking UDP socket connected to one peer.
+ *
+ * <p>Send failures are logged and otherwise treated like any other lost datagram. Incoming
+ * datagrams are read by {@link #poll(SequencedChannel)}, typically from the connection's
+ * reader loop.
+ */
+public class UdpLink implements DatagramLink, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(UdpLink.class);
+
+    /** Largest UDP payload over IPv4. */
+    private static final int MAX_DATAGRAM = 65507;
+
+    private final DatagramChannel channel;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(MAX_DATAGRAM);
+
+    /**
+     * Opens a socket bound to a local address.
+     *
+     * @param local the address to bind, with port 0 for any free port
+     * @throws IOException if the socket cannot be opened or bound
+     */
+    public UdpLink(InetSocketAddress local) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(local);
+    }
+
+    /**
+     * Restricts the socket to one peer, the destination of every {@link #send}.
+     *
+     * @param remote the peer's address
+     * @throws IOException if the socket cannot be connected
+     */
+    public void connect(SocketAddress remote) throws IOException {
+        channel.connect(remote);
+    }
+
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    @Override
+    public void send(byte[] data, int offset, int length) {
+        try {
+            channel.write(ByteBuffer.wrap(data, offset, length));
+        } catch (IOException e) {
+            logger.debug("Datagram of {} bytes not sent: {}", length, e.toString());
+        }
+    }
+
+    /**
+     * Hands every datagram waiting on the socket to a channel, without blocking.
+     *
+     * @param target the channel to receive them
+     * @return the number of datagrams read
+     * @throws IOException if the socket fails
+     */
+    public int poll(SequencedChannel target) throws IOException {
+        int count = 0;
+        while (true) {
+            ((Buffer) receiveBuffer).clear();
+            int length;
+            try {
+                length = channel.read(receiveBuffer);
+            } catch (PortUnreachableException e) {
+                // The peer is not listening yet, or any more; its datagrams are lost either way.
+                continue;
+            }
+            if (length <= 0) {
+                return count;
+            }
+            target.receive(receiveBuffer.array(), 0, length);
+            count++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.transport.BroadcastEncoder;
+import asg.games.yipee.net.transport.EncodedMessage;
+import asg.games.yipee.net.transport.OutboundBatcher;
+import asg.games.yipee.net.transport.OutboundQueue;
+import asg.games.yipee.net.transport.SequencedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BroadcastEncoderTest {
+
+    private static final KryoPool POOL = new KryoPool();
+
+    @Test
+    public void testBroadcastIsEncodedOnceForEveryRecipient() throws IOException {
+        BroadcastEncoder encoder = new BroadcastEncoder(POOL);
+        TableActionsBroadcastResponse broadcast = broadcast(7);
+        List<OutboundQueue> queues = new ArrayList<>();
+        for (int i = 0; i < 38; i++) {
+            queues.add(new OutboundQueue());
+        }
+
+        EncodedMessage shared = encoder.encode(broadcast);
+        for (OutboundQueue queue : queues) {
+            assertTrue(queue.offer(shared));
+        }
+        assertFalse(shared.release());
+        assertEquals(38, shared.refCount());
+
+        long borrowsBefore = POOL.getBorrowCount();
+        List<byte[]> streams = new ArrayList<>();
+        for (OutboundQueue queue : queues) {
+            ByteArrayOutputStream socket = new ByteArrayOutputStream();
+            assertEquals(1, new OutboundBatcher(POOL, queue, Channels.newChannel(socket)).flush());
+            streams.add(socket.toByteArray());
+        }
+        assertEquals(38, POOL.getBorrowCount() - borrowsBefore, "one borrow per batch, none per message");
+        assertEquals(1, encoder.getEncodedCount());
+        assertEquals(0, shared.refCount());
+
+        // The shared bytes are exactly what encoding per recipient would have written
+        OutboundQueue unshared = new OutboundQueue();
+        unshared.offer(broadcast);
+        ByteArrayOutputStream socket = new ByteArrayOutputStream();
+        new OutboundBatcher(POOL, unshared, Channels.newChannel(socket)).flush();
+        for (byte[] stream : streams) {
+            assertArrayEquals(socket.toByteArray(), stream);
+        }
+
+        List<Object> received = new ArrayList<>();
+        OutboundBatcher.readBatches(POOL, ByteBuffer.wrap(streams.get(37)), received::add);
+        assertEquals(Collections.singletonList(broadcast), received);
+    }
+
+    @Test
+    public void testReferencesAreReleasedWhenStatesAreDropped() {
+        BroadcastEncoder encoder = new BroadcastEncoder(POOL);
+        OutboundQueue queue = new OutboundQueue();
+        EncodedMessage first = encoder.encode(seatState(1));
+        EncodedMessage second = encoder.encode(seatState(2));
+        queue.offer(first);
+        queue.offer(second);
+        first.release();
+        second.release();
+        assertEquals(0, first.refCount(), "replaced by the newer state");
+        assertEquals(1, second.refCount());
+
+        queue.clear();
+        assertEquals(0, second.refCount());
+        assertThrows(IllegalStateException.class, second::retain);
+        assertThrows(IllegalStateException.class, second::release);
+
+        long reusedBefore = encoder.getReusedCount();
+        encoder.encode(seatState(3)).release();
+        assertEquals(reusedBefore + 1, encoder.getReusedCount());
+        assertEquals(2, encoder.getAllocatedCount());
+    }
+
+    @Test
+    public void testSequencedChannelsShareEventBytes() {
+        BroadcastEncoder encoder = new BroadcastEncoder(POOL);
+        List<byte[]> datagrams = new ArrayList<>();
+        List<SequencedChannel> senders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            senders.add(new SequencedChannel(POOL, (data, offset, length) ->
+                datagrams.add(Arrays.copyOfRange(data, offset, offset + length)), message -> {
+            }, message -> {
+            }, 2, SequencedChannel.DEFAULT_MAX_DATAGRAM));
+        }
+
+        List<EncodedMessage> sent = new ArrayList<>();
+        for (int tick = 1; tick <= 3; tick++) {
+            EncodedMessage shared = encoder.encode(broadcast(tick));
+            for (SequencedChannel sender : senders) {
+                sender.send(shared);
+            }
+            shared.release();
+            sent.add(shared);
+        }
+        assertEquals(3, encoder.getEncodedCount());
+        assertEquals(0, sent.get(0).refCount(), "dropped from every history");
+        assertEquals(3, sent.get(2).refCount(), "held by every history");
+
+        List<Object> received = new ArrayList<>();
+        SequencedChannel receiver = new SequencedChannel(POOL, (data, offset, length) -> {
+        }, message -> {
+        }, received::add);
+        byte[] last = datagrams.get(datagrams.size() - 1);
+        receiver.receive(last, 0, last.length);
+        assertEquals(Arrays.asList(broadcast(2), broadcast(3)), received);
+
+        for (SequencedChannel sender : senders) {
+            sender.reset();
+        }
+        assertEquals(0, sent.get(2).refCount());
+    }
+
+    private static TableActionsBroadcastResponse broadcast(long tick) {
+        TableActionsBroadcastResponse broadcast = new TableActionsBroadcastResponse();
+        broadcast.setTableId("table-1");
+        broadcast.setGameHandle(0x0301);
+        broadcast.setServerTick(tick);
+        broadcast.setActions(new ArrayList<>(Collections.singletonList(
+            new PlayerAction(2, PlayerAction.ActionType.Y_ADD_ROW, 5, null))));
+        return broadcast;
+    }
+
+    private static SeatStateUpdateResponse seatState(long tick) {
+        SeatStateUpdateResponse state = new SeatStateUpdateResponse();
+        state.setTableId("table-1");
+        state.setSeatIndex(3);
+        state.setServerTick(tick);
+        return state;
+    }
+}
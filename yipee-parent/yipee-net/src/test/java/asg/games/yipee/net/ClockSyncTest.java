@@ -0,0 +1,112 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.net.game.ClockSync;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClockSyncTest {
+
+    private static final long SERVER_AHEAD = 5000;
+    private static final long SERVER_EPOCH = 1_000_000;
+    private static final int TICK_RATE = 60;
+
+    /**
+     * Answers a request sent at client time {@code sentAt}, with the given one-way delays and
+     * server hold, and returns the response as received.
+     */
+    private static PlayerActionResponse exchange(long sentAt, long up, long hold, long down, double ticksPerSecond) {
+        PlayerActionRequest request = new PlayerActionRequest();
+        request.setTimestamp(sentAt);
+        request.setReceivedAt(sentAt + SERVER_AHEAD + up);
+
+        PlayerActionResponse response = new PlayerActionResponse();
+        response.setServerTimestamp(request.getReceivedAt() + hold);
+        response.setServerTick((long) ((response.getServerTimestamp() - SERVER_EPOCH) * ticksPerSecond / 1000));
+        response.setTickRate(TICK_RATE);
+        ClockSync.echo(request, response);
+        return response;
+    }
+
+    @Test
+    public void testRttAndOffsetFromEchoedTimestamps() {
+        ClockSync sync = new ClockSync();
+        assertFalse(sync.isSynchronized());
+        assertEquals(-1, sync.inputTargetTick(SERVER_EPOCH));
+
+        long now = SERVER_EPOCH;
+        for (int i = 0; i < 40; i++) {
+            // Every third reply is held up 40ms in a queue on the way back.
+            long down = i % 3 == 0 ? 70 : 30;
+            PlayerActionResponse response = exchange(now, 30, 10, down, TICK_RATE);
+            assertTrue(sync.onResponse(response, now + 30 + 10 + down));
+            now += 50;
+        }
+
+        assertTrue(sync.isSynchronized());
+        assertEquals(SERVER_AHEAD, sync.getOffset());
+        assertTrue(sync.getRtt() >= 60 && sync.getRtt() <= 100, "rtt " + sync.getRtt());
+        assertTrue(sync.getRttDeviation() > 0);
+
+        double tick = sync.estimateServerTick(now);
+        double actual = (now + SERVER_AHEAD - SERVER_EPOCH) * TICK_RATE / 1000.0;
+        assertEquals(actual, tick, 1.0);
+        assertTrue(sync.inputTargetTick(now) > actual + 1, "inputs are stamped for their arrival tick");
+        assertTrue(sync.interpolationDelayTicks() >= 2);
+        assertEquals(0, sync.getTickDrift(), 0.5);
+    }
+
+    @Test
+    public void testUnsolicitedResponsesOnlyAnchorTheTick() {
+        ClockSync sync = new ClockSync();
+        long now = SERVER_EPOCH;
+        for (int i = 0; i < 40; i++) {
+            PlayerActionResponse response = exchange(now, 20, 0, 20, TICK_RATE * 1.1);
+            response.setRequestTimestamp(0);
+            assertFalse(sync.onResponse(response, now + 40));
+            now += 100;
+        }
+        assertEquals(0, sync.getSampleCount());
+        assertTrue(sync.getTickDrift() > 0.3, "server running fast: " + sync.getTickDrift());
+    }
+
+    @Test
+    public void testAllowedRewindIsBoundedByUsualLateness() {
+        ClockSync sync = new ClockSync();
+        PlayerActionRequest request = new PlayerActionRequest();
+        assertEquals(0, sync.allowedRewind(request, 100, 8));
+
+        for (long tick = 100; tick < 140; tick++) {
+            request.setClientTick(tick - 2);
+            sync.onRequest(request, tick);
+        }
+        assertEquals(2, sync.getInputLag(), 0.01);
+
+        request.setClientTick(138);
+        assertEquals(2, sync.allowedRewind(request, 140, 8));
+        request.setClientTick(110);
+        assertEquals(3, sync.allowedRewind(request, 140, 8));
+        assertEquals(1, sync.allowedRewind(request, 140, 1));
+        request.setClientTick(141);
+        assertEquals(0, sync.allowedRewind(request, 140, 8));
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.net.errors.ErrorCode;
+import asg.games.yipee.net.errors.ErrorMapper;
+import asg.games.yipee.net.errors.YipeeSyncException;
+import asg.games.yipee.net.game.DesyncDetector;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DesyncDetectorTest {
+
+    @Test
+    public void testMatchingChecksumIsInSync() {
+        SeatStateUpdateResponse response = TestYipeeNetworkObjects.getTableStateBroadcastResponseObject();
+        assertTrue(DesyncDetector.isInSync(response, response.getChecksum()));
+        assertDoesNotThrow(() -> DesyncDetector.verify(response, response.getChecksum()));
+    }
+
+    @Test
+    public void testMissingChecksumIsInSync() {
+        SeatStateUpdateResponse response = new SeatStateUpdateResponse();
+        assertTrue(DesyncDetector.isInSync(response, 42L));
+    }
+
+    @Test
+    public void testMismatchRequestsResync() {
+        SeatStateUpdateResponse response = TestYipeeNetworkObjects.getTableStateBroadcastResponseObject();
+        assertFalse(DesyncDetector.isInSync(response, response.getChecksum() + 1));
+
+        YipeeSyncException e = assertThrows(YipeeSyncException.class,
+            () -> DesyncDetector.verify(response, response.getChecksum() + 1));
+        assertEquals(ErrorCode.OUT_OF_SYNC, ErrorMapper.toCode(e));
+    }
+}
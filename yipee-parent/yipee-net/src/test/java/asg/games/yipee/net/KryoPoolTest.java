@@ -0,0 +1,118 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.PlayerActionRequest;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.tools.PacketRegistrar;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KryoPoolTest {
+
+    private static PlayerActionRequest request(int tick) {
+        PlayerActionRequest request = new PlayerActionRequest();
+        request.setGameId("game-1");
+        request.setClientTick(tick);
+        request.setPlayerAction(new PlayerAction(tick % 8, PlayerAction.ActionType.Y_ADD_ROW, (tick + 1) % 8, tick));
+        return request;
+    }
+
+    @Test
+    public void testSequentialUseRegistersOneInstance() {
+        KryoPool pool = new KryoPool();
+        for (int tick = 0; tick < 100; tick++) {
+            PlayerActionRequest request = request(tick);
+            assertEquals(request, pool.decode(pool.encode(request)));
+        }
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(200, pool.getBorrowCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testHandlesAreReturnedOnceAndBuffersTrimmed() {
+        KryoPool pool = new KryoPool(PacketRegistrar::registerPackets, 64, 1 << 16, 1);
+        KryoPool.Handle first = pool.borrow();
+        KryoPool.Handle second = pool.borrow();
+        assertEquals(2, pool.getCreatedCount());
+
+        TableActionsBroadcastResponse large = new TableActionsBroadcastResponse();
+        List<PlayerAction> actions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            actions.add(new PlayerAction(i, PlayerAction.ActionType.A_DITHER, i + 1, i));
+        }
+        large.setActions(actions);
+        first.getKryo().writeClassAndObject(first.getOutput(), large);
+        assertTrue(first.getOutput().getBuffer().length > 64);
+
+        first.close();
+        first.close();
+        second.close();
+        assertEquals(1, pool.getIdleCount(), "Only maxIdle instances are kept");
+
+        try (KryoPool.Handle again = pool.borrow()) {
+            assertSame(first, again);
+            assertEquals(0, again.getOutput().position());
+            assertEquals(64, again.getOutput().getBuffer().length);
+        }
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    public void testConcurrentEncodingNeedsNoSharedInstance() throws Exception {
+        int threads = 8;
+        KryoPool pool = new KryoPool();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t * 1000;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int checked = 0;
+                    for (int i = 0; i < 500; i++) {
+                        PlayerActionRequest request = request(offset + i);
+                        assertEquals(request, pool.decode(pool.encode(request)));
+                        checked++;
+                    }
+                    return checked;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(500, result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(pool.getCreatedCount() <= threads, "created " + pool.getCreatedCount());
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.transport.LinkConditions;
+import asg.games.yipee.net.transport.LoopbackEndpoint;
+import asg.games.yipee.net.transport.LoopbackNetwork;
+import asg.games.yipee.net.transport.SequencedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoopbackNetworkTest {
+
+    private static final KryoPool POOL = new KryoPool();
+
+    @Test
+    public void testReliableMessagesArriveAfterLatencyInOrder() {
+        AtomicLong clock = new AtomicLong(1000);
+        LoopbackNetwork network = new LoopbackNetwork(POOL, clock::get, 1);
+        LinkConditions lossy = new LinkConditions(50, 30, 0.5, LinkConditions.UNLIMITED);
+        LoopbackNetwork.Connection connection = network.connect(lossy, LinkConditions.PERFECT);
+
+        for (int i = 0; i < 20; i++) {
+            connection.getClient().sendReliable(ack(i));
+        }
+        List<Object> received = new ArrayList<>();
+        clock.set(1049);
+        assertEquals(0, connection.getServer().poll(received::add));
+
+        clock.set(1080);
+        assertEquals(20, connection.getServer().poll(received::add));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(ack(i), received.get(i));
+        }
+        assertEquals(0, connection.getClient().getLost());
+
+        connection.getServer().sendReliable(ack(99));
+        assertEquals(1, connection.getClient().poll(received::add));
+    }
+
+    @Test
+    public void testSameSeedGivesSameDeliveries() {
+        LinkConditions conditions = new LinkConditions(40, 40, 0.25, LinkConditions.UNLIMITED);
+        List<String> first = trace(conditions, 7);
+        assertEquals(first, trace(conditions, 7));
+        assertNotEquals(first, trace(conditions, 8));
+    }
+
+    private static List<String> trace(LinkConditions conditions, long seed) {
+        AtomicLong clock = new AtomicLong();
+        LoopbackNetwork network = new LoopbackNetwork(POOL, clock::get, seed);
+        LoopbackNetwork.Connection connection = network.connect(LinkConditions.PERFECT, conditions);
+        List<String> trace = new ArrayList<>();
+        SequencedChannel client = new SequencedChannel(POOL, connection.getClient(), message -> {
+        }, message -> trace.add(clock.get() + ":" + ((SeatStateUpdateResponse) message).getServerTick()));
+        SequencedChannel server = new SequencedChannel(POOL, connection.getServer(),
+            connection.getServer()::sendReliable, message -> {
+        });
+
+        for (long tick = 1; tick <= 200; tick++) {
+            server.send(seatState(tick));
+            clock.addAndGet(10);
+            connection.getClient().pollDatagrams(client);
+        }
+        return trace;
+    }
+
+    @Test
+    public void testBandwidthCapQueuesAndDropsDatagrams() {
+        AtomicLong clock = new AtomicLong();
+        LoopbackNetwork network = new LoopbackNetwork(POOL, clock::get, 3);
+        LinkConditions narrow = new LinkConditions(0, 0, 0, 1000);
+        LoopbackNetwork.Connection connection = network.connect(LinkConditions.PERFECT, narrow);
+        LoopbackEndpoint server = connection.getServer();
+
+        byte[] datagram = new byte[100];
+        for (int i = 0; i < 20; i++) {
+            server.send(datagram, 0, datagram.length);
+        }
+        // 100 bytes at 1000 B/s take 100ms each; only what fits in the link's queue is kept.
+        assertEquals(6, server.getSent());
+        assertEquals(14, server.getLost());
+
+        SequencedChannel client = new SequencedChannel(POOL, connection.getClient(), message -> {
+        }, message -> {
+        });
+        clock.set(599);
+        assertEquals(5, connection.getClient().pollDatagrams(client));
+        clock.set(600);
+        assertEquals(1, connection.getClient().pollDatagrams(client));
+    }
+
+    @Test
+    public void testSequencedChannelCarriesEventsOverLossyLoopback() {
+        AtomicLong clock = new AtomicLong();
+        LoopbackNetwork network = new LoopbackNetwork(POOL, clock::get, 11);
+        LinkConditions mobile = LinkConditions.mobile();
+        LoopbackNetwork.Connection connection = network.connect(mobile, mobile);
+
+        List<Object> received = new ArrayList<>();
+        SequencedChannel client = new SequencedChannel(POOL, connection.getClient(),
+            connection.getClient()::sendReliable, received::add);
+        SequencedChannel server = new SequencedChannel(POOL, connection.getServer(),
+            connection.getServer()::sendReliable, message -> {
+        });
+
+        for (long tick = 1; tick <= 300; tick++) {
+            server.send(broadcast(tick));
+            clock.addAndGet(16);
+            connection.getClient().pollDatagrams(client);
+        }
+        clock.addAndGet(1000);
+        connection.getClient().pollDatagrams(client);
+
+        assertTrue(connection.getServer().getLost() > 0, "the link lost something");
+        long previous = 0;
+        for (Object message : received) {
+            long tick = ((TableActionsBroadcastResponse) message).getServerTick();
+            assertTrue(tick > previous);
+            previous = tick;
+        }
+        assertTrue(received.size() >= 295, received.size() + " of 300 events delivered");
+
+        connection.getClient().close();
+        assertFalse(connection.getServer().isOpen());
+    }
+
+    private static PlayerActionResponse ack(long clientTick) {
+        PlayerActionResponse ack = new PlayerActionResponse();
+        ack.setAckClientTick(clientTick);
+        return ack;
+    }
+
+    private static SeatStateUpdateResponse seatState(long tick) {
+        SeatStateUpdateResponse response = new SeatStateUpdateResponse();
+        response.setTableId("table-1");
+        response.setServerTick(tick);
+        return response;
+    }
+
+    private static TableActionsBroadcastResponse broadcast(long tick) {
+        TableActionsBroadcastResponse response = new TableActionsBroadcastResponse();
+        response.setTableId("table-1");
+        response.setServerTick(tick);
+        response.setActions(new ArrayList<>(Collections.singletonList(
+            new PlayerAction(0, PlayerAction.ActionType.Y_ADD_ROW, 1, null))));
+        return response;
+    }
+}
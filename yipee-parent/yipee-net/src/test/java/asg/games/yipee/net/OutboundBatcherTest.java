@@ -0,0 +1,243 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatSelectionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.tools.PacketRegistrar;
+import asg.games.yipee.net.transport.OutboundBatcher;
+import asg.games.yipee.net.transport.OutboundQueue;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundBatcherTest {
+
+    private static final KryoPool POOL = new KryoPool();
+
+    @Test
+    public void testTickIsWrittenAsOneBatch() {
+        OutboundQueue queue = new OutboundQueue();
+        List<Object> tick = tickOfMessages(1);
+        for (Object message : tick) {
+            queue.offer(message);
+        }
+        RecordingChannel socket = new RecordingChannel(Integer.MAX_VALUE);
+        OutboundBatcher batcher = new OutboundBatcher(POOL, queue, socket);
+
+        assertEquals(tick.size(), flush(batcher));
+        assertEquals(1, socket.writes);
+        assertEquals(1, batcher.getWrites());
+        assertEquals(0, flush(batcher));
+        assertEquals(1, socket.writes);
+
+        List<Object> received = new ArrayList<>();
+        ByteBuffer in = ByteBuffer.wrap(socket.bytes.toByteArray());
+        assertEquals(tick.size(), OutboundBatcher.readBatches(POOL, in, received::add));
+        assertFalse(in.hasRemaining());
+        assertEquals(tick, received);
+    }
+
+    @Test
+    public void testPartialWritesFinishBeforeTheNextBatch() {
+        OutboundQueue queue = new OutboundQueue();
+        RecordingChannel socket = new RecordingChannel(40);
+        OutboundBatcher batcher = new OutboundBatcher(POOL, queue, socket);
+
+        List<Object> sent = new ArrayList<>();
+        for (int tick = 1; tick <= 5; tick++) {
+            for (Object message : tickOfMessages(tick)) {
+                queue.offer(message);
+                if (!OutboundQueue.isState(message)) {
+                    sent.add(message);
+                }
+            }
+            flush(batcher);
+            assertTrue(batcher.hasPending());
+        }
+        while (batcher.hasPending() || !queue.isEmpty()) {
+            flush(batcher);
+        }
+
+        // Read the stream back in awkward chunks, as a socket would deliver it.
+        byte[] stream = socket.bytes.toByteArray();
+        ByteBuffer in = ByteBuffer.allocate(stream.length);
+        List<Object> received = new ArrayList<>();
+        for (int offset = 0; offset < stream.length; offset += 7) {
+            in.put(stream, offset, Math.min(7, stream.length - offset));
+            in.flip();
+            OutboundBatcher.readBatches(POOL, in, received::add);
+            in.compact();
+        }
+
+        List<Object> reliable = new ArrayList<>();
+        for (Object message : received) {
+            if (!OutboundQueue.isState(message)) {
+                reliable.add(message);
+            }
+        }
+        assertEquals(sent, reliable);
+        assertEquals(received.size(), batcher.getMessages());
+        assertTrue(received.size() < 5 * tickOfMessages(1).size(), "states replaced while the socket was busy");
+    }
+
+    @Test
+    public void testLargeBacklogIsSplitAcrossFlushes() {
+        OutboundQueue queue = new OutboundQueue();
+        for (int i = 0; i < 100; i++) {
+            PlayerActionResponse ack = new PlayerActionResponse();
+            ack.setAckClientTick(i);
+            queue.offer(ack);
+        }
+        RecordingChannel socket = new RecordingChannel(Integer.MAX_VALUE);
+        OutboundBatcher batcher = new OutboundBatcher(POOL, queue, socket, 256);
+
+        int flushes = 0;
+        while (!queue.isEmpty()) {
+            assertTrue(flush(batcher) > 0);
+            flushes++;
+        }
+        assertTrue(flushes > 1);
+        assertEquals(flushes, batcher.getBatches());
+
+        List<Object> received = new ArrayList<>();
+        OutboundBatcher.readBatches(POOL, ByteBuffer.wrap(socket.bytes.toByteArray()), received::add);
+        assertEquals(100, received.size());
+        assertEquals(99L, ((PlayerActionResponse) received.get(99)).getAckClientTick());
+    }
+
+    @Test
+    public void testMessageThatFailsToEncodeIsDroppedAlone() {
+        KryoPool pool = new KryoPool(kryo -> {
+            PacketRegistrar.registerPackets(kryo);
+            kryo.register(Unencodable.class, new Serializer<Unencodable>() {
+                @Override
+                public void write(Kryo kryo, Output output, Unencodable object) {
+                    output.writeString("half written");
+                    throw new IllegalStateException("cannot encode");
+                }
+
+                @Override
+                public Unencodable read(Kryo kryo, Input input, Class<Unencodable> type) {
+                    throw new UnsupportedOperationException();
+                }
+            });
+        }, KryoPool.DEFAULT_BUFFER_SIZE, KryoPool.DEFAULT_MAX_BUFFER_SIZE, KryoPool.DEFAULT_MAX_IDLE);
+        OutboundQueue queue = new OutboundQueue();
+        PlayerActionResponse before = new PlayerActionResponse();
+        before.setAckClientTick(1);
+        PlayerActionResponse after = new PlayerActionResponse();
+        after.setAckClientTick(2);
+        queue.offer(before);
+        queue.offer(new Unencodable());
+        queue.offer(after);
+        RecordingChannel socket = new RecordingChannel(Integer.MAX_VALUE);
+        OutboundBatcher batcher = new OutboundBatcher(pool, queue, socket);
+
+        assertEquals(2, flush(batcher));
+        assertEquals(1, batcher.getEncodeFailures());
+
+        List<Object> received = new ArrayList<>();
+        OutboundBatcher.readBatches(pool, ByteBuffer.wrap(socket.bytes.toByteArray()), received::add);
+        assertEquals(Arrays.asList(before, after), received);
+    }
+
+    private static int flush(OutboundBatcher batcher) {
+        try {
+            return batcher.flush();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Everything an 8-player table can send one client in a tick.
+     */
+    private static List<Object> tickOfMessages(long tick) {
+        List<Object> messages = new ArrayList<>();
+        for (int seat = 0; seat < 8; seat++) {
+            SeatStateUpdateResponse state = new SeatStateUpdateResponse();
+            state.setTableId("table-1");
+            state.setSeatIndex(seat);
+            state.setServerTick(tick);
+            messages.add(state);
+        }
+        TableActionsBroadcastResponse broadcast = new TableActionsBroadcastResponse();
+        broadcast.setTableId("table-1");
+        broadcast.setServerTick(tick);
+        broadcast.setActions(new ArrayList<>(Collections.singletonList(
+            new PlayerAction(2, PlayerAction.ActionType.Y_ADD_ROW, 5, null))));
+        messages.add(broadcast);
+        PlayerActionResponse ack = new PlayerActionResponse();
+        ack.setAckClientTick(tick);
+        messages.add(ack);
+        SeatSelectionResponse lobby = new SeatSelectionResponse();
+        lobby.setServerTick(tick);
+        messages.add(lobby);
+        return messages;
+    }
+
+    private static final class Unencodable {
+    }
+
+    private static final class RecordingChannel implements WritableByteChannel {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final int maxPerWrite;
+        int writes;
+
+        RecordingChannel(int maxPerWrite) {
+            this.maxPerWrite = maxPerWrite;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            int length = Math.min(src.remaining(), maxPerWrite);
+            byte[] chunk = new byte[length];
+            src.get(chunk);
+            bytes.write(chunk, 0, length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
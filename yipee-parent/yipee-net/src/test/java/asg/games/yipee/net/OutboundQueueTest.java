@@ -0,0 +1,101 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableStateUpdateResponse;
+import asg.games.yipee.net.transport.OutboundQueue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundQueueTest {
+
+    @Test
+    public void testLatestStateReplacesWaitingStateAtTheBack() {
+        OutboundQueue queue = new OutboundQueue();
+        SeatStateUpdateResponse seat0Tick1 = seatState("t1", 0, 1);
+        PlayerActionResponse ack = new PlayerActionResponse();
+        SeatStateUpdateResponse seat1Tick1 = seatState("t1", 1, 1);
+        SeatStateUpdateResponse seat0Tick2 = seatState("t1", 0, 2);
+
+        queue.offer(seat0Tick1);
+        queue.offer(ack);
+        queue.offer(seat1Tick1);
+        queue.offer(seat0Tick2);
+
+        assertEquals(3, queue.size());
+        assertEquals(1, queue.getDroppedStates());
+        assertSame(ack, queue.poll());
+        assertSame(seat1Tick1, queue.poll());
+        assertSame(seat0Tick2, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(3, queue.getDelivered());
+    }
+
+    @Test
+    public void testReliableMessagesKeepOrderAndOverflow() {
+        OutboundQueue queue = new OutboundQueue(3, 4);
+        PlayerActionResponse[] acks = new PlayerActionResponse[4];
+        for (int i = 0; i < acks.length; i++) {
+            acks[i] = new PlayerActionResponse();
+            acks[i].setAckClientTick(i);
+        }
+        assertTrue(queue.offer(acks[0]));
+        assertTrue(queue.offer(acks[1]));
+        assertTrue(queue.offer(acks[2]));
+        assertFalse(queue.isOverflowed());
+        assertFalse(queue.offer(acks[3]));
+        assertTrue(queue.isOverflowed());
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(acks[i], queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testStateLaneIsBounded() {
+        OutboundQueue queue = new OutboundQueue(8, 2);
+        TableStateUpdateResponse table = new TableStateUpdateResponse();
+        table.setGameId("t1");
+        queue.offer(table);
+        for (int tick = 0; tick < 1000; tick++) {
+            queue.offer(seatState("t1", 0, tick));
+            queue.offer(seatState("t1", 1, tick));
+        }
+
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.getEvictedStates());
+        assertEquals(1998, queue.getDroppedStates());
+        assertEquals(2, queue.getHighWaterMark());
+        assertEquals(999, ((SeatStateUpdateResponse) queue.poll()).getServerTick());
+        assertEquals(999, ((SeatStateUpdateResponse) queue.poll()).getServerTick());
+    }
+
+    private static SeatStateUpdateResponse seatState(String tableId, int seat, long tick) {
+        SeatStateUpdateResponse response = new SeatStateUpdateResponse();
+        response.setTableId(tableId);
+        response.setSeatIndex(seat);
+        response.setServerTick(tick);
+        return response;
+    }
+}
@@ -23,9 +23,14 @@ import org.junit.jupiter.api.Test;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -77,4 +82,21 @@ public class PacketRegistrarTest {
         assertTrue(exception.getMessage().contains("No packets.xml"));
         assertDoesNotThrow(() -> PacketRegistrar.reloadConfiguration(path.toString()));
     }
+
+    @Test
+    public void testGeneratedRegistryMatchesPacketsXml() throws Exception {
+        PacketRegistrar.reset();
+        Map<String, Integer> generated = new LinkedHashMap<>(PacketRegistrar.getExplicitMappings());
+        PacketRegistrar.reloadConfiguration("src" + File.separator + "main" + File.separator + "resources"
+            + File.separator + "packets.xml");
+        Map<String, Integer> configured = new LinkedHashMap<>(PacketRegistrar.getExplicitMappings());
+        PacketRegistrar.reset();
+
+        assertTrue(generated.containsKey("asg.games.yipee.net.packets.TableRedirectResponse"));
+        Set<Integer> ids = new HashSet<>();
+        generated.forEach((className, id) -> {
+            assertEquals(configured.get(className), id, "Generated id differs from packets.xml: " + className);
+            assertTrue(ids.add(id), "Id used twice: " + id);
+        });
+    }
 }
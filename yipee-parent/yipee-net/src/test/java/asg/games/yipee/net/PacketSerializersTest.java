@@ -0,0 +1,228 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.AbstractServerResponse;
+import asg.games.yipee.net.packets.GameAuthTokenResponse;
+import asg.games.yipee.net.packets.GameStartRequest;
+import asg.games.yipee.net.packets.GameStartResponse;
+import asg.games.yipee.net.packets.PlayerActionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateRequest;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.packets.TableRedirectResponse;
+import asg.games.yipee.net.packets.TableStateUpdateResponse;
+import asg.games.yipee.net.serializers.PacketSerializers;
+import asg.games.yipee.net.serializers.PlayerActionSerializer;
+import asg.games.yipee.net.tools.PacketRegistrar;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PacketSerializersTest {
+
+    private static Kryo newKryo() {
+        Kryo kryo = new Kryo();
+        PacketRegistrar.registerPackets(kryo);
+        kryo.register(ArrayList.class);
+        return kryo;
+    }
+
+    private static byte[] write(Kryo kryo, Object packet) {
+        Output output = new Output(256, -1);
+        kryo.writeObject(output, packet);
+        return output.toBytes();
+    }
+
+    private static <T> T roundTrip(T packet) {
+        Kryo kryo = newKryo();
+        @SuppressWarnings("unchecked")
+        T copy = (T) kryo.readObject(new Input(write(kryo, packet)), packet.getClass());
+        assertEquals(packet, copy);
+        return copy;
+    }
+
+    private static <T extends AbstractServerResponse> T header(T response) {
+        response.setServerId("server-1");
+        response.setGameId("game-7");
+        response.setSessionId("session-3");
+        response.setSessionHandle(0x1a01);
+        response.setGameHandle(0x0301);
+        response.setServerTick(123456L);
+        response.setTickRate(60);
+        return response;
+    }
+
+    @Test
+    public void testPacketsWithoutSharedFixturesRoundTrip() {
+        roundTrip(header(new AbstractServerResponse()));
+
+        GameAuthTokenResponse token = header(new GameAuthTokenResponse());
+        token.setPlayerId("player-1");
+        token.setName("blakbro2k");
+        token.setIcon(4);
+        token.setRating(1650);
+        token.setClientId("client-1");
+        token.setTableId("table-9");
+        token.setExpiresAt("2030-01-01T00:00:00Z");
+        roundTrip(token);
+
+        GameStartRequest start = new GameStartRequest();
+        start.setClientTick(88);
+        start.setSessionHandle(0x1a01);
+        start.setGameHandle(0x0301);
+        start.setReady(true);
+        start.setTableId("table-9");
+        start.setPlayerId("player-1");
+        assertTrue(roundTrip(start).isReady());
+
+        GameStartResponse started = header(new GameStartResponse());
+        started.setCountdownSecondsRemaining(3);
+        started.setGameSeed(-42L);
+        started.setAccepted(true);
+        roundTrip(started);
+
+        SeatStateUpdateRequest seatRequest = new SeatStateUpdateRequest();
+        seatRequest.setTableId("table-9");
+        seatRequest.setSeatIndex(-1);
+        seatRequest.setRequestedById("player-1");
+        roundTrip(seatRequest);
+
+        TableRedirectResponse redirect = header(new TableRedirectResponse());
+        redirect.setTableId("table-9");
+        redirect.setHost("node-2.example");
+        redirect.setPort(54555);
+        redirect.setMigrationToken(0x7fedcba987654321L);
+        roundTrip(redirect);
+    }
+
+    @Test
+    public void testListsAndNestedPacketsRoundTrip() {
+        TableActionsBroadcastResponse broadcast = header(new TableActionsBroadcastResponse());
+        broadcast.setTableId("table-9");
+        broadcast.setActions(new ArrayList<>(Arrays.asList(
+            new PlayerAction(0, PlayerAction.ActionType.Y_ADD_ROW, 3, null),
+            new PlayerAction(2, PlayerAction.ActionType.A_DITHER, 5, 17),
+            null)));
+        roundTrip(broadcast);
+
+        TableActionsBroadcastResponse empty = header(new TableActionsBroadcastResponse());
+        empty.setActions(new ArrayList<>());
+        assertTrue(roundTrip(empty).getActions().isEmpty());
+
+        TableActionsBroadcastResponse none = header(new TableActionsBroadcastResponse());
+        none.setActions(null);
+        assertNull(roundTrip(none).getActions());
+
+        TableStateUpdateResponse table = header(new TableStateUpdateResponse());
+        SeatStateUpdateResponse seat = header(new SeatStateUpdateResponse());
+        seat.setTableId("table-9");
+        seat.setSeatIndex(2);
+        seat.setChecksum(99L);
+        table.setSeatState3(seat);
+        TableStateUpdateResponse copy = roundTrip(table);
+        assertNull(copy.getSeatState1());
+        assertEquals(seat, copy.getSeatState3());
+    }
+
+    @Test
+    public void testPlayerActionDataRoundTrips() {
+        Kryo kryo = newKryo();
+        List<PlayerAction> actions = Arrays.asList(
+            new PlayerAction(),
+            new PlayerAction(7, PlayerAction.ActionType.O_MEDUSA, 7, -300),
+            new PlayerAction(1, PlayerAction.ActionType.I_COLOR_REMOVE, 4, "red"));
+        for (PlayerAction action : actions) {
+            Output output = new Output(64, -1);
+            kryo.writeObject(output, action);
+            assertEquals(action, kryo.readObject(new Input(output.toBytes()), PlayerAction.class));
+        }
+    }
+
+    @Test
+    public void testPlayerActionPacksIntoHeaderAndBoardByte() {
+        Kryo kryo = newKryo();
+        PlayerActionSerializer serializer = new PlayerActionSerializer();
+        Output output = new Output(64, -1);
+        serializer.write(kryo, output, new PlayerAction(3, PlayerAction.ActionType.Y_ADD_ROW, 6, null));
+        assertEquals(2, output.position());
+
+        output.clear();
+        serializer.write(kryo, output, new PlayerAction(3, PlayerAction.ActionType.O_MEDUSA, -1, 12));
+        assertEquals(3, output.position());
+
+        PlayerAction farBoards = new PlayerAction(-40, PlayerAction.ActionType.Y_REMOVE_ROW, 300, 5);
+        output.clear();
+        serializer.write(kryo, output, farBoards);
+        assertEquals(farBoards, serializer.read(kryo, new Input(output.toBytes()), PlayerAction.class));
+    }
+
+    @Test
+    public void testHandWrittenFormatIsSmallerThanFieldSerialization() {
+        TableActionsBroadcastResponse broadcast = header(new TableActionsBroadcastResponse());
+        broadcast.setTableId("table-9");
+        List<PlayerAction> actions = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            actions.add(new PlayerAction(i, PlayerAction.ActionType.Y_ADD_ROW, (i + 2) % 8, i));
+        }
+        broadcast.setActions(actions);
+
+        Kryo reflective = new Kryo();
+        reflective.register(TableActionsBroadcastResponse.class);
+        reflective.register(PlayerAction.class);
+        reflective.register(ArrayList.class);
+        Kryo handWritten = newKryo();
+
+        int reflectiveSize = write(reflective, broadcast).length;
+        int handWrittenSize = write(handWritten, broadcast).length;
+        assertTrue(handWrittenSize < reflectiveSize,
+            "hand-written " + handWrittenSize + " bytes, reflective " + reflectiveSize + " bytes");
+    }
+
+    @Test
+    public void testEchoedRequestTimesRoundTrip() {
+        PlayerActionResponse ack = header(new PlayerActionResponse());
+        ack.setServerTimestamp(1_700_000_000_250L);
+        ack.setRequestTimestamp(1_699_999_995_100L);
+        ack.setReceivedTimestamp(1_700_000_000_241L);
+        PlayerActionResponse copy = roundTrip(ack);
+        assertEquals(ack.getRequestTimestamp(), copy.getRequestTimestamp());
+        assertEquals(ack.getReceivedTimestamp(), copy.getReceivedTimestamp());
+
+        PlayerActionResponse unsolicited = header(new PlayerActionResponse());
+        int withEcho = write(newKryo(), ack).length;
+        int withoutEcho = write(newKryo(), unsolicited).length;
+        assertTrue(withEcho - withoutEcho <= 7, withEcho + " vs " + withoutEcho + " bytes");
+    }
+
+    @Test
+    public void testRegisterKeepsExistingIds() {
+        Kryo kryo = new Kryo();
+        kryo.register(TableRedirectResponse.class, 921);
+        PacketSerializers.register(kryo);
+        assertEquals(921, kryo.getRegistration(TableRedirectResponse.class).getId());
+    }
+}
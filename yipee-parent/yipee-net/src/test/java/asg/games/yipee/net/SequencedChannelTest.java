@@ -0,0 +1,193 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.net;
+
+import asg.games.yipee.common.game.PlayerAction;
+import asg.games.yipee.net.packets.AbstractClientRequest;
+import asg.games.yipee.net.packets.SeatSelectionResponse;
+import asg.games.yipee.net.packets.SeatStateUpdateResponse;
+import asg.games.yipee.net.packets.TableActionsBroadcastResponse;
+import asg.games.yipee.net.tools.KryoPool;
+import asg.games.yipee.net.transport.DatagramLink;
+import asg.games.yipee.net.transport.SequencedChannel;
+import asg.games.yipee.net.transport.UdpLink;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SequencedChannelTest {
+
+    private static final KryoPool POOL = new KryoPool();
+
+    @Test
+    public void testStaleStatesAndRepeatedEventsAreDropped() {
+        List<byte[]> datagrams = new ArrayList<>();
+        List<Object> reliable = new ArrayList<>();
+        SequencedChannel sender = new SequencedChannel(POOL, capture(datagrams), reliable::add, message -> {
+        });
+        List<Object> received = new ArrayList<>();
+        SequencedChannel receiver = new SequencedChannel(POOL, capture(new ArrayList<>()), message -> {
+        }, received::add);
+
+        SeatSelectionResponse seated = new SeatSelectionResponse();
+        sender.send(seated);
+        assertEquals(Collections.singletonList(seated), reliable);
+
+        for (int tick = 1; tick <= 3; tick++) {
+            sender.send(seatState(0, tick));
+        }
+        for (int tick = 1; tick <= 4; tick++) {
+            sender.send(broadcast(tick));
+        }
+        assertEquals(7, sender.getDatagramsSent());
+
+        for (int i : new int[]{2, 0, 1, 6, 3, 5}) {
+            byte[] datagram = datagrams.get(i);
+            receiver.receive(datagram, 0, datagram.length);
+        }
+
+        assertEquals(Arrays.asList(3L, 2L, 3L, 4L), ticksOf(received));
+        assertTrue(received.get(0) instanceof SeatStateUpdateResponse);
+        assertEquals(2, receiver.getStaleDropped());
+        assertEquals(4, receiver.getDuplicatesDropped());
+        assertEquals(1, receiver.getEventsSkipped());
+    }
+
+    @Test
+    public void testResetForgetsOnlyThatTablesStreams() {
+        List<byte[]> datagrams = new ArrayList<>();
+        SequencedChannel sender = new SequencedChannel(POOL, capture(datagrams), message -> {
+        }, message -> {
+        });
+        List<Object> received = new ArrayList<>();
+        SequencedChannel receiver = new SequencedChannel(POOL, capture(new ArrayList<>()), message -> {
+        }, received::add);
+
+        for (int tick = 1; tick <= 2; tick++) {
+            sender.send(broadcast("t1", tick));
+            sender.send(broadcast("t2", tick));
+        }
+        sender.reset("t1", AbstractClientRequest.NO_HANDLE);
+        receiver.reset("t1", AbstractClientRequest.NO_HANDLE);
+        sender.send(broadcast("t1", 3));
+        sender.send(broadcast("t2", 3));
+        for (int i : new int[]{4, 5}) {
+            byte[] datagram = datagrams.get(i);
+            receiver.receive(datagram, 0, datagram.length);
+        }
+
+        // t1 starts over at one; t2 still carries its last three events, all new to the receiver
+        assertEquals(Arrays.asList(3L, 1L, 2L, 3L), ticksOf(received));
+        assertEquals(0, receiver.getEventsSkipped());
+    }
+
+    @Test
+    public void testOversizedStateFallsBackToReliable() {
+        List<byte[]> datagrams = new ArrayList<>();
+        List<Object> reliable = new ArrayList<>();
+        SequencedChannel sender = new SequencedChannel(POOL, capture(datagrams), reliable::add, message -> {
+        }, 3, 16);
+
+        SeatStateUpdateResponse state = seatState(0, 1);
+        state.setServerId("a-server-id-longer-than-one-datagram");
+        sender.send(state);
+
+        assertTrue(datagrams.isEmpty());
+        assertSame(state, reliable.get(0));
+    }
+
+    @Test
+    public void testEventsSurviveLossOverUdpLoopback() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (UdpLink serverLink = new UdpLink(loopback); UdpLink clientLink = new UdpLink(loopback)) {
+            serverLink.connect(clientLink.getLocalAddress());
+            clientLink.connect(serverLink.getLocalAddress());
+
+            // Delivers only every third datagram; with three events in each, none is lost.
+            int[] sent = new int[1];
+            DatagramLink lossy = (data, offset, length) -> {
+                if (sent[0]++ % 3 == 0) {
+                    serverLink.send(data, offset, length);
+                }
+            };
+            SequencedChannel server = new SequencedChannel(POOL, lossy, message -> {
+            }, message -> {
+            });
+            List<Object> received = Collections.synchronizedList(new ArrayList<>());
+            SequencedChannel client = new SequencedChannel(POOL, clientLink, message -> {
+            }, received::add);
+
+            List<Long> expected = new ArrayList<>();
+            for (int tick = 1; tick <= 34; tick++) {
+                server.send(broadcast(tick));
+                expected.add((long) tick);
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < expected.size() && System.currentTimeMillis() < deadline) {
+                if (clientLink.poll(client) == 0) {
+                    Thread.sleep(5);
+                }
+            }
+            assertEquals(expected, ticksOf(received));
+            assertEquals(0, client.getMalformed());
+        }
+    }
+
+    private static DatagramLink capture(List<byte[]> datagrams) {
+        return (data, offset, length) -> datagrams.add(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    private static SeatStateUpdateResponse seatState(int seat, long tick) {
+        SeatStateUpdateResponse response = new SeatStateUpdateResponse();
+        response.setTableId("table-1");
+        response.setSeatIndex(seat);
+        response.setServerTick(tick);
+        return response;
+    }
+
+    private static TableActionsBroadcastResponse broadcast(long tick) {
+        return broadcast("table-1", tick);
+    }
+
+    private static TableActionsBroadcastResponse broadcast(String tableId, long tick) {
+        TableActionsBroadcastResponse response = new TableActionsBroadcastResponse();
+        response.setTableId(tableId);
+        response.setServerTick(tick);
+        response.setActions(new ArrayList<>(Collections.singletonList(
+            new PlayerAction(0, PlayerAction.ActionType.Y_ADD_ROW, 1, null))));
+        return response;
+    }
+
+    private static List<Long> ticksOf(List<Object> messages) {
+        List<Long> ticks = new ArrayList<>();
+        for (Object message : messages) {
+            ticks.add(message instanceof SeatStateUpdateResponse
+                ? ((SeatStateUpdateResponse) message).getServerTick()
+                : ((TableActionsBroadcastResponse) message).getServerTick());
+        }
+        return ticks;
+    }
+}
@@ -140,7 +140,12 @@ public class TestYipeeNetworkObjects {
             Assertions.assertAll("PlayerActionResponse",
                 () -> Assertions.assertEquals(o.getMessage(), c.getMessage(), "Message mismatch"),
                 () -> Assertions.assertEquals(o.getPlayerAction(), c.getPlayerAction(), "Player Action mismatch"),
-                () -> Assertions.assertEquals(o.isAccepted(), c.isAccepted(), "Accepted mismatch")
+                () -> Assertions.assertEquals(o.isAccepted(), c.isAccepted(), "Accepted mismatch"),
+                () -> Assertions.assertEquals(o.getAckClientTick(), c.getAckClientTick(), "AckClientTick mismatch"),
+                () -> Assertions.assertEquals(o.getActionCount(), c.getActionCount(), "ActionCount mismatch"),
+                () -> Assertions.assertEquals(o.getRejectedCount(), c.getRejectedCount(), "RejectedCount mismatch"),
+                () -> Assertions.assertEquals(o.getFirstRejectedClientTick(), c.getFirstRejectedClientTick(),
+                    "FirstRejectedClientTick mismatch")
             );
         } else if (original instanceof TableStateUpdateRequest) {
             TableStateUpdateRequest o = (TableStateUpdateRequest) original;
@@ -153,7 +158,8 @@ public class TestYipeeNetworkObjects {
             SeatStateUpdateResponse o = (SeatStateUpdateResponse) original;
             SeatStateUpdateResponse c = (SeatStateUpdateResponse) copy;
             Assertions.assertAll("SeatStateUpdateResponse",
-                () -> Assertions.assertEquals(o.getStates(), c.getStates(), "States mismatch")
+                () -> Assertions.assertEquals(o.getStates(), c.getStates(), "States mismatch"),
+                () -> Assertions.assertEquals(o.getChecksum(), c.getChecksum(), "Checksum mismatch")
                 //() -> Assertions.assertEquals(o.getUpdateType(), c.getUpdateType(), "Update Type mismatch")
             );
         } else if (original instanceof SeatSelectionResponse) {
@@ -279,6 +285,10 @@ public class TestYipeeNetworkObjects {
         response.setAccepted(true);
         response.setPlayerAction(action);
         response.setMessage("player 1 attacked player 2");
+        response.setAckClientTick(42);
+        response.setActionCount(3);
+        response.setRejectedCount(1);
+        response.setFirstRejectedClientTick(40);
         return response;
     }
 
@@ -293,6 +303,8 @@ public class TestYipeeNetworkObjects {
     public static SeatStateUpdateResponse getTableStateBroadcastResponseObject() {
         SeatStateUpdateResponse obj = new SeatStateUpdateResponse();
         setUpAbstractPacketResponse(obj);
+        obj.setSeatIndex(3);
+        obj.setChecksum(0x5deece66dL);
         //bbj.set(table); // Replace with YipeeTableDTO test instance
         //obj.setUpdateType(TableUpdateType.PLAYER_READY);
         return obj;
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks {@link PacketRegistryProcessor} to generate a packet registry from a packet
+ * configuration file at compile time.
+ *
+ * <p>The configuration is read from the compiler's class output, where Maven's resources
+ * phase has already copied it, and the registry is generated into the annotated type's
+ * package.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GeneratePacketRegistry {
+    /**
+     * Path of the configuration file relative to the resource root, for example
+     * {@code packets.xml}.
+     */
+    String config();
+
+    /**
+     * Simple name of the generated registry class.
+     */
+    String name() default "GeneratedPacketRegistry";
+}
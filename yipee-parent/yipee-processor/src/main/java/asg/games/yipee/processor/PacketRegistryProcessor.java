@@ -0,0 +1,353 @@
+/**
+ * Copyright 2024 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asg.games.yipee.processor;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a packet registry class from a {@code packets.xml}-style configuration file.
+ *
+ * <p>The configuration lists classes to exclude and explicit class-to-id mappings, under a
+ * {@code mappedClasses} or {@code mappings} element. For every mapping that is not
+ * excluded the registry lists the class followed by the {@link java.io.Serializable}
+ * types of its declared fields, in the order {@code PacketRegistrar} used to register them
+ * at runtime; field types are registered with Kryo's next free id. Fields of JDK classes
+ * are not inspected, and excluded classes are skipped as field types too. Everything is resolved
+ * here, so registering the generated list needs no XML parsing or reflection.
+ *
+ * <p>Mapped classes that are not visible to the module being compiled, such as server or
+ * client classes named in a shared configuration, are kept by binary name and resolved
+ * when the registry is used.
+ *
+ * <p>Two classes mapped to the same id, a negative id or an unreadable configuration fail
+ * the compilation.
+ */
+@SupportedAnnotationTypes("asg.games.yipee.processor.GeneratePacketRegistry")
+public class PacketRegistryProcessor extends AbstractProcessor {
+    /** Interface implemented by generated registries. */
+    static final String REGISTRY_INTERFACE = "asg.games.yipee.net.tools.PacketRegistry";
+
+    /** Id recorded for types registered with Kryo's next free id. */
+    static final int NEXT_ID = -1;
+
+    private static final String XML_EXCLUDED_CLASSES = "excludedClasses";
+    private static final String XML_CLASS = "class";
+    private static final String XML_ID = "id";
+    private static final String XML_MAPPING = "mapping";
+    private static final String[] XML_MAPPING_PARENTS = {"mappedClasses", "mappings"};
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (javax.lang.model.element.Element element : round.getElementsAnnotatedWith(GeneratePacketRegistry.class)) {
+            GeneratePacketRegistry request = element.getAnnotation(GeneratePacketRegistry.class);
+            try {
+                generate((TypeElement) element, request);
+            } catch (Exception e) {
+                error(element, "Could not generate packet registry from " + request.config() + ": " + e);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement owner, GeneratePacketRegistry request) throws Exception {
+        Document document = readConfig(owner, request.config());
+        if (document == null) {
+            return;
+        }
+        Set<String> excluded = readExcluded(document);
+        Map<String, Integer> mappings = readMappings(owner, request.config(), document);
+        if (mappings == null) {
+            return;
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> literalIds = new ArrayList<>();
+        List<String> deferred = new ArrayList<>();
+        List<Integer> deferredIds = new ArrayList<>();
+        Set<String> registered = new HashSet<>();
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror serializable = elements.getTypeElement("java.io.Serializable").asType();
+
+        for (Map.Entry<String, Integer> mapping : mappings.entrySet()) {
+            String className = mapping.getKey();
+            if (excluded.contains(className)) {
+                continue;
+            }
+            TypeElement type = elements.getTypeElement(className.replace('$', '.'));
+            if (type == null || !isAccessible(type)) {
+                deferred.add(type != null ? elements.getBinaryName(type).toString() : className);
+                deferredIds.add(mapping.getValue());
+                note(owner, className + " is not visible here and will be resolved at runtime");
+                continue;
+            }
+            String literal = type.getQualifiedName().toString();
+            literals.add(literal);
+            literalIds.add(mapping.getValue());
+            registered.add(literal);
+            if (literal.startsWith("java.")) {
+                continue;
+            }
+
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                TypeMirror fieldType = types.erasure(field.asType());
+                if (fieldType.getKind().isPrimitive() || !types.isAssignable(fieldType, serializable)) {
+                    continue;
+                }
+                String fieldLiteral = fieldType.toString();
+                if (registered.contains(fieldLiteral) || excluded.contains(fieldLiteral)) {
+                    continue;
+                }
+                if (!isAccessible(fieldType)) {
+                    warning(owner, "Skipping field type " + fieldLiteral + " of " + literal + ": not accessible");
+                    continue;
+                }
+                literals.add(fieldLiteral);
+                literalIds.add(NEXT_ID);
+                registered.add(fieldLiteral);
+            }
+        }
+
+        PackageElement pkg = elements.getPackageOf(owner);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String qualifiedName = packageName.isEmpty() ? request.name() : packageName + "." + request.name();
+        JavaFileObject source = processingEnv.getFiler().createSourceFile(qualifiedName, owner);
+        try (Writer writer = source.openWriter()) {
+            writer.write(render(packageName, request, literals, literalIds, deferred, deferredIds));
+        }
+    }
+
+    private Document readConfig(TypeElement owner, String path) throws Exception {
+        InputStream input = open(StandardLocation.CLASS_OUTPUT, path);
+        if (input == null) {
+            input = open(StandardLocation.SOURCE_PATH, path);
+        }
+        if (input == null) {
+            error(owner, "Packet configuration " + path + " not found in the class output or source path");
+            return null;
+        }
+        try (InputStream in = input) {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+            document.getDocumentElement().normalize();
+            return document;
+        }
+    }
+
+    private InputStream open(StandardLocation location, String path) {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(location, "", path);
+            return file.openInputStream();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> readExcluded(Document document) {
+        Set<String> excluded = new LinkedHashSet<>();
+        NodeList parents = document.getElementsByTagName(XML_EXCLUDED_CLASSES);
+        if (parents.getLength() > 0) {
+            NodeList children = parents.item(0).getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                Node node = children.item(i);
+                if (node.getNodeType() == Node.ELEMENT_NODE && node.getNodeName().equals(XML_CLASS)) {
+                    excluded.add(node.getTextContent().trim());
+                }
+            }
+        }
+        return excluded;
+    }
+
+    /**
+     * Reads the mappings in file order, or returns {@code null} after reporting errors.
+     */
+    private Map<String, Integer> readMappings(TypeElement owner, String path, Document document) {
+        Map<String, Integer> mappings = new LinkedHashMap<>();
+        Map<Integer, String> classesById = new LinkedHashMap<>();
+        boolean valid = true;
+        for (String parentTag : XML_MAPPING_PARENTS) {
+            NodeList parents = document.getElementsByTagName(parentTag);
+            if (parents.getLength() == 0) {
+                continue;
+            }
+            NodeList children = parents.item(0).getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                Node node = children.item(i);
+                if (node.getNodeType() != Node.ELEMENT_NODE || !node.getNodeName().equals(XML_MAPPING)) {
+                    continue;
+                }
+                Element mapping = (Element) node;
+                String className = mapping.getAttribute(XML_CLASS).trim();
+                String idText = mapping.getAttribute(XML_ID).trim();
+                if (className.isEmpty() || idText.isEmpty()) {
+                    continue;
+                }
+                int id;
+                try {
+                    id = Integer.parseInt(idText);
+                } catch (NumberFormatException e) {
+                    error(owner, path + ": invalid id '" + idText + "' for " + className);
+                    valid = false;
+                    continue;
+                }
+                if (id < 0) {
+                    error(owner, path + ": negative id " + id + " for " + className);
+                    valid = false;
+                    continue;
+                }
+                if (mappings.containsKey(className)) {
+                    warning(owner, path + ": duplicate mapping ignored for " + className);
+                    continue;
+                }
+                String existing = classesById.get(id);
+                if (existing != null) {
+                    error(owner, path + ": id " + id + " is mapped to both " + existing + " and " + className);
+                    valid = false;
+                    continue;
+                }
+                mappings.put(className, id);
+                classesById.put(id, className);
+            }
+        }
+        return valid ? mappings : null;
+    }
+
+    private static boolean isAccessible(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return isAccessible(((ArrayType) type).getComponentType());
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return isAccessible((TypeElement) ((DeclaredType) type).asElement());
+        }
+        return type.getKind().isPrimitive();
+    }
+
+    private static boolean isAccessible(TypeElement type) {
+        javax.lang.model.element.Element element = type;
+        while (element instanceof TypeElement) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private static String render(String packageName, GeneratePacketRegistry request, List<String> literals,
+                                 List<Integer> literalIds, List<String> deferred, List<Integer> deferredIds) {
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n")
+            .append(" * Packet registrations generated from {@code ").append(request.config())
+            .append("} by {@code ").append(PacketRegistryProcessor.class.getName()).append("}.\n")
+            .append(" * Do not edit; change the configuration instead.\n")
+            .append(" */\n")
+            .append("public final class ").append(request.name())
+            .append(" implements ").append(REGISTRY_INTERFACE).append(" {\n")
+            .append("    public static final ").append(request.name()).append(" INSTANCE = new ")
+            .append(request.name()).append("();\n\n");
+
+        out.append("    private static final Class<?>[] TYPES = {\n");
+        for (String literal : literals) {
+            out.append("        ").append(literal).append(".class,\n");
+        }
+        out.append("    };\n\n");
+        appendInts(out, "IDS", literalIds);
+
+        out.append("    private static final String[] DEFERRED_NAMES = {\n");
+        for (String name : deferred) {
+            out.append("        \"").append(name).append("\",\n");
+        }
+        out.append("    };\n\n");
+        appendInts(out, "DEFERRED_IDS", deferredIds);
+
+        out.append("    private ").append(request.name()).append("() {\n    }\n\n");
+        appendGetter(out, "Class<?>[]", "getTypes", "TYPES");
+        appendGetter(out, "int[]", "getIds", "IDS");
+        appendGetter(out, "String[]", "getDeferredNames", "DEFERRED_NAMES");
+        appendGetter(out, "int[]", "getDeferredIds", "DEFERRED_IDS");
+        out.setLength(out.length() - 1);
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static void appendInts(StringBuilder out, String name, List<Integer> values) {
+        out.append("    private static final int[] ").append(name).append(" = {\n");
+        for (int value : values) {
+            out.append("        ").append(value).append(",\n");
+        }
+        out.append("    };\n\n");
+    }
+
+    private static void appendGetter(StringBuilder out, String type, String method, String field) {
+        out.append("    @Override\n")
+            .append("    public ").append(type).append(' ').append(method).append("() {\n")
+            .append("        return ").append(field).append(".clone();\n")
+            .append("    }\n\n");
+    }
+
+    private void error(javax.lang.model.element.Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void warning(javax.lang.model.element.Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    private void note(javax.lang.model.element.Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+}